@@ -0,0 +1,105 @@
+package com.fix.benchmark.jmh;
+
+import com.fix.benchmark.engine.ActiveSessionRegistry;
+import com.fix.benchmark.engine.EngineSession;
+import org.openjdk.jmh.annotations.*;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 活跃会话索引在不同会话数下的单次选取开销，以及一次登出加登录的维护开销。
+ * 选取不遍历会话，各策略的耗时应不随sessionCount增长；weighted中一半会话权重为2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActiveSessionRegistryBenchmark {
+    
+    @Param({"10", "100", "1000", "10000"})
+    private int sessionCount;
+    
+    @Param({"round-robin", "random", "weighted", "sticky-hash"})
+    private String strategyName;
+    
+    private final ActiveSessionRegistry<StubSession> registry = new ActiveSessionRegistry<>();
+    private final List<StubSession> sessions = new ArrayList<>();
+    private ActiveSessionRegistry.Strategy strategy;
+    
+    @State(Scope.Thread)
+    public static class Keys {
+        long next;
+    }
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        strategy = ActiveSessionRegistry.Strategy.fromName(strategyName);
+        for (int i = 0; i < sessionCount; i++) {
+            StubSession session = new StubSession("CLIENT_" + i);
+            registry.register(session);
+            registry.update(session, true);
+            if (i % 2 == 1) {
+                registry.setWeight(session, 2);
+            }
+            sessions.add(session);
+        }
+    }
+    
+    @Benchmark
+    public EngineSession select(Keys keys) {
+        return registry.select(strategy, keys.next++);
+    }
+    
+    /**
+     * 任选一个会话登出再登录，登出时用末尾元素填补空位
+     */
+    @Benchmark
+    public int logoutLogon(Keys keys) {
+        StubSession session = sessions.get((int) (keys.next++ % sessionCount));
+        registry.update(session, false);
+        registry.update(session, true);
+        return registry.size();
+    }
+    
+    private static final class StubSession implements EngineSession {
+        private final String sessionId;
+        
+        StubSession(String sessionId) {
+            this.sessionId = sessionId;
+        }
+        
+        @Override
+        public String getSessionId() {
+            return sessionId;
+        }
+        
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+        
+        @Override
+        public CompletableFuture<SessionID> getLogonFuture() {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        @Override
+        public boolean sendTestRequest(String testReqId) {
+            return true;
+        }
+        
+        @Override
+        public void setResponseListener(ResponseListener listener) {
+        }
+        
+        @Override
+        public void setConnectionListener(ConnectionListener listener) {
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.fix.benchmark.jmh;
+
+import com.fix.benchmark.test.PreciseRateLimiter;
+import com.fix.benchmark.test.BatchedRateLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Control;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较单AtomicLong限速器与按批领取许可的限速器在多个发送线程下的总体精度。
+ * 次要结果granted是测量期间每秒实际放行的许可数，应等于rate；主结果是tryAcquire的调用吞吐。
+ * 线程同步阶段放行的许可不计入granted，否则线程数多于核数时会高估。
+ * 运行main依次测试1、8、32、64个线程。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+    
+    @Param({"precise", "batched"})
+    private String limiter;
+    
+    @Param({"1000000"})
+    private double rate;
+    
+    private PreciseRateLimiter precise;
+    private BatchedRateLimiter batched;
+    private boolean useBatched;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Permits {
+        public long granted;
+        
+        @Setup(Level.Iteration)
+        public void clear() {
+            granted = 0;
+        }
+    }
+    
+    @Setup(Level.Iteration)
+    public void setup() {
+        precise = new PreciseRateLimiter(rate);
+        batched = new BatchedRateLimiter(rate);
+        useBatched = "batched".equals(limiter);
+    }
+    
+    @Benchmark
+    public boolean tryAcquire(Permits permits, Control control) {
+        boolean acquired = useBatched ? batched.tryAcquire() : precise.tryAcquire();
+        if (acquired && control.startMeasurement && !control.stopMeasurement) {
+            permits.granted++;
+        }
+        return acquired;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 8, 32, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(RateLimiterBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.fix.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import quickfix.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较发送路径上定位Session的三种方式在大量会话下的单次开销:
+ * 遍历会话列表查找、每次发送调用Session.lookupSession、以及onCreate时缓存的句柄
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionSendBenchmark {
+    
+    @Param({"10000"})
+    private int sessionCount;
+    
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<SessionID> sessionIds = new ArrayList<>();
+    private SessionID target;
+    private Session cached;
+    
+    @Setup(Level.Trial)
+    public void setup() throws ConfigError {
+        SessionSettings settings = new SessionSettings();
+        settings.setString(SessionFactory.SETTING_CONNECTION_TYPE, SessionFactory.INITIATOR_CONNECTION_TYPE);
+        settings.setString(Session.SETTING_HEARTBTINT, "30");
+        settings.setString(Session.SETTING_START_TIME, "00:00:00");
+        settings.setString(Session.SETTING_END_TIME, "00:00:00");
+        settings.setString(Session.SETTING_NON_STOP_SESSION, "Y");
+        settings.setString(Session.SETTING_USE_DATA_DICTIONARY, "N");
+        
+        DefaultSessionFactory factory = new DefaultSessionFactory(
+                new ApplicationAdapter(), new NoopStoreFactory(), null);
+        for (int i = 0; i < sessionCount; i++) {
+            SessionID sessionId = new SessionID("FIX.4.4", "CLIENT_" + i, "SERVER");
+            sessions.add(factory.create(sessionId, settings));
+            sessionIds.add(sessionId);
+        }
+        
+        target = sessionIds.get(new Random(42).nextInt(sessionCount));
+        cached = Session.lookupSession(target);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (Session session : sessions) {
+            session.close();
+        }
+        sessions.clear();
+        sessionIds.clear();
+    }
+    
+    /**
+     * 旧实现: 每次发送都遍历全部会话直到找到自己的SessionID
+     */
+    @Benchmark
+    public Session scanSessions() {
+        for (SessionID sessionId : sessionIds) {
+            if (sessionId.equals(target)) {
+                return Session.lookupSession(sessionId);
+            }
+        }
+        return null;
+    }
+    
+    @Benchmark
+    public Session lookupPerSend() {
+        return Session.lookupSession(target);
+    }
+    
+    @Benchmark
+    public Session cachedHandle() {
+        return cached;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.fix.benchmark.jmh;
+
+import com.fix.benchmark.test.TestRequestGenerator;
+import com.fix.benchmark.utils.EnhancedTestReqIdGenerator;
+import com.fix.benchmark.utils.TestReqIdCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 比较TestReqID的生成与解析开销: 压测器原来的字符串拼接、TestRequestGenerator、
+ * 改写前的EnhancedTestReqIdGenerator(Instant.now + String.format生成，split解析)、
+ * 现在前缀+十进制序号的EnhancedTestReqIdGenerator，以及写入复用缓冲区的紧凑编码TestReqIdCodec。
+ * 运行main时附加GC profiler，gc.alloc.rate.norm即每次操作分配的字节数。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TestReqIdBenchmark {
+    
+    private static final String SESSION_ID = "CLIENT_1234";
+    private static final int SESSION_INDEX = 1234;
+    
+    private final String prefix = EnhancedTestReqIdGenerator.prefix(SESSION_ID);
+    private final TestReqIdCodec codec = new TestReqIdCodec();
+    private final byte[] bytes = new byte[TestReqIdCodec.TIMESTAMPED_LENGTH];
+    private long sequence = 1_000_000;
+    
+    private String originalId;
+    private String prefixedId;
+    private String compactId;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        originalId = OriginalTestReqIdGenerator.generate(SESSION_ID);
+        prefixedId = EnhancedTestReqIdGenerator.generate(prefix, 123_456_789L);
+        compactId = TestReqIdCodec.format(SESSION_INDEX, 123_456_789L);
+    }
+    
+    /**
+     * 压测器原来的写法: 会话ID、时间戳和线程ID拼接
+     */
+    @Benchmark
+    public String concatenate() {
+        return "BENCH-" + SESSION_ID + "-" + System.nanoTime() + "-" + Thread.currentThread().getId();
+    }
+    
+    @Benchmark
+    public String testRequestGenerator() {
+        return TestRequestGenerator.generateTestReqId();
+    }
+    
+    /**
+     * 基线: 改写前的生成器
+     */
+    @Benchmark
+    public String originalGenerate() {
+        return OriginalTestReqIdGenerator.generate(SESSION_ID);
+    }
+    
+    @Benchmark
+    public String prefixedGenerate() {
+        return EnhancedTestReqIdGenerator.generate(prefix, ++sequence);
+    }
+    
+    @Benchmark
+    public String compactFormat() {
+        return TestReqIdCodec.format(SESSION_INDEX, ++sequence);
+    }
+    
+    /**
+     * 写入复用的char缓冲区，不分配对象
+     */
+    @Benchmark
+    public CharSequence compactEncode() {
+        return codec.encode(SESSION_INDEX, ++sequence);
+    }
+    
+    @Benchmark
+    public CharSequence compactEncodeTimestamped() {
+        return codec.encode(SESSION_INDEX, ++sequence, System.nanoTime());
+    }
+    
+    @Benchmark
+    public byte[] compactEncodeBytes() {
+        TestReqIdCodec.encode(bytes, 0, SESSION_INDEX, ++sequence);
+        return bytes;
+    }
+    
+    /**
+     * 基线: 改写前按"-"切分取出会话ID
+     */
+    @Benchmark
+    public String originalDecode() {
+        return OriginalTestReqIdGenerator.extractSessionId(originalId);
+    }
+    
+    /**
+     * 前缀方案解析会话(截取子串)和序号
+     */
+    @Benchmark
+    public long prefixedDecode() {
+        String sessionId = EnhancedTestReqIdGenerator.extractSessionId(prefixedId);
+        return EnhancedTestReqIdGenerator.parseSequence(prefixedId, 0, prefixedId.length(), prefix)
+                + sessionId.length();
+    }
+    
+    @Benchmark
+    public long compactDecode() {
+        int end = compactId.length();
+        return TestReqIdCodec.sessionIndex(compactId, 0, end) + TestReqIdCodec.slot(compactId, 0, end, 4095);
+    }
+    
+    /**
+     * 改写前的EnhancedTestReqIdGenerator原样保留，作为对比基线
+     */
+    static final class OriginalTestReqIdGenerator {
+        private static final AtomicLong sequence = new AtomicLong(0);
+        private static final String PREFIX = "BENCH";
+        
+        /**
+         * 生成全局唯一的TestReqID，格式: BENCH-[timestamp]-[sessionId]-[sequence]
+         */
+        static String generate(String sessionId) {
+            long timestamp = Instant.now().toEpochMilli();
+            long seq = sequence.incrementAndGet();
+            return String.format("%s-%d-%s-%06d", PREFIX, timestamp, sessionId, seq);
+        }
+        
+        /**
+         * 解析TestReqID获取会话ID
+         */
+        static String extractSessionId(String testReqId) {
+            if (testReqId == null || !testReqId.startsWith(PREFIX)) {
+                return null;
+            }
+            String[] parts = testReqId.split("-");
+            return parts.length >= 3 ? parts[2] : null;
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TestReqIdBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.fix.benchmark;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.engine.LoopbackAcceptor;
+import com.fix.benchmark.engine.SessionEngine;
+import com.fix.benchmark.engine.SessionEngines;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * 连接风暴场景: 只建立会话不发送业务消息，按fix.ramp-up配置的节奏登录全部会话，
+ * 输出登录耗时分布、每秒登录数以及每会话资源开销
+ */
+public class ConnectStormBenchmarkApplication {
+    public static void main(String[] args) {
+        try {
+            Config config = ConfigFactory.load();
+            MultiSessionConfig multiConfig = new MultiSessionConfig(config);
+            MultiSessionMetrics metrics = new MultiSessionMetrics();
+            
+            String baseSenderCompId = config.getString("fix.sessions.base-sender-comp-id");
+            String targetCompId = config.getString("fix.sessions.target-comp-id");
+            int sessionCount = config.getInt("fix.sessions.count");
+            
+            // 启动内置回环接收端
+            LoopbackAcceptor loopbackAcceptor = null;
+            if (multiConfig.isLoopbackEnabled()) {
+                loopbackAcceptor = new LoopbackAcceptor(multiConfig, targetCompId);
+                loopbackAcceptor.start();
+            }
+            
+            SessionEngine<?> engineManager = SessionEngines.create(multiConfig, metrics);
+            
+            // 建立全部会话，返回时所有会话已登录成功或重试耗尽
+            engineManager.createMultipleSessions(baseSenderCompId, targetCompId, sessionCount);
+            
+            metrics.logSummary();
+            
+            engineManager.shutdown();
+            if (loopbackAcceptor != null) {
+                loopbackAcceptor.stop();
+            }
+            System.exit(0);
+        
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
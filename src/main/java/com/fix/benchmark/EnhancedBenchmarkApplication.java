@@ -1,8 +1,14 @@
 package com.fix.benchmark;
 
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.engine.ActiveSessionRegistry;
+import com.fix.benchmark.engine.LoopbackAcceptor;
 import com.fix.benchmark.engine.MultiSessionEngineManager;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
 import com.fix.benchmark.metrics.PreciseRequestTracker;
+import com.fix.benchmark.test.AimdRateController;
 import com.fix.benchmark.test.EnhancedLoadTester;
+import com.fix.benchmark.test.LoadProfile;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -11,27 +17,59 @@ public class EnhancedBenchmarkApplication {
         try {
             Config config = ConfigFactory.load();
             
-            // 创建请求跟踪器
-            int timeoutMillis = config.getInt("test.timeout-millis");
-            PreciseRequestTracker requestTracker = new PreciseRequestTracker(timeoutMillis);
-            
-            // 创建引擎管理器
-            MultiSessionEngineManager engineManager = new MultiSessionEngineManager(config, requestTracker);
+            // 启动内置回环接收端
+            MultiSessionConfig multiConfig = new MultiSessionConfig(config);
+            LoopbackAcceptor loopbackAcceptor = null;
+            if (multiConfig.isLoopbackEnabled()) {
+                loopbackAcceptor = new LoopbackAcceptor(multiConfig, config.getString("fix.sessions.target-comp-id"));
+                loopbackAcceptor.start();
+            }
             
-            // 启动测试
             double messagesPerSecond = config.getDouble("test.messages-per-second");
             int durationSeconds = config.getInt("test.duration-seconds");
+            LoadProfile profile = LoadProfile.fromConfig(config, messagesPerSecond, durationSeconds);
+            boolean adaptive = config.hasPath("test.adaptive.enabled") && config.getBoolean("test.adaptive.enabled");
+            int sessionCount = config.getInt("fix.sessions.count");
             
+            // 创建请求跟踪器，embedded模式下延迟由TestReqID中回显的发送时间戳计算，
+            // 延迟和应答同时计入引擎的汇总指标。环容量按可能达到的最高速率估算
+            MultiSessionMetrics metrics = new MultiSessionMetrics();
+            int timeoutMillis = config.getInt("test.timeout-millis");
+            double peakRate = adaptive ? config.getDouble("test.adaptive.max-rate") : profile.getPeakRate();
+            PreciseRequestTracker requestTracker = new PreciseRequestTracker(timeoutMillis,
+                    multiConfig.getRingCapacity(peakRate, sessionCount), multiConfig.isEmbeddedTimestamps(), metrics);
+            
+            // 创建引擎管理器并建立会话，请求延迟由压测器记入请求跟踪器
+            MultiSessionEngineManager engineManager = new MultiSessionEngineManager(multiConfig, metrics);
+            engineManager.createMultipleSessions(
+                    config.getString("fix.sessions.base-sender-comp-id"),
+                    config.getString("fix.sessions.target-comp-id"),
+                    sessionCount);
+            
+            // 启动测试
             EnhancedLoadTester tester = new EnhancedLoadTester(engineManager, requestTracker, timeoutMillis, messagesPerSecond);
+            if (config.hasPath("test.session-selection")) {
+                tester.setSessionSelection(ActiveSessionRegistry.Strategy.fromName(config.getString("test.session-selection")));
+            }
             
             // 添加关闭钩子
+            LoopbackAcceptor acceptorToStop = loopbackAcceptor;
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 tester.stop();
+                engineManager.shutdown();
+                metrics.shutdown();
                 requestTracker.shutdown();
+                if (acceptorToStop != null) {
+                    acceptorToStop.stop();
+                }
             }));
             
-            // 开始测试
-            tester.startTest(durationSeconds);
+            // 开始测试，启用自适应速率时忽略固定速率和负载曲线
+            if (adaptive) {
+                tester.startAdaptiveTest(AimdRateController.fromConfig(config.getConfig("test.adaptive"), requestTracker, durationSeconds));
+            } else {
+                tester.startTest(profile);
+            }
             
         } catch (Exception e) {
             e.printStackTrace();
@@ -26,12 +26,9 @@ public class FixBenchmarkApplication {
             // 初始化FIX引擎管理器
             FixEngineManager engineManager = new FixEngineManager(benchmarkConfig, metricsCollector);
             
-            // 启动引擎
+            // 启动引擎，会话登录后返回
             engineManager.start();
             
-            // 等待连接建立
-            Thread.sleep(5000);
-            
             // 启动压力测试
             LoadTester loadTester = new LoadTester(engineManager, benchmarkConfig, metricsCollector);
             
@@ -0,0 +1,37 @@
+package com.fix.benchmark;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.engine.LoopbackAcceptor;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 独立运行的回环接收端，用于客户端与接收端分进程部署的闭环压测
+ */
+public class LoopbackAcceptorApplication {
+    public static void main(String[] args) {
+        try {
+            Config config = ConfigFactory.load();
+            MultiSessionConfig multiConfig = new MultiSessionConfig(config);
+            String targetCompId = config.getString("fix.sessions.target-comp-id");
+            
+            LoopbackAcceptor acceptor = new LoopbackAcceptor(multiConfig, targetCompId);
+            acceptor.start();
+            
+            // 添加关闭钩子
+            CountDownLatch shutdownLatch = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                acceptor.stop();
+                shutdownLatch.countDown();
+            }));
+            
+            shutdownLatch.await();
+        
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -1,12 +1,21 @@
 package com.fix.benchmark;
 
 import com.fix.benchmark.config.MultiSessionConfig;
-import com.fix.benchmark.engine.MultiSessionEngineManager;
+import com.fix.benchmark.engine.EngineSession;
+import com.fix.benchmark.engine.LoopbackAcceptor;
+import com.fix.benchmark.engine.SessionEngine;
+import com.fix.benchmark.engine.SessionEngines;
 import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.test.ClosedLoopDriver;
+import com.fix.benchmark.test.LoadProfile;
 import com.fix.benchmark.test.MultiSessionLoadTester;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public class MultiSessionBenchmarkApplication {
     public static void main(String[] args) {
         try {
@@ -14,24 +23,77 @@ public class MultiSessionBenchmarkApplication {
             MultiSessionConfig multiConfig = new MultiSessionConfig(config);
             MultiSessionMetrics metrics = new MultiSessionMetrics();
             
-            MultiSessionEngineManager engineManager = new MultiSessionEngineManager(multiConfig, metrics);
+            SessionEngine<?> engineManager = SessionEngines.create(multiConfig, metrics);
             
             // 获取配置
             String baseSenderCompId = config.getString("fix.sessions.base-sender-comp-id");
             String targetCompId = config.getString("fix.sessions.target-comp-id");
             int sessionCount = config.getInt("fix.sessions.count");
             int totalMessagesPerSecond = config.getInt("test.total-messages-per-second");
+            LoadProfile profile = LoadProfile.fromConfig(config, totalMessagesPerSecond, config.getInt("test.duration-seconds"));
+            
+            // 启动内置回环接收端
+            LoopbackAcceptor loopbackAcceptor = null;
+            if (multiConfig.isLoopbackEnabled()) {
+                loopbackAcceptor = new LoopbackAcceptor(multiConfig, targetCompId);
+                loopbackAcceptor.start();
+            }
+            
+            if (multiConfig.isClosedLoopEnabled()) {
+                try {
+                    runClosedLoop(engineManager, multiConfig, metrics, baseSenderCompId, targetCompId, sessionCount);
+                } finally {
+                    engineManager.shutdown();
+                    metrics.shutdown();
+                    if (loopbackAcceptor != null) {
+                        loopbackAcceptor.stop();
+                    }
+                }
+                return;
+            }
             
             // 启动测试
-            MultiSessionLoadTester tester = new MultiSessionLoadTester(engineManager, multiConfig, metrics);
-            tester.startMultiSessionTest(baseSenderCompId, targetCompId, sessionCount, totalMessagesPerSecond);
+            MultiSessionLoadTester tester = new MultiSessionLoadTester(engineManager, multiConfig, metrics,
+                    multiConfig.getRingCapacity(profile.getPeakRate(), sessionCount));
+            tester.startMultiSessionTest(baseSenderCompId, targetCompId, sessionCount, profile);
             
             // 添加关闭钩子
-            Runtime.getRuntime().addShutdownHook(new Thread(tester::stop));
+            LoopbackAcceptor acceptorToStop = loopbackAcceptor;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                tester.stop();
+                if (acceptorToStop != null) {
+                    acceptorToStop.stop();
+                }
+            }));
             
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
         }
     }
+    
+    /**
+     * 闭环模式: 等待全部会话登录后按配置的会话数和窗口大小依次测量
+     */
+    private static void runClosedLoop(SessionEngine<?> engineManager, MultiSessionConfig multiConfig,
+                                      MultiSessionMetrics metrics, String baseSenderCompId,
+                                      String targetCompId, int sessionCount) throws InterruptedException {
+        List<? extends CompletableFuture<? extends EngineSession>> futures =
+                engineManager.startSessions(baseSenderCompId, targetCompId, sessionCount);
+        engineManager.getStartupComplete().join();
+        
+        List<EngineSession> sessions = new ArrayList<>();
+        for (CompletableFuture<? extends EngineSession> future : futures) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                sessions.add(future.join());
+            }
+        }
+        
+        ClosedLoopDriver driver = new ClosedLoopDriver(sessions, multiConfig, metrics);
+        try {
+            driver.runSweep();
+        } finally {
+            driver.shutdown();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.fix.benchmark.codec;
+
+import quickfix.FieldMap;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.field.MsgType;
+
+/**
+ * 在原始FIX消息文本上按字段顺序查找指定tag，不解析成Message、不建立字段表、不分配对象。
+ * 用于在QuickFIX/J完整解析之前提取MsgType和TestReqID等少量字段。
+ */
+public final class FixFieldScanner {
+    
+    private static final char SOH = '\u0001';
+    
+    public static final int TAG_MSG_TYPE = 35;
+    public static final int TAG_TEST_REQ_ID = 112;
+    
+    private FixFieldScanner() {
+    }
+    
+    /**
+     * 从from(必须位于字段开头)起查找tag，返回其值的起始位置，找不到时返回-1
+     */
+    public static int valueStart(CharSequence message, int tag, int from) {
+        int length = message.length();
+        int i = from;
+        while (i < length) {
+            int current = 0;
+            int j = i;
+            char c;
+            while (j < length && (c = message.charAt(j)) != '=') {
+                current = current * 10 + (c - '0');
+                j++;
+            }
+            if (j >= length) {
+                return -1;
+            }
+            if (current == tag) {
+                return j + 1;
+            }
+            j++;
+            while (j < length && message.charAt(j) != SOH) {
+                j++;
+            }
+            i = j + 1;
+        }
+        return -1;
+    }
+    
+    /**
+     * 值的结束位置(不含SOH)
+     */
+    public static int valueEnd(CharSequence message, int valueStart) {
+        int length = message.length();
+        int i = valueStart;
+        while (i < length && message.charAt(i) != SOH) {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * 单字符MsgType的值(管理消息均为单字符)，多字符或找不到时返回0。
+     * MsgType紧跟在BeginString和BodyLength之后，查找只扫描消息开头几个字段
+     */
+    public static char msgType(CharSequence message) {
+        int start = valueStart(message, TAG_MSG_TYPE, 0);
+        if (start < 0 || start + 1 >= message.length() || message.charAt(start + 1) != SOH) {
+            return 0;
+        }
+        return message.charAt(start);
+    }
+    
+    /**
+     * tag的值，找不到时返回null
+     */
+    public static String value(String message, int tag) {
+        int start = valueStart(message, tag, 0);
+        return start < 0 ? null : message.substring(start, valueEnd(message, start));
+    }
+    
+    /**
+     * 已解析消息上的对应查找：Heartbeat所带的TestReqID，其他消息或不带TestReqID时返回null。
+     * 只读取字段表中已有的值，不经过MessageCracker，也不创建字段对象
+     */
+    public static String heartbeatTestReqId(Message message) {
+        FieldMap header = message.getHeader();
+        try {
+            if (!header.isSetField(TAG_MSG_TYPE) || !MsgType.HEARTBEAT.equals(header.getString(TAG_MSG_TYPE))
+                    || !message.isSetField(TAG_TEST_REQ_ID)) {
+                return null;
+            }
+            return message.getString(TAG_TEST_REQ_ID);
+        } catch (FieldNotFound e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
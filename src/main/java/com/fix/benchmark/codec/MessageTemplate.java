@@ -0,0 +1,229 @@
+package com.fix.benchmark.codec;
+
+import quickfix.SessionID;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 预编码的FIX消息模板。
+ * <p>
+ * 构造时把BeginString、MsgType、SenderCompID/TargetCompID以及静态消息体渲染成字节，
+ * 每条消息只在复用的缓冲区中填写MsgSeqNum(34)、SendingTime(52)、一个可变字段(如TestReqID 112)，
+ * 再补上BodyLength(9)和CheckSum(10)。编码过程不创建Message/Field对象。
+ * <p>
+ * 布局: [8=..|9=] [BodyLength] [35=..|34=] seq [|49=..|52=] time [|56=..|] [tag=] value [|] [静态字段] [10=xxx|]。
+ * 消息体从固定位置开始写，BodyLength写完后向前对齐，整条消息在缓冲区中连续。
+ * <p>
+ * 非线程安全，调用方需在发送序号锁内使用。
+ */
+public class MessageTemplate {
+    
+    private static final byte SOH = 1;
+    // BodyLength最多6位数字加SOH
+    private static final int BODY_LENGTH_RESERVE = 7;
+    // SendingTime: yyyyMMdd-HH:mm:ss.SSS
+    private static final int TIMESTAMP_LENGTH = 21;
+    private static final int TRAILER_LENGTH = 7;
+    
+    private final byte[] beginString;
+    private final byte[] seqPrefix;
+    private final byte[] timePrefix;
+    private final byte[] variablePrefix;
+    private final byte[] staticBody;
+    private final boolean hasVariable;
+    private final int bodyStart;
+    
+    private byte[] buffer;
+    private int offset;
+    private int length;
+    
+    // 秒级时间戳缓存，只有跨秒时才重新计算日期部分
+    private long cachedEpochSecond = Long.MIN_VALUE;
+    private final byte[] cachedSecondText = new byte[17];
+    
+    /**
+     * @param sessionID     会话，提供BeginString和发送/接收方CompID
+     * @param msgType       MsgType(35)
+     * @param variableTag   每条消息填写的字段，例如TestReqID(112)或ClOrdID(11)；0表示没有可变字段
+     * @param staticFields  可变字段之后的静态字段，形如"55=IBM|54=1|"，以SOH分隔并以SOH结尾，可为空
+     */
+    public MessageTemplate(SessionID sessionID, String msgType, int variableTag, String staticFields) {
+        this.beginString = ascii("8=" + sessionID.getBeginString() + "\u00019=");
+        this.seqPrefix = ascii("35=" + msgType + "\u000134=");
+        this.timePrefix = ascii("\u000149=" + sessionID.getSenderCompID() + "\u000152=");
+        this.hasVariable = variableTag > 0;
+        this.variablePrefix = ascii("\u000156=" + sessionID.getTargetCompID() + "\u0001" + (hasVariable ? variableTag + "=" : ""));
+        this.staticBody = ascii(staticFields == null ? "" : staticFields.replace('|', '\u0001'));
+        this.bodyStart = beginString.length + BODY_LENGTH_RESERVE;
+        this.buffer = new byte[bodyStart + seqPrefix.length + timePrefix.length + variablePrefix.length
+                + staticBody.length + 10 + TIMESTAMP_LENGTH + 64 + 1 + TRAILER_LENGTH];
+    }
+    
+    /**
+     * TestRequest(35=1)，每条消息填写TestReqID
+     */
+    public static MessageTemplate testRequest(SessionID sessionID) {
+        return new MessageTemplate(sessionID, "1", 112, null);
+    }
+    
+    /**
+     * 编码一条消息，结果位于{@link #getBuffer()}的[offset, offset+length)区间。
+     * 没有可变字段的模板忽略variableValue，可传null
+     *
+     * @return 消息长度
+     */
+    public int encode(int msgSeqNum, long epochMillis, CharSequence variableValue) {
+        ensureCapacity(hasVariable ? variableValue.length() : 0);
+        byte[] buf = buffer;
+        
+        int pos = bodyStart;
+        pos = put(buf, pos, seqPrefix);
+        pos = putInt(buf, pos, msgSeqNum);
+        pos = put(buf, pos, timePrefix);
+        pos = putTimestamp(buf, pos, epochMillis);
+        pos = put(buf, pos, variablePrefix);
+        if (hasVariable) {
+            for (int i = 0; i < variableValue.length(); i++) {
+                buf[pos++] = (byte) variableValue.charAt(i);
+            }
+            buf[pos++] = SOH;
+        }
+        pos = put(buf, pos, staticBody);
+        int bodyEnd = pos;
+        
+        // BodyLength右对齐写在消息体之前，再把BeginString拷到它前面
+        int start = bodyStart - 1;
+        buf[start] = SOH;
+        int bodyLength = bodyEnd - bodyStart;
+        do {
+            buf[--start] = (byte) ('0' + bodyLength % 10);
+            bodyLength /= 10;
+        } while (bodyLength > 0);
+        start -= beginString.length;
+        System.arraycopy(beginString, 0, buf, start, beginString.length);
+        
+        int checksum = 0;
+        for (int i = start; i < bodyEnd; i++) {
+            checksum += buf[i];
+        }
+        checksum &= 0xFF;
+        buf[pos++] = '1';
+        buf[pos++] = '0';
+        buf[pos++] = '=';
+        buf[pos++] = (byte) ('0' + checksum / 100);
+        buf[pos++] = (byte) ('0' + checksum / 10 % 10);
+        buf[pos++] = (byte) ('0' + checksum % 10);
+        buf[pos++] = SOH;
+        
+        this.offset = start;
+        this.length = pos - start;
+        return length;
+    }
+    
+    public byte[] getBuffer() {
+        return buffer;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public int getLength() {
+        return length;
+    }
+    
+    /**
+     * 最近一次编码结果的字符串形式，供只接受String的发送接口使用
+     */
+    public String toMessageString() {
+        return new String(buffer, offset, length, StandardCharsets.ISO_8859_1);
+    }
+    
+    private void ensureCapacity(int variableLength) {
+        int required = bodyStart + seqPrefix.length + 10 + timePrefix.length + TIMESTAMP_LENGTH
+                + variablePrefix.length + variableLength + 1 + staticBody.length + TRAILER_LENGTH;
+        if (required > buffer.length) {
+            buffer = new byte[required * 2];
+        }
+    }
+    
+    private int putTimestamp(byte[] buf, int pos, long epochMillis) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        if (epochSecond != cachedEpochSecond) {
+            renderSecond(epochSecond);
+            cachedEpochSecond = epochSecond;
+        }
+        System.arraycopy(cachedSecondText, 0, buf, pos, cachedSecondText.length);
+        pos += cachedSecondText.length;
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        buf[pos++] = '.';
+        buf[pos++] = (byte) ('0' + millis / 100);
+        buf[pos++] = (byte) ('0' + millis / 10 % 10);
+        buf[pos++] = (byte) ('0' + millis % 10);
+        return pos;
+    }
+    
+    /**
+     * 按UTC渲染yyyyMMdd-HH:mm:ss，日期换算使用civil-from-days算法，不创建java.time对象
+     */
+    private void renderSecond(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, 86400L);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86400L);
+        
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        
+        byte[] t = cachedSecondText;
+        put4(t, 0, year);
+        put2(t, 4, month);
+        put2(t, 6, day);
+        t[8] = '-';
+        put2(t, 9, secondOfDay / 3600);
+        t[11] = ':';
+        put2(t, 12, secondOfDay / 60 % 60);
+        t[14] = ':';
+        put2(t, 15, secondOfDay % 60);
+    }
+    
+    private static void put2(byte[] buf, int pos, int value) {
+        buf[pos] = (byte) ('0' + value / 10);
+        buf[pos + 1] = (byte) ('0' + value % 10);
+    }
+    
+    private static void put4(byte[] buf, int pos, int value) {
+        put2(buf, pos, value / 100);
+        put2(buf, pos + 2, value % 100);
+    }
+    
+    private static int put(byte[] buf, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        return pos + bytes.length;
+    }
+    
+    private static int putInt(byte[] buf, int pos, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative MsgSeqNum " + value);
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+    
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.fix.benchmark.codec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionState;
+import quickfix.SystemTime;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+/**
+ * 绕过Message对象和QuickFIX/J序列化，按模板编码后直接交给会话的Responder发送。
+ * <p>
+ * 与Session.send一样在发送序号锁内取序号、持久化、记录日志并递增序号，
+ * 因此可以与引擎自身发送的心跳等管理消息交错而不产生序号冲突。
+ * 不经过Application.toAdmin/toApp回调。
+ * <p>
+ * Responder只接受String，每条消息仍会创建一个String，其余对象均复用。
+ * <p>
+ * 会话状态通过反射读取QuickFIX/J的私有字段state和persistMessages，
+ * 字段在升级后不存在或模块设置禁止访问时，{@link #create}返回null，调用方改用Session.send。
+ */
+public class RawSessionSender {
+    private static final Logger logger = LoggerFactory.getLogger(RawSessionSender.class);
+    
+    private static final Field STATE_FIELD;
+    private static final Field PERSIST_FIELD;
+    private static final String UNAVAILABLE_REASON;
+    
+    static {
+        Field state = null;
+        Field persist = null;
+        String reason = null;
+        try {
+            state = Session.class.getDeclaredField("state");
+            state.setAccessible(true);
+            persist = Session.class.getDeclaredField("persistMessages");
+            persist.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            state = null;
+            persist = null;
+            reason = e.toString();
+        }
+        STATE_FIELD = state;
+        PERSIST_FIELD = persist;
+        UNAVAILABLE_REASON = reason;
+        if (reason != null) {
+            logger.error("Template send path unavailable with this QuickFIX/J version, "
+                    + "cannot access quickfix.Session.state/persistMessages ({}); falling back to Session.send", reason);
+        }
+    }
+    
+    private final Session session;
+    private final SessionState state;
+    private final boolean persistMessages;
+    private final MessageTemplate template;
+    
+    private RawSessionSender(Session session, SessionState state, boolean persistMessages, MessageTemplate template) {
+        this.session = session;
+        this.state = state;
+        this.persistMessages = persistMessages;
+        this.template = template;
+    }
+    
+    /**
+     * 为会话创建发送器
+     *
+     * @return 无法访问会话内部状态时返回null，原因已在日志中输出
+     */
+    public static RawSessionSender create(Session session, MessageTemplate template) {
+        if (UNAVAILABLE_REASON != null) {
+            return null;
+        }
+        try {
+            SessionState state = (SessionState) STATE_FIELD.get(session);
+            if (state == null) {
+                throw new IllegalStateException("quickfix.Session.state is null");
+            }
+            return new RawSessionSender(session, state, PERSIST_FIELD.getBoolean(session), template);
+        } catch (IllegalAccessException | RuntimeException e) {
+            logger.error("Cannot access session state of {} ({}); falling back to Session.send",
+                    session.getSessionID(), e.toString());
+            return null;
+        }
+    }
+    
+    /**
+     * 用给定的可变字段值编码并发送一条消息
+     *
+     * @return 未登录或没有连接时返回false
+     */
+    public boolean send(CharSequence variableValue) throws IOException {
+        if (!session.isLoggedOn()) {
+            return false;
+        }
+        Responder responder = session.getResponder();
+        if (responder == null) {
+            return false;
+        }
+        
+        state.lockSenderMsgSeqNum();
+        try {
+            int msgSeqNum = state.getNextSenderMsgSeqNum();
+            long now = SystemTime.currentTimeMillis();
+            template.encode(msgSeqNum, now, variableValue);
+            String message = template.toMessageString();
+            
+            if (persistMessages) {
+                state.set(msgSeqNum, message);
+            }
+            session.getLog().onOutgoing(message);
+            state.incrNextSenderMsgSeqNum();
+            boolean sent = responder.send(message);
+            if (sent) {
+                // 与Session.send一致，有业务消息发出时引擎不再发送心跳
+                state.setLastSentTime(now);
+            }
+            return sent;
+        } finally {
+            state.unlockSenderMsgSeqNum();
+        }
+    }
+    
+    public Session getSession() {
+        return session;
+    }
+}
\ No newline at end of file
@@ -10,6 +10,13 @@ public class BenchmarkConfig {
     private final String senderCompId;
     private final String targetCompId;
     
+    // 持久化配置
+    private final String persistenceStore;
+    private final String persistenceLog;
+    private final String syncPolicy;
+    private final int syncEveryN;
+    private final long syncIntervalMicros;
+    
     // 测试配置
     private final int threads;
     private final int messagesPerSecond;
@@ -29,6 +36,13 @@ public class BenchmarkConfig {
         this.senderCompId = config.getString("fix.sender-comp-id");
         this.targetCompId = config.getString("fix.target-comp-id");
         
+        // 持久化配置
+        this.persistenceStore = config.getString("fix.persistence.store");
+        this.persistenceLog = config.getString("fix.persistence.log");
+        this.syncPolicy = config.getString("fix.persistence.sync.policy");
+        this.syncEveryN = config.getInt("fix.persistence.sync.every-n");
+        this.syncIntervalMicros = config.getLong("fix.persistence.sync.interval-micros");
+        
         // 测试配置
         this.threads = config.getInt("test.threads");
         this.messagesPerSecond = config.getInt("test.messages-per-second");
@@ -45,6 +59,11 @@ public class BenchmarkConfig {
     public String getConfigFile() { return configFile; }
     public String getSenderCompId() { return senderCompId; }
     public String getTargetCompId() { return targetCompId; }
+    public String getPersistenceStore() { return persistenceStore; }
+    public String getPersistenceLog() { return persistenceLog; }
+    public String getSyncPolicy() { return syncPolicy; }
+    public int getSyncEveryN() { return syncEveryN; }
+    public long getSyncIntervalMicros() { return syncIntervalMicros; }
     public int getThreads() { return threads; }
     public int getMessagesPerSecond() { return messagesPerSecond; }
     public int getTestDurationSeconds() { return testDurationSeconds; }
@@ -1,11 +1,17 @@
 package com.fix.benchmark.config;
 
+import com.fix.benchmark.metrics.PreciseRequestTracker;
 import com.typesafe.config.Config;
+import quickfix.FixVersions;
+import quickfix.SessionID;
 import quickfix.SessionSettings;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -17,9 +23,40 @@ public class MultiSessionConfig {
         this.config = config;
     }
     
+    public static String senderCompId(String baseSenderCompId, int sessionId) {
+        return baseSenderCompId + "_" + String.format("%04d", sessionId);
+    }
+    
     public String generateSessionConfig(String baseSenderCompId, String targetCompId, int sessionId) {
-        String senderCompId = baseSenderCompId + "_" + String.format("%04d", sessionId);
+        String senderCompId = senderCompId(baseSenderCompId, sessionId);
+        
+        SessionSettings settings = new SessionSettings();
+        addSession(settings, senderCompId, targetCompId);
         
+        return saveSessionConfig(senderCompId, settings);
+    }
+    
+    /**
+     * 生成包含全部会话的单一配置，供共享Initiator模式使用。
+     * 会话标记为动态会话，Initiator启动时不连接，由节奏控制器逐个创建。
+     */
+    public SessionSettings generateSharedSessionSettings(String baseSenderCompId, String targetCompId, int count) {
+        SessionSettings settings = new SessionSettings();
+        for (int i = 1; i <= count; i++) {
+            String senderCompId = senderCompId(baseSenderCompId, i);
+            addSession(settings, senderCompId, targetCompId);
+            settings.setBool(new SessionID(FixVersions.BEGINSTRING_FIX44, senderCompId, targetCompId), "DynamicSession", true);
+        }
+        return settings;
+    }
+    
+    private void addSession(SessionSettings settings, String senderCompId, String targetCompId) {
+        SessionID sessionID = new SessionID(FixVersions.BEGINSTRING_FIX44, senderCompId, targetCompId);
+        createSessionProperties(senderCompId, targetCompId)
+                .forEach((key, value) -> settings.setString(sessionID, (String) key, (String) value));
+    }
+    
+    private Properties createSessionProperties(String senderCompId, String targetCompId) {
         Properties props = new Properties();
         props.setProperty("ConnectionType", "initiator");
         props.setProperty("ReconnectInterval", "5");
@@ -28,28 +65,245 @@ public class MultiSessionConfig {
         props.setProperty("StartTime", "00:00:00");
         props.setProperty("EndTime", "23:59:59");
         props.setProperty("HeartBtInt", "30");
-        props.setProperty("SocketConnectHost", config.getString("fix.server.host"));
-        props.setProperty("SocketConnectPort", config.getString("fix.server.port"));
+        props.setProperty("SocketConnectHost", getServerHost());
+        props.setProperty("SocketConnectPort", getServerPort());
         props.setProperty("SocketTcpNoDelay", "Y");
         props.setProperty("SocketSendBufferSize", "65536");
         props.setProperty("SocketReceiveBufferSize", "65536");
         
+        // 回环模式下每次运行都从序号1开始，避免与上次运行的存储产生序号缺口
+        if (isLoopbackEnabled()) {
+            props.setProperty("ResetOnLogon", "Y");
+        }
+        
         // 会话特定配置
         props.setProperty("BeginString", "FIX.4.4");
         props.setProperty("SenderCompID", senderCompId);
         props.setProperty("TargetCompID", targetCompId);
         
-        return saveSessionConfig(senderCompId, props);
+        return props;
+    }
+    
+    public String getServerHost() {
+        return isLoopbackEnabled() ? "127.0.0.1" : config.getString("fix.server.host");
+    }
+    
+    public String getServerPort() {
+        return isLoopbackEnabled() ? String.valueOf(getLoopbackPort()) : config.getString("fix.server.port");
+    }
+    
+    public boolean isLoopbackEnabled() {
+        return getBoolean("fix.loopback.enabled", false);
+    }
+    
+    public int getLoopbackPort() {
+        return getInt("fix.loopback.port", 9876);
+    }
+    
+    public long getLoopbackServiceTimeMicros() {
+        return getLong("fix.loopback.service-time-micros", 0L);
+    }
+    
+    public boolean isLoopbackThreaded() {
+        return getBoolean("fix.loopback.threaded", true);
+    }
+    
+    /**
+     * Initiator布局: per-session(每会话一个SocketInitiator), shared(共享SocketInitiator), shared-threaded(共享ThreadedSocketInitiator)
+     */
+    public String getInitiatorMode() {
+        return getString("fix.engine.initiator-mode", "per-session");
+    }
+    
+    /**
+     * 压测引擎: quickfixj | nio
+     */
+    public String getEngineType() {
+        return getString("fix.engine.type", "quickfixj");
+    }
+    
+    /**
+     * NIO引擎的selector线程数，0表示每个CPU核一个
+     */
+    public int getNioSelectorThreads() {
+        int threads = getInt("fix.engine.nio.selector-threads", 0);
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+    
+    /**
+     * NIO引擎每个会话的收/发缓冲区大小(直接内存)
+     */
+    public int getNioBufferSize() {
+        return getInt("fix.engine.nio.buffer-size", 8192);
+    }
+    
+    /**
+     * 共享Initiator入站事件队列容量(QuickFIX/J默认10000)
+     */
+    public int getQueueCapacity() {
+        return getInt("fix.engine.queue-capacity", 10000);
+    }
+    
+    /**
+     * 每秒发起的连接数，0表示不限制
+     */
+    public double getRampUpConnectionsPerSecond() {
+        return getDouble("fix.ramp-up.connections-per-second", 0.0);
+    }
+    
+    /**
+     * 同时进行中的登录数上限，0表示不限制
+     */
+    public int getRampUpMaxInFlight() {
+        return getInt("fix.ramp-up.max-in-flight", 0);
+    }
+    
+    public long getRampUpJitterMillis() {
+        return getLong("fix.ramp-up.jitter-millis", 0L);
+    }
+    
+    public int getRampUpMaxRetries() {
+        return getInt("fix.ramp-up.max-retries", 0);
+    }
+    
+    public long getRampUpBackoffMillis() {
+        return getLong("fix.ramp-up.backoff-millis", 1000L);
+    }
+    
+    public long getRampUpBackoffMaxMillis() {
+        return getLong("fix.ramp-up.backoff-max-millis", 30000L);
+    }
+    
+    public long getLogonTimeoutMillis() {
+        return getLong("fix.ramp-up.logon-timeout-millis", 30000L);
+    }
+    
+    /**
+     * 消息存储: file | memory | null | mapped | durable
+     */
+    public String getStoreMode() {
+        return getString("fix.persistence.store", "file");
+    }
+    
+    /**
+     * 会话日志: screen | file | async | none
+     */
+    public String getLogMode() {
+        return getString("fix.persistence.log", "none");
+    }
+    
+    /**
+     * durable存储的刷盘策略: none | every-n | interval | every-message
+     */
+    public String getSyncPolicy() {
+        return getString("fix.persistence.sync.policy", "interval");
+    }
+    
+    public int getSyncEveryN() {
+        return getInt("fix.persistence.sync.every-n", 64);
+    }
+    
+    public long getSyncIntervalMicros() {
+        return getLong("fix.persistence.sync.interval-micros", 1000L);
+    }
+    
+    /**
+     * TestRequest发送路径: session(构造Message经Session.send) | template(预编码模板直接写Responder)
+     */
+    public String getSendPath() {
+        return getString("test.send-path", "session");
+    }
+    
+    /**
+     * 在途TestRequest的超时时间，超时未应答的请求由请求环的时间轮检测并计为超时
+     */
+    public long getRequestTimeoutMillis() {
+        return getLong("test.timeout-millis", 5000L);
+    }
+    
+    /**
+     * 每会话请求环的容量。配置test.ring-capacity(2的幂)时直接使用，
+     * 否则按峰值总速率、超时时间和会话数估算
+     */
+    public int getRingCapacity(double peakRate, int sessions) {
+        int configured = getInt("test.ring-capacity", 0);
+        return configured > 0 ? configured
+                : PreciseRequestTracker.ringCapacity(peakRate, getRequestTimeoutMillis(), sessions);
+    }
+    
+    /**
+     * 延迟测量方式为embedded时发送时间编码进TestReqID，应答回显后直接算出延迟，不保存发送时间
+     */
+    public boolean isEmbeddedTimestamps() {
+        return "embedded".equals(getString("test.latency-mode", "ring"));
+    }
+    
+    /**
+     * 闭环模式: 每个会话保持固定数量的在途请求，代替按速率发送
+     */
+    public boolean isClosedLoopEnabled() {
+        return getBoolean("test.closed-loop.enabled", false);
+    }
+    
+    /**
+     * 依次测试的每会话在途请求数K
+     */
+    public List<Integer> getClosedLoopWindows() {
+        return config.hasPath("test.closed-loop.windows")
+                ? config.getIntList("test.closed-loop.windows")
+                : Arrays.asList(1, 2, 4, 8, 16);
+    }
+    
+    /**
+     * 依次测试的会话数，为空时使用全部已连接会话
+     */
+    public List<Integer> getClosedLoopSessionCounts() {
+        return config.hasPath("test.closed-loop.session-counts")
+                ? config.getIntList("test.closed-loop.session-counts")
+                : Collections.emptyList();
+    }
+    
+    public int getClosedLoopStepSeconds() {
+        return getInt("test.closed-loop.step-seconds", 30);
+    }
+    
+    public int getClosedLoopWarmupSeconds() {
+        return getInt("test.closed-loop.warmup-seconds", 5);
+    }
+    
+    public long getClosedLoopTimeoutMillis() {
+        return getLong("test.closed-loop.timeout-millis", 5000L);
+    }
+    
+    // 可选配置项，缺省时使用默认值
+    private String getString(String path, String defaultValue) {
+        return config.hasPath(path) ? config.getString(path) : defaultValue;
+    }
+    
+    private boolean getBoolean(String path, boolean defaultValue) {
+        return config.hasPath(path) ? config.getBoolean(path) : defaultValue;
+    }
+    
+    private int getInt(String path, int defaultValue) {
+        return config.hasPath(path) ? config.getInt(path) : defaultValue;
+    }
+    
+    private long getLong(String path, long defaultValue) {
+        return config.hasPath(path) ? config.getLong(path) : defaultValue;
+    }
+    
+    private double getDouble(String path, double defaultValue) {
+        return config.hasPath(path) ? config.getDouble(path) : defaultValue;
     }
     
-    private String saveSessionConfig(String senderCompId, Properties props) {
+    private String saveSessionConfig(String senderCompId, SessionSettings settings) {
         try {
             File configDir = new File("./config/sessions");
             configDir.mkdirs();
             
             File configFile = new File(configDir, senderCompId + ".cfg");
             try (OutputStream output = new FileOutputStream(configFile)) {
-                props.store(output, "Auto-generated session config for " + senderCompId);
+                settings.toStream(output);
             }
             
             return configFile.getAbsolutePath();
@@ -11,6 +11,17 @@ public class StartRequest {
     private int durationSeconds = 60;
     private int timeoutMillis = 5000;
     private int warmupSeconds = 10;
+    
+    // fixed: 按messagesPerSecond运行durationSeconds; search: 搜索满足SLO的最大速率
+    private String mode = "fixed";
+    private double sloP99Millis = 10.0;
+    private double maxTimeoutRate = 0.1;  // 百分比
+    private int searchMinRate = 100;
+    private int searchMaxRate = 100000;
+    private double searchResolution = 0.05;
+    private int maxTrials = 20;
+    private int trialWarmupSeconds = 2;
+    private int trialSeconds = 10;
 }
 
 @Data
@@ -2,6 +2,7 @@ package com.fix.benchmark.dto;
 
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -62,6 +63,7 @@ public class BenchmarkReport {
     private LatencyStats latency;
     private ConnectionStats connections;
     private SessionDetails sessionDetails;
+    private SaturationReport saturation;
 }
 
 @Data
@@ -103,4 +105,24 @@ public class SessionReport {
     private long messagesReceived;
     private double responseRate;
     private double avgLatencyMs;
+}
+
+@Data
+public class SaturationReport {
+    private Double kneeRate;  // 没有满足SLO的速率时为null
+    private Double kneeP99Ms;
+    private boolean saturated;  // false表示直到速率上限都满足SLO
+    private List<CurvePoint> curve;
+}
+
+@Data
+public class CurvePoint {
+    private double offeredRate;
+    private double achievedRate;
+    private double p50Ms;
+    private double p99Ms;
+    private double p999Ms;
+    private double maxMs;
+    private double timeoutRate;
+    private boolean passed;
 }
\ No newline at end of file
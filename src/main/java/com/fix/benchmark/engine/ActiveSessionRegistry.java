@@ -0,0 +1,271 @@
+package com.fix.benchmark.engine;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已登录会话的索引，由会话的登录/登出回调维护，发送路径按策略从中选取会话。
+ * <p>
+ * 活跃会话保存在数组的前size个位置，登录时追加，登出时用最后一个元素填补空位，增删都是O(1)。
+ * 写入在锁内进行，选取不加锁、不分配对象: 先读volatile的size再读数组，登出并发时可能读到刚被移走的空位，
+ * 此时重新选取；也可能选中刚登出的会话，发送会失败并计入统计。选取代价与会话数无关。
+ * <p>
+ * 所有注册过的会话另按注册顺序保存，供粘性哈希使用: 键先映射到固定的注册位置，
+ * 该会话在线时总是选中它，只有它离线时才临时落到其他活跃会话上。
+ */
+public class ActiveSessionRegistry<S extends EngineSession> {
+    private static final int INITIAL_CAPACITY = 16;
+    // 加权选取的拒绝采样次数上限，超过后退化为均匀选取
+    private static final int MAX_WEIGHTED_ATTEMPTS = 64;
+    
+    /**
+     * 会话选取策略
+     */
+    public enum Strategy {
+        ROUND_ROBIN("round-robin"),
+        RANDOM("random"),
+        WEIGHTED("weighted"),
+        STICKY_HASH("sticky-hash");
+        
+        private final String configName;
+        
+        Strategy(String configName) {
+            this.configName = configName;
+        }
+        
+        public static Strategy fromName(String name) {
+            for (Strategy strategy : values()) {
+                if (strategy.configName.equals(name)) {
+                    return strategy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown session selection strategy: " + name);
+        }
+        
+        @Override
+        public String toString() {
+            return configName;
+        }
+    }
+    
+    private final Object lock = new Object();
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    
+    // 以下数组只在持有lock时修改，整体替换时先填好再发布
+    private volatile EngineSession[] active = new EngineSession[INITIAL_CAPACITY];
+    private volatile double[] weights = new double[INITIAL_CAPACITY];
+    private volatile int size;
+    private volatile EngineSession[] registered = new EngineSession[INITIAL_CAPACITY];
+    private volatile int registeredCount;
+    private volatile double maxWeight = 1.0;
+    
+    // 会话 -> 在active中的位置，只在持有lock时访问
+    private final Map<EngineSession, Integer> activeIndex = new IdentityHashMap<>();
+    private final Map<EngineSession, Double> weightOf = new IdentityHashMap<>();
+    
+    /**
+     * 登记会话，建立会话时调用一次；决定粘性哈希的固定位置
+     */
+    public void register(S session) {
+        synchronized (lock) {
+            if (weightOf.containsKey(session)) {
+                return;
+            }
+            weightOf.put(session, 1.0);
+            EngineSession[] current = registered;
+            int count = registeredCount;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, count * 2);
+            }
+            current[count] = session;
+            registered = current;
+            registeredCount = count + 1;
+        }
+    }
+    
+    /**
+     * 设置加权选取时的权重，默认1
+     */
+    public void setWeight(S session, double weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Session weight must be positive: " + weight);
+        }
+        synchronized (lock) {
+            weightOf.put(session, weight);
+            Integer index = activeIndex.get(session);
+            if (index != null) {
+                weights[index] = weight;
+            }
+            if (weight > maxWeight) {
+                maxWeight = weight;
+            }
+        }
+    }
+    
+    /**
+     * 会话登录或登出时由会话的连接回调调用
+     */
+    public void update(S session, boolean connected) {
+        if (connected) {
+            activate(session);
+        } else {
+            deactivate(session);
+        }
+    }
+    
+    private void activate(S session) {
+        synchronized (lock) {
+            if (activeIndex.containsKey(session)) {
+                return;
+            }
+            register(session);
+            int n = size;
+            EngineSession[] sessions = active;
+            double[] sessionWeights = weights;
+            if (n == sessions.length) {
+                sessions = Arrays.copyOf(sessions, n * 2);
+                sessionWeights = Arrays.copyOf(sessionWeights, n * 2);
+            }
+            sessions[n] = session;
+            sessionWeights[n] = weightOf.get(session);
+            active = sessions;
+            weights = sessionWeights;
+            activeIndex.put(session, n);
+            // size最后写入，读到新size的线程一定能看到新元素
+            size = n + 1;
+        }
+    }
+    
+    private void deactivate(S session) {
+        synchronized (lock) {
+            Integer index = activeIndex.remove(session);
+            if (index == null) {
+                return;
+            }
+            int last = size - 1;
+            EngineSession[] sessions = active;
+            if (index != last) {
+                EngineSession moved = sessions[last];
+                sessions[index] = moved;
+                weights[index] = weights[last];
+                activeIndex.put(moved, index);
+            }
+            size = last;
+            sessions[last] = null;
+        }
+    }
+    
+    /**
+     * 按策略选取一个活跃会话，没有活跃会话时返回null。key只用于粘性哈希，其他策略忽略
+     */
+    public S select(Strategy strategy, long key) {
+        switch (strategy) {
+            case ROUND_ROBIN:
+                return roundRobin();
+            case RANDOM:
+                return random();
+            case WEIGHTED:
+                return weighted();
+            case STICKY_HASH:
+                return sticky(key);
+            default:
+                throw new IllegalArgumentException("Unknown session selection strategy: " + strategy);
+        }
+    }
+    
+    public S roundRobin() {
+        while (true) {
+            int n = size;
+            if (n == 0) {
+                return null;
+            }
+            S session = at(active, Integer.remainderUnsigned(roundRobin.getAndIncrement(), n));
+            if (session != null) {
+                return session;
+            }
+        }
+    }
+    
+    public S random() {
+        while (true) {
+            int n = size;
+            if (n == 0) {
+                return null;
+            }
+            S session = at(active, ThreadLocalRandom.current().nextInt(n));
+            if (session != null) {
+                return session;
+            }
+        }
+    }
+    
+    /**
+     * 按权重选取: 均匀选一个位置，以weight/maxWeight的概率接受，期望尝试次数只取决于权重分布
+     */
+    public S weighted() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double max = maxWeight;
+        for (int attempt = 0; attempt < MAX_WEIGHTED_ATTEMPTS; attempt++) {
+            int n = size;
+            if (n == 0) {
+                return null;
+            }
+            int index = random.nextInt(n);
+            EngineSession[] sessions = active;
+            double[] sessionWeights = weights;
+            if (index < sessionWeights.length && random.nextDouble() * max < sessionWeights[index]) {
+                S session = at(sessions, index);
+                if (session != null) {
+                    return session;
+                }
+            }
+        }
+        return random();
+    }
+    
+    /**
+     * 同一个键在对应会话在线期间总是选中同一个会话
+     */
+    public S sticky(long key) {
+        int hash = mix(key);
+        int count = registeredCount;
+        if (count > 0) {
+            S home = at(registered, Integer.remainderUnsigned(hash, count));
+            if (home != null && home.isConnected()) {
+                return home;
+            }
+        }
+        while (true) {
+            int n = size;
+            if (n == 0) {
+                return null;
+            }
+            S session = at(active, Integer.remainderUnsigned(hash, n));
+            if (session != null) {
+                return session;
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getRegisteredCount() {
+        return registeredCount;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private S at(EngineSession[] sessions, int index) {
+        return index < sessions.length ? (S) sessions[index] : null;
+    }
+    
+    // 打散连续的键，避免相邻键落在相邻会话上
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
\ No newline at end of file
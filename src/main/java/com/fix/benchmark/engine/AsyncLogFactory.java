@@ -0,0 +1,160 @@
+package com.fix.benchmark.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.SessionID;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步日志工厂：会话线程只把日志事件放入有界队列，由后台线程写入被包装的日志。
+ * 所有会话共享一个写线程；队列满时丢弃事件而不是阻塞发送路径，丢弃数量在关闭时输出。
+ */
+public class AsyncLogFactory implements LogFactory {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLogFactory.class);
+    
+    private static final int QUEUE_CAPACITY = 65536;
+    
+    private static final int INCOMING = 0;
+    private static final int OUTGOING = 1;
+    private static final int EVENT = 2;
+    private static final int ERROR_EVENT = 3;
+    
+    private static final BlockingQueue<LogEntry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final LongAdder dropped = new LongAdder();
+    private static Thread writer;
+    private static volatile boolean running;
+    
+    private final LogFactory delegate;
+    
+    public AsyncLogFactory(LogFactory delegate) {
+        this.delegate = delegate;
+        startWriter();
+    }
+    
+    @Override
+    public Log create(SessionID sessionID) {
+        return new AsyncLog(delegate.create(sessionID));
+    }
+    
+    private static synchronized void startWriter() {
+        if (writer == null) {
+            running = true;
+            writer = new Thread(AsyncLogFactory::drain, "fix-async-log");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+    
+    private static void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                LogEntry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    entry.writeTo();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error writing async log entry", e);
+            }
+        }
+    }
+    
+    /**
+     * 写完队列中剩余的日志后停止写线程
+     */
+    public static synchronized void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        if (dropped.sum() > 0) {
+            logger.warn("Async log dropped {} entries because the queue was full", dropped.sum());
+        }
+    }
+    
+    public static long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    private static class AsyncLog implements Log {
+        private final Log target;
+        
+        AsyncLog(Log target) {
+            this.target = target;
+        }
+        
+        private void enqueue(int type, String text) {
+            if (!queue.offer(new LogEntry(target, type, text))) {
+                dropped.increment();
+            }
+        }
+        
+        @Override
+        public void clear() {
+            target.clear();
+        }
+        
+        @Override
+        public void onIncoming(String message) {
+            enqueue(INCOMING, message);
+        }
+        
+        @Override
+        public void onOutgoing(String message) {
+            enqueue(OUTGOING, message);
+        }
+        
+        @Override
+        public void onEvent(String text) {
+            enqueue(EVENT, text);
+        }
+        
+        @Override
+        public void onErrorEvent(String text) {
+            enqueue(ERROR_EVENT, text);
+        }
+    }
+    
+    private static class LogEntry {
+        final Log target;
+        final int type;
+        final String text;
+        
+        LogEntry(Log target, int type, String text) {
+            this.target = target;
+            this.type = type;
+            this.text = text;
+        }
+        
+        void writeTo() {
+            switch (type) {
+                case INCOMING:
+                    target.onIncoming(text);
+                    break;
+                case OUTGOING:
+                    target.onOutgoing(text);
+                    break;
+                case EVENT:
+                    target.onEvent(text);
+                    break;
+                default:
+                    target.onErrorEvent(text);
+                    break;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.fix.benchmark.engine;
+
+import quickfix.SessionID;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 压测引擎中的单个会话
+ */
+public interface EngineSession {
+    
+    String getSessionId();
+    
+    boolean isConnected();
+    
+    /**
+     * 首次登录完成时完成
+     */
+    CompletableFuture<SessionID> getLogonFuture();
+    
+    /**
+     * 发送TestRequest。会话不登记请求，发送时间和应答关联由生成TestReqID的一方负责
+     */
+    boolean sendTestRequest(String testReqId);
+    
+    /**
+     * 设置收到TestRequest应答时的回调，null表示取消。未设置回调时应答被忽略。
+     * 回调在会话的接收线程上执行，不能阻塞
+     */
+    void setResponseListener(ResponseListener listener);
+    
+    @FunctionalInterface
+    interface ResponseListener {
+        /**
+         * 回显的TestReqID位于text的[start, end)区间，直接在原始消息上解析，不截取子串。
+         * text可能是会话复用的缓冲区视图，只在回调期间有效
+         */
+        void onResponse(CharSequence text, int start, int end, long receivedNanos);
+    }
+    
+    /**
+     * 设置登录/登出回调，引擎用它维护活跃会话索引。回调在会话的回调线程上执行
+     */
+    void setConnectionListener(ConnectionListener listener);
+    
+    @FunctionalInterface
+    interface ConnectionListener {
+        void onConnectionChanged(boolean connected);
+    }
+}
\ No newline at end of file
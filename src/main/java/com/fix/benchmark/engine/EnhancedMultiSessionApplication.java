@@ -1,46 +1,52 @@
 package com.fix.benchmark.engine;
 
+import com.fix.benchmark.codec.FixFieldScanner;
 import com.fix.benchmark.metrics.PreciseRequestTracker;
-import com.fix.benchmark.utils.EnhancedTestReqIdGenerator;
+import com.fix.benchmark.metrics.RequestRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import quickfix.*;
 import quickfix.field.TestReqID;
-import quickfix.fix44.Heartbeat;
 import quickfix.fix44.TestRequest;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class EnhancedMultiSessionApplication extends MessageCracker implements Application {
+public class EnhancedMultiSessionApplication extends MessageCracker implements Application, InboundTap {
     private static final Logger logger = LoggerFactory.getLogger(EnhancedMultiSessionApplication.class);
     
     private final String sessionId;
-    private final PreciseRequestTracker requestTracker;
     private final AtomicBoolean connected = new AtomicBoolean(false);
     
-    // 会话级别的统计
-    private final ConcurrentHashMap<String, Long> pendingRequests = new ConcurrentHashMap<>();
-    private SessionID targetSessionId;
+    // 首次登录完成时完成，供压测按会话就绪启动
+    private final CompletableFuture<SessionID> logonFuture = new CompletableFuture<>();
+    
+    // 本会话的在途请求，TestReqID用TestReqIdCodec编码环编号和环分配的序号，
+    // 内嵌时间戳模式下再带上发送时间戳，应答延迟直接由回显的时间戳算出
+    private final RequestRing requests;
+    
+    // 本实例对应的会话，在onCreate时绑定，发送时直接使用
+    private volatile Session session;
     
     public EnhancedMultiSessionApplication(String sessionId, PreciseRequestTracker requestTracker) {
         this.sessionId = sessionId;
-        this.requestTracker = requestTracker;
+        this.requests = requestTracker.ringFor(sessionId);
     }
     
     @Override
     public void onCreate(SessionID sessionId) {
         logger.debug("Session {} created: {}", this.sessionId, sessionId);
-        // 保存会话ID用于后续使用
-        if (sessionId.toString().contains(this.sessionId)) {
-            this.targetSessionId = sessionId;
-        }
+        this.session = Session.lookupSession(sessionId);
     }
     
     @Override
     public void onLogon(SessionID sessionId) {
+        if (session == null) {
+            session = Session.lookupSession(sessionId);
+        }
         connected.set(true);
         logger.info("Session {} logged on: {}", this.sessionId, sessionId);
+        logonFuture.complete(sessionId);
     }
     
     @Override
@@ -56,24 +62,19 @@ public class EnhancedMultiSessionApplication extends MessageCracker implements A
     
     @Override
     public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
-        // 处理接收的管理消息
+        // TestRequest的应答是带TestReqID的Heartbeat，走管理消息路径而不是fromApp
+        if (requests.getPendingCount() == 0) {
+            return;
+        }
+        String testReqId = FixFieldScanner.heartbeatTestReqId(message);
+        if (testReqId != null) {
+            requests.complete(testReqId, 0, testReqId.length(), System.nanoTime());
+        }
     }
     
     @Override
     public void toApp(Message message, SessionID sessionId) throws DoNotSend {
         // 处理发送的应用消息
-        if (message instanceof TestRequest) {
-            TestRequest testRequest = (TestRequest) message;
-            TestReqID testReqID = new TestReqID();
-            if (testRequest.isSetField(testReqID)) {
-                testRequest.get(testReqID);
-                String testReqId = testReqID.getValue();
-                
-                long sendTime = System.nanoTime();
-                pendingRequests.put(testReqId, sendTime);
-                requestTracker.recordRequest(testReqId, sendTime);
-            }
-        }
     }
     
     @Override
@@ -82,66 +83,65 @@ public class EnhancedMultiSessionApplication extends MessageCracker implements A
         crack(message, sessionId);
     }
     
-    // 使用MessageCracker的onMessage方法来处理TestRequest响应
+    /**
+     * 在解析之前从原始消息中取出Heartbeat的TestReqID，接收时间不包含QuickFIX/J的解析和分发开销。
+     * 序号和时间戳直接从原始文本解析，不截取子串
+     */
     @Override
-    public void onMessage(TestRequest testRequest, SessionID sessionID) throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
-        TestReqID testReqID = new TestReqID();
-        if (testRequest.isSetField(testReqID)) {
-            testRequest.get(testReqID);
-            String testReqId = testReqID.getValue();
-            
-            Long sendTime = pendingRequests.remove(testReqId);
-            if (sendTime != null) {
-                long receiveTime = System.nanoTime();
-                requestTracker.recordResponse(testReqId, receiveTime);
-            }
+    public void onIncoming(SessionID sessionID, String message, long receivedNanos) {
+        if (requests.getPendingCount() == 0 || FixFieldScanner.msgType(message) != '0') {
+            return;
+        }
+        int start = FixFieldScanner.valueStart(message, FixFieldScanner.TAG_TEST_REQ_ID, 0);
+        if (start >= 0) {
+            requests.complete(message, start, FixFieldScanner.valueEnd(message, start), receivedNanos);
         }
     }
     
-    // 处理心跳消息 - 注意：Heartbeat通常不会包含TestReqID
-    public void onMessage(Heartbeat heartbeat, SessionID sessionID) throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
-        // Heartbeat消息通常不包含TestReqID，所以我们不需要在这里处理响应
-        // 响应处理应该在TestRequest的onMessage中处理
+    public boolean sendTestRequest() {
+        return sendTestRequest(System.nanoTime());
     }
     
-    public boolean sendTestRequest() {
+    /**
+     * intendedSendNanos为发送计划中这条请求应当发出的时间，应答延迟从这个时间算起
+     */
+    public boolean sendTestRequest(long intendedSendNanos) {
         if (!connected.get()) {
             return false;
         }
         
+        Session current = session;
+        if (current == null) {
+            return false;
+        }
+        
+        // TestRequest是管理消息，不经过toApp，在这里登记发送时间
+        long sendNanos = System.nanoTime();
+        long sequence = requests.begin(intendedSendNanos, sendNanos);
         try {
-            String testReqId = EnhancedTestReqIdGenerator.generate(sessionId);
+            String testReqId = requests.testReqId(sequence, intendedSendNanos, sendNanos);
             TestRequest testRequest = new TestRequest();
             testRequest.set(new TestReqID(testReqId));
             
-            SessionID sessionID = getSessionID();
-            if (sessionID != null) {
-                return Session.sendToTarget(testRequest, sessionID);
+            if (current.send(testRequest)) {
+                return true;
             }
         } catch (Exception e) {
             logger.error("Error sending test request for session {}", sessionId, e);
         }
+        requests.cancel(sequence);
         
         return false;
     }
     
-    private SessionID getSessionID() {
-        // 直接使用存储的targetSessionId
-        if (targetSessionId != null) {
-            Session session = Session.lookupSession(targetSessionId);
-            if (session != null && session.isLoggedOn()) {
-                return targetSessionId;
-            }
-        }
-        
-        // 如果没有存储的会话ID，返回null
-        return null;
-    }
-    
     public boolean isConnected() {
         return connected.get();
     }
     
+    public CompletableFuture<SessionID> getLogonFuture() {
+        return logonFuture;
+    }
+    
     public String getSessionId() {
         return sessionId;
     }
@@ -1,13 +1,12 @@
 package com.fix.benchmark.engine;
 
+import com.fix.benchmark.codec.FixFieldScanner;
 import com.fix.benchmark.metrics.MetricsCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import quickfix.*;
-import quickfix.field.TestReqID;
-import quickfix.fix44.Heartbeat;
-import quickfix.fix44.TestRequest;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class FixClientApplication extends MessageCracker implements Application {
@@ -16,6 +15,9 @@ public class FixClientApplication extends MessageCracker implements Application
     private final MetricsCollector metricsCollector;
     private final ConcurrentHashMap<String, Long> pendingRequests;
     
+    // 首次登录完成时完成，替代启动后的固定等待
+    private final CompletableFuture<SessionID> logonFuture = new CompletableFuture<>();
+    
     public FixClientApplication(MetricsCollector metricsCollector, ConcurrentHashMap<String, Long> pendingRequests) {
         this.metricsCollector = metricsCollector;
         this.pendingRequests = pendingRequests;
@@ -29,6 +31,7 @@ public class FixClientApplication extends MessageCracker implements Application
     @Override
     public void onLogon(SessionID sessionId) {
         logger.info("Logged on: {}", sessionId);
+        logonFuture.complete(sessionId);
     }
     
     @Override
@@ -43,7 +46,18 @@ public class FixClientApplication extends MessageCracker implements Application
     
     @Override
     public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
-        // 处理接收的管理消息
+        // TestRequest的应答是带TestReqID的Heartbeat，走管理消息路径
+        if (pendingRequests.isEmpty()) {
+            return;
+        }
+        String reqId = FixFieldScanner.heartbeatTestReqId(message);
+        if (reqId == null) {
+            return;
+        }
+        Long startTime = pendingRequests.remove(reqId);
+        if (startTime != null) {
+            metricsCollector.recordResponse(System.nanoTime() - startTime);
+        }
     }
     
     @Override
@@ -56,23 +70,7 @@ public class FixClientApplication extends MessageCracker implements Application
         crack(message, sessionId);
     }
     
-    @Override
-    public void onMessage(Heartbeat heartbeat, SessionID sessionID) throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
-        // 处理心跳消息
-    }
-    
-    @Override
-    public void onMessage(TestRequest testRequest, SessionID sessionID) throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
-        TestReqID testReqID = new TestReqID();
-        if (testRequest.isSetField(testReqID)) {
-            testRequest.get(testReqID);
-            String reqId = testReqID.getValue();
-            
-            Long startTime = pendingRequests.remove(reqId);
-            if (startTime != null) {
-                long latency = System.nanoTime() - startTime;
-                metricsCollector.recordResponse(latency);
-            }
-        }
+    public CompletableFuture<SessionID> getLogonFuture() {
+        return logonFuture;
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.fix.benchmark.engine;
 
 import com.fix.benchmark.config.BenchmarkConfig;
 import com.fix.benchmark.metrics.MetricsCollector;
+import com.fix.benchmark.store.SyncPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import quickfix.*;
@@ -10,11 +11,15 @@ import quickfix.fix44.TestRequest;
 
 import java.io.FileInputStream;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class FixEngineManager {
     private static final Logger logger = LoggerFactory.getLogger(FixEngineManager.class);
     
+    private static final int LOGON_TIMEOUT_SECONDS = 30;
+    
     private final BenchmarkConfig config;
     private final MetricsCollector metricsCollector;
     private final SocketInitiator initiator;
@@ -39,25 +44,40 @@ public class FixEngineManager {
         this.application = new FixClientApplication(metricsCollector, pendingRequests);
         
         // 创建消息存储
-        MessageStoreFactory storeFactory = new FileStoreFactory(settings);
-        LogFactory logFactory = new ScreenLogFactory(true, true, true);
+        SyncPolicy syncPolicy = new SyncPolicy(config.getSyncPolicy(), config.getSyncEveryN(), config.getSyncIntervalMicros());
+        MessageStoreFactory storeFactory = PersistenceFactories.createStoreFactory(
+                config.getPersistenceStore(), settings, syncPolicy, metricsCollector.getFsyncStats());
+        LogFactory logFactory = PersistenceFactories.createLogFactory(config.getPersistenceLog(), settings);
         MessageFactory messageFactory = new quickfix.fix44.MessageFactory();
         
+        metricsCollector.recordRunMode("store", config.getPersistenceStore());
+        metricsCollector.recordRunMode("log", config.getPersistenceLog());
+        if (PersistenceFactories.STORE_DURABLE.equals(config.getPersistenceStore())) {
+            metricsCollector.recordRunMode("sync", syncPolicy.toString());
+        }
+        
         // 创建初始化器
         this.initiator = new SocketInitiator(application, storeFactory, settings, logFactory, messageFactory);
     }
     
     public void start() throws Exception {
         logger.info("Starting FIX engine...");
+        long startTime = System.nanoTime();
         initiator.start();
         
-        // 等待会话建立
-        Thread.sleep(2000);
+        // 等待会话登录，登录完成即返回
+        try {
+            application.getLogonFuture().get(LOGON_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            metricsCollector.recordTimeToLogon(System.nanoTime() - startTime);
+        } catch (TimeoutException e) {
+            logger.warn("Session did not log on within {} seconds", LOGON_TIMEOUT_SECONDS);
+        }
     }
     
     public void stop() {
         logger.info("Stopping FIX engine...");
         initiator.stop();
+        AsyncLogFactory.shutdown();
     }
     
     public void sendTestRequest(String testReqId) throws SessionNotFound {
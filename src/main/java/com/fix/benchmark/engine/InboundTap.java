@@ -0,0 +1,16 @@
+package com.fix.benchmark.engine;
+
+import quickfix.SessionID;
+
+/**
+ * 入站消息旁路，在QuickFIX/J把原始消息解析为Message之前被调用
+ */
+public interface InboundTap {
+    
+    /**
+     * 运行在会话的IO线程上，实现必须快速返回且不抛出异常
+     *
+     * @param receivedNanos 收到原始消息时的System.nanoTime()
+     */
+    void onIncoming(SessionID sessionID, String message, long receivedNanos);
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.fix.benchmark.engine;
+
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.SessionID;
+
+/**
+ * 日志工厂装饰器：QuickFIX/J在解析入站消息之前先调用Log.onIncoming，
+ * 借此把原始消息和接收时间交给{@link InboundTap}，再转交被包装的日志。
+ * 被包装的工厂可以为null(不记录日志)。
+ */
+public class InboundTapLogFactory implements LogFactory {
+    
+    private final LogFactory delegate;
+    private final InboundTap tap;
+    
+    public InboundTapLogFactory(LogFactory delegate, InboundTap tap) {
+        this.delegate = delegate;
+        this.tap = tap;
+    }
+    
+    @Override
+    public Log create(SessionID sessionID) {
+        return new TapLog(sessionID, delegate != null ? delegate.create(sessionID) : null);
+    }
+    
+    private class TapLog implements Log {
+        private final SessionID sessionID;
+        private final Log target;
+        
+        TapLog(SessionID sessionID, Log target) {
+            this.sessionID = sessionID;
+            this.target = target;
+        }
+        
+        @Override
+        public void onIncoming(String message) {
+            tap.onIncoming(sessionID, message, System.nanoTime());
+            if (target != null) {
+                target.onIncoming(message);
+            }
+        }
+        
+        @Override
+        public void clear() {
+            if (target != null) {
+                target.clear();
+            }
+        }
+        
+        @Override
+        public void onOutgoing(String message) {
+            if (target != null) {
+                target.onOutgoing(message);
+            }
+        }
+        
+        @Override
+        public void onEvent(String text) {
+            if (target != null) {
+                target.onEvent(text);
+            }
+        }
+        
+        @Override
+        public void onErrorEvent(String text) {
+            if (target != null) {
+                target.onErrorEvent(text);
+            }
+        }
+    }
+}
\ No newline at end of file
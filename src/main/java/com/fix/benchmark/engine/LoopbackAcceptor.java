@@ -0,0 +1,108 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.*;
+import quickfix.mina.acceptor.AbstractSocketAcceptor;
+import quickfix.mina.acceptor.DynamicAcceptorSessionProvider;
+
+import java.net.InetSocketAddress;
+
+/**
+ * 内置回环FIX接收端，用于在单机或CI中进行闭环压测。
+ * 使用动态会话模板接受任意SenderCompID，因此可直接承接MultiSessionConfig生成的所有会话。
+ */
+public class LoopbackAcceptor {
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackAcceptor.class);
+    
+    private final String acceptorCompId;
+    private final int port;
+    private final boolean threaded;
+    private final LoopbackResponder responder;
+    
+    private AbstractSocketAcceptor acceptor;
+    
+    public LoopbackAcceptor(String acceptorCompId, int port, long serviceTimeMicros, boolean threaded) {
+        this.acceptorCompId = acceptorCompId;
+        this.port = port;
+        this.threaded = threaded;
+        this.responder = new LoopbackResponder(serviceTimeMicros);
+    }
+    
+    public LoopbackAcceptor(MultiSessionConfig config, String acceptorCompId) {
+        this(acceptorCompId, config.getLoopbackPort(), config.getLoopbackServiceTimeMicros(), config.isLoopbackThreaded());
+    }
+    
+    public synchronized void start() throws ConfigError {
+        SessionSettings settings = createSettings();
+        
+        // 回环端只做应答，不需要持久化和日志
+        MessageStoreFactory storeFactory = new NoopStoreFactory();
+        LogFactory logFactory = new ScreenLogFactory(false, false, false);
+        MessageFactory messageFactory = new quickfix.fix44.MessageFactory();
+        
+        if (threaded) {
+            acceptor = new ThreadedSocketAcceptor(responder, storeFactory, settings, logFactory, messageFactory);
+        } else {
+            acceptor = new SocketAcceptor(responder, storeFactory, settings, logFactory, messageFactory);
+        }
+        
+        acceptor.setSessionProvider(new InetSocketAddress(port),
+                new DynamicAcceptorSessionProvider(settings, templateSessionId(), responder, storeFactory, logFactory, messageFactory));
+        
+        try {
+            acceptor.start();
+        } catch (ConfigError | RuntimeError e) {
+            // 端口被占用等启动失败时释放已创建的线程
+            acceptor.stop();
+            acceptor = null;
+            throw e;
+        }
+        logger.info("Loopback acceptor {} listening on port {} ({})",
+                acceptorCompId, port, threaded ? "threaded" : "single-threaded");
+    }
+    
+    private SessionSettings createSettings() {
+        SessionSettings settings = new SessionSettings();
+        settings.setString("ConnectionType", "acceptor");
+        settings.setString("SocketAcceptPort", String.valueOf(port));
+        settings.setString("StartTime", "00:00:00");
+        settings.setString("EndTime", "23:59:59");
+        settings.setString("HeartBtInt", "30");
+        // 监听套接字不支持SO_SNDBUF，这里只设置接收缓冲区
+        settings.setString("SocketTcpNoDelay", "Y");
+        settings.setString("SocketReceiveBufferSize", "65536");
+        
+        // 压测场景下关闭与测量无关的校验
+        settings.setString("UseDataDictionary", "N");
+        settings.setString("CheckLatency", "N");
+        settings.setString("PersistMessages", "N");
+        settings.setString("ResetOnLogon", "Y");
+        
+        settings.setString(templateSessionId(), "AcceptorTemplate", "Y");
+        return settings;
+    }
+    
+    // 模板会话: TargetCompID为通配符，接受任意客户端
+    private SessionID templateSessionId() {
+        return new SessionID(FixVersions.BEGINSTRING_FIX44, acceptorCompId, DynamicAcceptorSessionProvider.WILDCARD);
+    }
+    
+    public synchronized void stop() {
+        if (acceptor != null) {
+            acceptor.stop();
+            logger.info("Loopback acceptor stopped: {} test requests answered, {} logons",
+                    responder.getTestRequestsAnswered(), responder.getLogons());
+            acceptor = null;
+        }
+    }
+    
+    public LoopbackResponder getResponder() {
+        return responder;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.fix.benchmark.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.*;
+import quickfix.field.MsgType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 回环接收端的应答应用。
+ * TestRequest的Heartbeat应答由QuickFIX/J会话层生成，这里只负责在应答前注入可配置的服务时间。
+ */
+public class LoopbackResponder implements Application {
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackResponder.class);
+    
+    // 低于该阈值时自旋等待，避免parkNanos的调度误差
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private final long serviceTimeNanos;
+    
+    private final LongAdder testRequestsAnswered = new LongAdder();
+    private final LongAdder applicationMessages = new LongAdder();
+    private final LongAdder logons = new LongAdder();
+    
+    public LoopbackResponder(long serviceTimeMicros) {
+        this.serviceTimeNanos = TimeUnit.MICROSECONDS.toNanos(serviceTimeMicros);
+    }
+    
+    @Override
+    public void onCreate(SessionID sessionId) {
+        logger.debug("Loopback session created: {}", sessionId);
+    }
+    
+    @Override
+    public void onLogon(SessionID sessionId) {
+        logons.increment();
+        logger.debug("Loopback session logged on: {}", sessionId);
+    }
+    
+    @Override
+    public void onLogout(SessionID sessionId) {
+        logger.debug("Loopback session logged out: {}", sessionId);
+    }
+    
+    @Override
+    public void toAdmin(Message message, SessionID sessionId) {
+        // 会话层消息无需处理
+    }
+    
+    @Override
+    public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+        // fromAdmin在会话层生成Heartbeat应答之前被调用
+        if (MsgType.TEST_REQUEST.equals(message.getHeader().getString(MsgType.FIELD))) {
+            injectServiceTime();
+            testRequestsAnswered.increment();
+        }
+    }
+    
+    @Override
+    public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+        // 不主动发送应用消息
+    }
+    
+    @Override
+    public void fromApp(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+        injectServiceTime();
+        applicationMessages.increment();
+    }
+    
+    private void injectServiceTime() {
+        if (serviceTimeNanos <= 0) {
+            return;
+        }
+        
+        long deadline = System.nanoTime() + serviceTimeNanos;
+        if (serviceTimeNanos > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(serviceTimeNanos - SPIN_THRESHOLD_NANOS);
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+    
+    public long getTestRequestsAnswered() {
+        return testRequestsAnswered.sum();
+    }
+    
+    public long getApplicationMessages() {
+        return applicationMessages.sum();
+    }
+    
+    public long getLogons() {
+        return logons.sum();
+    }
+}
\ No newline at end of file
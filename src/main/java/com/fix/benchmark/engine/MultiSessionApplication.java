@@ -1,50 +1,97 @@
 package com.fix.benchmark.engine;
 
+import com.fix.benchmark.codec.FixFieldScanner;
+import com.fix.benchmark.codec.MessageTemplate;
+import com.fix.benchmark.codec.RawSessionSender;
 import com.fix.benchmark.metrics.MultiSessionMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import quickfix.*;
 import quickfix.field.TestReqID;
-import quickfix.fix44.Heartbeat;
 import quickfix.fix44.TestRequest;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class MultiSessionApplication extends MessageCracker implements Application {
+public class MultiSessionApplication extends MessageCracker implements Application, InboundTap {
     private static final Logger logger = LoggerFactory.getLogger(MultiSessionApplication.class);
     
+    public static final String SEND_PATH_SESSION = "session";
+    public static final String SEND_PATH_TEMPLATE = "template";
+    
     private final String sessionId;
     private final MultiSessionMetrics metrics;
+    private final boolean templateSend;
     private final AtomicBoolean connected = new AtomicBoolean(false);
     
-    // 跟踪待处理的请求
-    private final ConcurrentHashMap<String, Long> pendingRequests = new ConcurrentHashMap<>();
+    // 本实例对应的会话，在onCreate时绑定，发送时直接使用
+    private volatile Session session;
+    
+    // template发送路径下的预编码发送器，登录后创建
+    private volatile RawSessionSender rawSender;
+    
+    // 首次登录完成时完成，供引擎管理器和压测按会话就绪启动
+    private final CompletableFuture<SessionID> logonFuture = new CompletableFuture<>();
+    
+    // 会话不登记请求，应答交给生成TestReqID的一方(请求环或闭环窗口)关联，未设置时忽略
+    private volatile EngineSession.ResponseListener responseListener;
+    // 入站旁路收到过消息后应答只由onIncoming转交，fromAdmin不再重复
+    private volatile boolean inboundTapped;
+    private volatile EngineSession.ConnectionListener connectionListener;
     
     public MultiSessionApplication(String sessionId, MultiSessionMetrics metrics) {
+        this(sessionId, metrics, SEND_PATH_SESSION);
+    }
+    
+    public MultiSessionApplication(String sessionId, MultiSessionMetrics metrics, String sendPath) {
         this.sessionId = sessionId;
         this.metrics = metrics;
+        if (SEND_PATH_TEMPLATE.equals(sendPath)) {
+            this.templateSend = true;
+        } else if (SEND_PATH_SESSION.equals(sendPath)) {
+            this.templateSend = false;
+        } else {
+            throw new IllegalArgumentException("Unknown send path: " + sendPath);
+        }
     }
     
     @Override
     public void onCreate(SessionID sessionId) {
         logger.debug("Session {} created: {}", this.sessionId, sessionId);
+        this.session = Session.lookupSession(sessionId);
     }
     
     @Override
     public void onLogon(SessionID sessionId) {
+        if (session == null) {
+            session = Session.lookupSession(sessionId);
+        }
+        if (templateSend && rawSender == null && session != null) {
+            // 无法访问会话内部状态时保持为null，发送退回Session.send
+            rawSender = RawSessionSender.create(session, MessageTemplate.testRequest(sessionId));
+        }
         connected.set(true);
         metrics.recordSessionLogin(sessionId.toString());
+        notifyConnection(true);
         logger.info("Session {} logged on: {}", this.sessionId, sessionId);
+        logonFuture.complete(sessionId);
     }
     
     @Override
     public void onLogout(SessionID sessionId) {
         connected.set(false);
         metrics.recordSessionLogout(sessionId.toString());
+        notifyConnection(false);
         logger.info("Session {} logged out: {}", this.sessionId, sessionId);
     }
     
+    private void notifyConnection(boolean isConnected) {
+        EngineSession.ConnectionListener listener = connectionListener;
+        if (listener != null) {
+            listener.onConnectionChanged(isConnected);
+        }
+    }
+    
     @Override
     public void toAdmin(Message message, SessionID sessionId) {
         // 处理发送的管理消息
@@ -52,7 +99,16 @@ public class MultiSessionApplication extends MessageCracker implements Applicati
     
     @Override
     public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
-        // 处理接收的管理消息
+        // TestRequest的应答是带TestReqID的Heartbeat，走管理消息路径。
+        // 没有安装入站旁路时才在这里转交
+        EngineSession.ResponseListener listener = responseListener;
+        if (listener == null || inboundTapped) {
+            return;
+        }
+        String reqId = FixFieldScanner.heartbeatTestReqId(message);
+        if (reqId != null) {
+            listener.onResponse(reqId, 0, reqId.length(), System.nanoTime());
+        }
     }
     
     @Override
@@ -65,25 +121,31 @@ public class MultiSessionApplication extends MessageCracker implements Applicati
         crack(message, sessionId);
     }
     
+    /**
+     * 在解析之前扫描原始消息，带TestReqID的Heartbeat即为TestRequest的应答，
+     * 以收到原始消息的时间计算往返延迟
+     */
     @Override
-    public void onMessage(Heartbeat heartbeat, SessionID sessionID) throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
-        // 处理心跳消息
+    public void onIncoming(SessionID sessionID, String message, long receivedNanos) {
+        if (!inboundTapped) {
+            inboundTapped = true;
+        }
+        EngineSession.ResponseListener listener = responseListener;
+        if (listener == null || FixFieldScanner.msgType(message) != '0') {
+            return;
+        }
+        int start = FixFieldScanner.valueStart(message, FixFieldScanner.TAG_TEST_REQ_ID, 0);
+        if (start >= 0) {
+            listener.onResponse(message, start, FixFieldScanner.valueEnd(message, start), receivedNanos);
+        }
     }
     
-    @Override
-    public void onMessage(TestRequest testRequest, SessionID sessionID) throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
-        TestReqID testReqID = new TestReqID();
-        if (testRequest.isSetField(testReqID)) {
-            testRequest.get(testReqID);
-            String reqId = testReqID.getValue();
-            
-            Long startTime = pendingRequests.remove(reqId);
-            if (startTime != null) {
-                long latency = System.nanoTime() - startTime;
-                metrics.recordResponse(sessionId, latency);
-                metrics.recordResponseReceived(sessionId);
-            }
-        }
+    public void setResponseListener(EngineSession.ResponseListener listener) {
+        this.responseListener = listener;
+    }
+    
+    public void setConnectionListener(EngineSession.ConnectionListener listener) {
+        this.connectionListener = listener;
     }
     
     public boolean sendTestRequest(String testReqId) {
@@ -93,20 +155,14 @@ public class MultiSessionApplication extends MessageCracker implements Applicati
         }
         
         try {
-            TestRequest testRequest = new TestRequest();
-            testRequest.set(new TestReqID(testReqId));
-            
-            SessionID sessionID = getSessionID();
-            if (sessionID != null) {
-                long startTime = System.nanoTime();
-                pendingRequests.put(testReqId, startTime);
-                
-                boolean sent = Session.sendToTarget(testRequest, sessionID);
+            Session current = session;
+            if (current != null) {
+                RawSessionSender raw = rawSender;
+                boolean sent = raw != null ? raw.send(testReqId) : current.send(newTestRequest(testReqId));
                 if (sent) {
                     metrics.recordMessageSent(sessionId);
                     metrics.recordRequestSent(sessionId);
                 } else {
-                    pendingRequests.remove(testReqId);
                     metrics.recordSendFailure(sessionId, "Send failed");
                 }
                 return sent;
@@ -119,20 +175,20 @@ public class MultiSessionApplication extends MessageCracker implements Applicati
         return false;
     }
     
-    private SessionID getSessionID() {
-        for (SessionID sessionID : Session.getSessions()) {
-            Session session = Session.lookupSession(sessionID);
-            if (session != null && session.isLoggedOn()) {
-                return sessionID;
-            }
-        }
-        return null;
+    private static TestRequest newTestRequest(String testReqId) {
+        TestRequest testRequest = new TestRequest();
+        testRequest.set(new TestReqID(testReqId));
+        return testRequest;
     }
     
     public boolean isConnected() {
         return connected.get();
     }
     
+    public CompletableFuture<SessionID> getLogonFuture() {
+        return logonFuture;
+    }
+    
     public String getSessionId() {
         return sessionId;
     }
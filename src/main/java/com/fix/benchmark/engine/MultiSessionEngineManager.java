@@ -1,135 +1,309 @@
 package com.fix.benchmark.engine;
 
 import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.metrics.EngineFootprint;
 import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.store.SyncPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import quickfix.*;
+import quickfix.mina.initiator.AbstractSocketInitiator;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
-public class MultiSessionEngineManager {
+public class MultiSessionEngineManager implements SessionEngine<MultiSessionEngineManager.SessionInstance> {
     private static final Logger logger = LoggerFactory.getLogger(MultiSessionEngineManager.class);
     
+    private static final String MODE_SHARED = "shared";
+    private static final String MODE_SHARED_THREADED = "shared-threaded";
+    
     private final MultiSessionConfig config;
     private final MultiSessionMetrics metrics;
     private final ExecutorService connectionPool;
     private final ConcurrentHashMap<String, SessionInstance> sessions = new ConcurrentHashMap<>();
+    private final ActiveSessionRegistry<SessionInstance> activeSessions = new ActiveSessionRegistry<>();
+    private final EngineFootprint footprint;
+    private final SessionStartupTracker startup;
+    private final SyncPolicy syncPolicy;
+    private final SessionRampUpScheduler rampUp;
     
-    private final AtomicInteger activeConnections = new AtomicInteger(0);
-    private final AtomicInteger totalConnections = new AtomicInteger(0);
-    private final AtomicInteger failedConnections = new AtomicInteger(0);
+    // 最近一次startSessions的全部会话登录结束(成功或失败)且汇总输出后完成
+    private volatile CompletableFuture<Void> startupComplete = CompletableFuture.completedFuture(null);
     
     public MultiSessionEngineManager(MultiSessionConfig config, MultiSessionMetrics metrics) {
         this.config = config;
         this.metrics = metrics;
         this.connectionPool = Executors.newFixedThreadPool(50);
+        this.footprint = new EngineFootprint(config.getInitiatorMode());
+        this.startup = new SessionStartupTracker(metrics, footprint);
+        this.syncPolicy = new SyncPolicy(config.getSyncPolicy(), config.getSyncEveryN(), config.getSyncIntervalMicros());
+        this.rampUp = new SessionRampUpScheduler(config, metrics.getLogonStats());
+        
+        metrics.recordRunMode("engine", SessionEngines.ENGINE_QUICKFIXJ);
+        metrics.recordRunMode("initiator", config.getInitiatorMode());
+        metrics.recordRunMode("store", config.getStoreMode());
+        metrics.recordRunMode("log", config.getLogMode());
+        metrics.recordRunMode("send-path", config.getSendPath());
+        if (PersistenceFactories.STORE_DURABLE.equals(config.getStoreMode())) {
+            metrics.recordRunMode("sync", syncPolicy.toString());
+        }
+    }
+    
+    private MessageStoreFactory createStoreFactory(SessionSettings settings) {
+        return PersistenceFactories.createStoreFactory(config.getStoreMode(), settings, syncPolicy, metrics.getFsyncStats());
     }
     
-    public CompletableFuture<Boolean> createSession(String baseSenderCompId, String targetCompId, int sessionId) {
+    public CompletableFuture<SessionInstance> createSession(String baseSenderCompId, String targetCompId, int sessionId) {
+        String senderCompId = MultiSessionConfig.senderCompId(baseSenderCompId, sessionId);
+        SessionID fixSessionId = new SessionID(FixVersions.BEGINSTRING_FIX44, senderCompId, targetCompId);
+        
+        // 首次尝试创建并启动Initiator，重试时重新启用已有会话
+        CompletableFuture<SessionInstance> logon = rampUp.submit(senderCompId, () -> {
+            SessionInstance existing = sessions.get(senderCompId);
+            if (existing != null) {
+                return relogon(existing, fixSessionId);
+            }
+            return startSessionInitiator(baseSenderCompId, targetCompId, sessionId).thenCompose(this::awaitLogon);
+        }, () -> disableReconnect(fixSessionId));
+        
+        return startup.track(senderCompId, logon);
+    }
+    
+    private CompletableFuture<SessionInstance> startSessionInitiator(String baseSenderCompId, String targetCompId, int sessionId) {
+        String senderCompId = MultiSessionConfig.senderCompId(baseSenderCompId, sessionId);
         return CompletableFuture.supplyAsync(() -> {
             try {
                 String sessionConfigPath = config.generateSessionConfig(baseSenderCompId, targetCompId, sessionId);
-                String senderCompId = baseSenderCompId + "_" + String.format("%04d", sessionId);
-                
                 SessionSettings settings = new SessionSettings(sessionConfigPath);
-                MultiSessionApplication application = new MultiSessionApplication(senderCompId, metrics);
+                MultiSessionApplication application = new MultiSessionApplication(senderCompId, metrics, config.getSendPath());
                 
-                MessageStoreFactory storeFactory = new FileStoreFactory(settings);
-                LogFactory logFactory = new ScreenLogFactory(false, false, false);
+                MessageStoreFactory storeFactory = createStoreFactory(settings);
+                LogFactory logFactory = new InboundTapLogFactory(
+                        PersistenceFactories.createLogFactory(config.getLogMode(), settings), application);
                 MessageFactory messageFactory = new quickfix.fix44.MessageFactory();
                 
                 SocketInitiator initiator = new SocketInitiator(
                     application, storeFactory, settings, logFactory, messageFactory);
                 
                 SessionInstance instance = new SessionInstance(senderCompId, initiator, application);
-                sessions.put(senderCompId, instance);
+                registerSession(instance);
                 
-                // 启动连接
+                // 启动连接，登录结果由onLogon回调通知
                 initiator.start();
-                
-                // 等待连接建立
-                boolean connected = waitForConnection(instance, 30);
-                
-                if (connected) {
-                    activeConnections.incrementAndGet();
-                    metrics.recordConnectionSuccess(senderCompId);
-                    logger.info("Session {} connected successfully", senderCompId);
-                } else {
-                    failedConnections.incrementAndGet();
-                    metrics.recordConnectionFailure(senderCompId);
-                    logger.warn("Session {} failed to connect", senderCompId);
-                }
-                
-                totalConnections.incrementAndGet();
-                return connected;
+                return instance;
                 
             } catch (Exception e) {
-                failedConnections.incrementAndGet();
-                logger.error("Error creating session {}_{}", baseSenderCompId, sessionId, e);
-                return false;
+                logger.error("Error creating session {}", senderCompId, e);
+                throw new CompletionException(e);
             }
         }, connectionPool);
     }
     
-    private boolean waitForConnection(SessionInstance instance, int timeoutSeconds) {
-        long endTime = System.currentTimeMillis() + timeoutSeconds * 1000L;
+    /**
+     * 共享Initiator模式: 所有会话由同一个SocketInitiator/ThreadedSocketInitiator承载。
+     * 会话均配置为动态会话，启动Initiator时不连接，由节奏控制逐个创建。
+     */
+    private List<CompletableFuture<SessionInstance>> createSharedSessions(String baseSenderCompId, String targetCompId, int count) {
+        List<CompletableFuture<SessionInstance>> futures = new ArrayList<>(count);
         
-        while (System.currentTimeMillis() < endTime) {
-            if (instance.isConnected()) {
-                return true;
+        try {
+            SessionSettings settings = config.generateSharedSessionSettings(baseSenderCompId, targetCompId, count);
+            SessionRoutingApplication router = new SessionRoutingApplication();
+            
+            List<String> senderCompIds = new ArrayList<>(count);
+            List<MultiSessionApplication> applications = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                String senderCompId = MultiSessionConfig.senderCompId(baseSenderCompId, i);
+                MultiSessionApplication application = new MultiSessionApplication(senderCompId, metrics, config.getSendPath());
+                router.register(new SessionID(FixVersions.BEGINSTRING_FIX44, senderCompId, targetCompId), application);
+                senderCompIds.add(senderCompId);
+                applications.add(application);
             }
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
+            
+            MessageStoreFactory storeFactory = createStoreFactory(settings);
+            LogFactory logFactory = new InboundTapLogFactory(
+                    PersistenceFactories.createLogFactory(config.getLogMode(), settings), router);
+            MessageFactory messageFactory = new quickfix.fix44.MessageFactory();
+            
+            AbstractSocketInitiator initiator;
+            if (MODE_SHARED_THREADED.equals(config.getInitiatorMode())) {
+                initiator = new ThreadedSocketInitiator(
+                    router, storeFactory, settings, logFactory, messageFactory, config.getQueueCapacity());
+            } else {
+                initiator = new SocketInitiator(
+                    router, storeFactory, settings, logFactory, messageFactory, config.getQueueCapacity());
+            }
+            
+            initiator.start();
+            
+            for (int i = 0; i < count; i++) {
+                SessionInstance instance = new SessionInstance(senderCompIds.get(i), initiator, applications.get(i));
+                registerSession(instance);
+                
+                SessionID fixSessionId = new SessionID(FixVersions.BEGINSTRING_FIX44, instance.getSessionId(), targetCompId);
+                CompletableFuture<SessionInstance> logon = rampUp.submit(instance.getSessionId(), () -> {
+                    if (Session.lookupSession(fixSessionId) != null) {
+                        return relogon(instance, fixSessionId);
+                    }
+                    return CompletableFuture.runAsync(() -> createDynamicSession(initiator, fixSessionId), connectionPool)
+                            .thenCompose(ignored -> awaitLogon(instance));
+                }, () -> disableReconnect(fixSessionId));
+                
+                futures.add(startup.track(instance.getSessionId(), logon));
+            }
+        } catch (ConfigError e) {
+            logger.error("Error creating shared initiator for {} sessions", count, e);
+            futures.clear();
+            for (int i = 1; i <= count; i++) {
+                String senderCompId = MultiSessionConfig.senderCompId(baseSenderCompId, i);
+                futures.add(startup.track(senderCompId, CompletableFuture.failedFuture(e)));
             }
         }
         
-        return false;
+        return futures;
     }
     
-    public void createMultipleSessions(String baseSenderCompId, String targetCompId, int count) {
-        logger.info("Creating {} concurrent sessions...", count);
+    private void registerSession(SessionInstance instance) {
+        sessions.put(instance.getSessionId(), instance);
+        activeSessions.register(instance);
+        instance.setConnectionListener(connected -> activeSessions.update(instance, connected));
+    }
+    
+    private void createDynamicSession(AbstractSocketInitiator initiator, SessionID sessionID) {
+        // Initiator内部的连接器集合不是线程安全的，逐个创建
+        synchronized (initiator) {
+            try {
+                initiator.createDynamicSession(sessionID);
+            } catch (ConfigError e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+    
+    /**
+     * 会话登录完成时完成，超时由节奏控制器处理
+     */
+    private CompletableFuture<SessionInstance> awaitLogon(SessionInstance instance) {
+        return instance.getLogonFuture().thenApply(sessionID -> instance);
+    }
+    
+    private CompletableFuture<SessionInstance> relogon(SessionInstance instance, SessionID sessionID) {
+        Session session = Session.lookupSession(sessionID);
+        if (session == null) {
+            return CompletableFuture.failedFuture(new SessionNotFound(sessionID.toString()));
+        }
+        session.logon();
+        return awaitLogon(instance);
+    }
+    
+    /**
+     * 登录超时后停止该会话的自动重连，重试节奏交给退避策略
+     */
+    private void disableReconnect(SessionID sessionID) {
+        Session session = Session.lookupSession(sessionID);
+        if (session != null) {
+            session.logout("Logon attempt timed out");
+        }
+    }
+    
+    private boolean isSharedMode() {
+        String mode = config.getInitiatorMode();
+        return MODE_SHARED.equals(mode) || MODE_SHARED_THREADED.equals(mode);
+    }
+    
+    /**
+     * 发起所有会话的连接并立即返回，每个future在对应会话登录后完成，
+     * 调用方可以在单个会话就绪时就开始发送，而不必等待全部会话
+     */
+    @Override
+    public List<CompletableFuture<SessionInstance>> startSessions(String baseSenderCompId, String targetCompId, int count) {
+        logger.info("Creating {} sessions ({} initiator mode, {} connections/s, {} in flight)...",
+                count, config.getInitiatorMode(),
+                config.getRampUpConnectionsPerSecond() > 0 ? config.getRampUpConnectionsPerSecond() : "unlimited",
+                config.getRampUpMaxInFlight() > 0 ? config.getRampUpMaxInFlight() : "unlimited");
+        
+        startup.begin();
         
-        CompletableFuture<Boolean>[] futures = new CompletableFuture[count];
-        for (int i = 0; i < count; i++) {
-            futures[i] = createSession(baseSenderCompId, targetCompId, i + 1);
+        List<CompletableFuture<SessionInstance>> futures;
+        if (isSharedMode()) {
+            futures = createSharedSessions(baseSenderCompId, targetCompId, count);
+        } else {
+            futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                futures.add(createSession(baseSenderCompId, targetCompId, i + 1));
+            }
         }
         
-        // 等待所有连接完成
-        CompletableFuture.allOf(futures).join();
+        startupComplete = startup.whenComplete(futures);
+        
+        return futures;
+    }
+    
+    /**
+     * 建立所有会话并等待全部登录成功或超时
+     */
+    @Override
+    public void createMultipleSessions(String baseSenderCompId, String targetCompId, int count) {
+        startSessions(baseSenderCompId, targetCompId, count);
         
-        logger.info("Connection summary: {} successful, {} failed, {} total",
-                activeConnections.get(), failedConnections.get(), totalConnections.get());
+        // 等待所有连接完成，失败已在登录跟踪中计数
+        startupComplete.join();
     }
     
+    @Override
+    public CompletableFuture<Void> getStartupComplete() {
+        return startupComplete;
+    }
+    
+    @Override
     public SessionInstance getSession(String sessionId) {
         return sessions.get(sessionId);
     }
     
+    @Override
+    public ActiveSessionRegistry<SessionInstance> getActiveSessions() {
+        return activeSessions;
+    }
+    
+    @Override
     public int getActiveConnectionCount() {
-        return activeConnections.get();
+        return startup.getActiveConnectionCount();
     }
     
+    @Override
+    public EngineFootprint getFootprint() {
+        return footprint;
+    }
+    
+    @Override
     public double getConnectionSuccessRate() {
-        if (totalConnections.get() == 0) return 0.0;
-        return (double) activeConnections.get() / totalConnections.get() * 100.0;
+        return startup.getConnectionSuccessRate();
     }
     
+    @Override
     public void shutdown() {
         logger.info("Shutting down all sessions...");
         
+        // 共享模式下多个会话引用同一个Initiator，只停止一次
+        Set<Initiator> stopped = Collections.newSetFromMap(new IdentityHashMap<>());
         sessions.values().forEach(instance -> {
             try {
-                instance.getInitiator().stop();
+                if (stopped.add(instance.getInitiator())) {
+                    instance.getInitiator().stop();
+                }
             } catch (Exception e) {
                 logger.error("Error stopping session {}", instance.getSessionId(), e);
             }
         });
         
+        AsyncLogFactory.shutdown();
+        
+        rampUp.shutdown();
         connectionPool.shutdown();
         try {
             if (!connectionPool.awaitTermination(10, TimeUnit.SECONDS)) {
@@ -141,27 +315,45 @@ public class MultiSessionEngineManager {
         }
     }
     
-    public static class SessionInstance {
+    public static class SessionInstance implements EngineSession {
         private final String sessionId;
-        private final SocketInitiator initiator;
+        private final Initiator initiator;
         private final MultiSessionApplication application;
         
-        public SessionInstance(String sessionId, SocketInitiator initiator, MultiSessionApplication application) {
+        public SessionInstance(String sessionId, Initiator initiator, MultiSessionApplication application) {
             this.sessionId = sessionId;
             this.initiator = initiator;
             this.application = application;
         }
         
+        @Override
         public boolean isConnected() {
             return application.isConnected();
         }
         
+        @Override
+        public CompletableFuture<SessionID> getLogonFuture() {
+            return application.getLogonFuture();
+        }
+        
+        @Override
         public boolean sendTestRequest(String testReqId) {
             return application.sendTestRequest(testReqId);
         }
         
+        @Override
+        public void setResponseListener(ResponseListener listener) {
+            application.setResponseListener(listener);
+        }
+        
+        @Override
+        public void setConnectionListener(ConnectionListener listener) {
+            application.setConnectionListener(listener);
+        }
+        
+        @Override
         public String getSessionId() { return sessionId; }
-        public SocketInitiator getInitiator() { return initiator; }
+        public Initiator getInitiator() { return initiator; }
         public MultiSessionApplication getApplication() { return application; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.metrics.FsyncStats;
+import com.fix.benchmark.store.MappedFileStoreFactory;
+import com.fix.benchmark.store.SyncPolicy;
+import quickfix.*;
+
+/**
+ * 按配置选择消息存储与日志实现，便于比较不同持久化开销下的测量结果
+ */
+public final class PersistenceFactories {
+    
+    public static final String STORE_FILE = "file";
+    public static final String STORE_MEMORY = "memory";
+    public static final String STORE_NULL = "null";
+    public static final String STORE_MAPPED = "mapped";
+    public static final String STORE_DURABLE = "durable";
+    
+    public static final String LOG_SCREEN = "screen";
+    public static final String LOG_FILE = "file";
+    public static final String LOG_ASYNC = "async";
+    public static final String LOG_NONE = "none";
+    
+    private PersistenceFactories() {
+    }
+    
+    /**
+     * file: FileStoreFactory; memory: 仅内存保存，可重传; null: 不保存消息，只维护序号;
+     * mapped: 内存映射段文件，带序号索引，重传查找为O(1); durable: mapped存储按syncPolicy刷盘
+     */
+    public static MessageStoreFactory createStoreFactory(String mode, SessionSettings settings,
+                                                         SyncPolicy syncPolicy, FsyncStats fsyncStats) {
+        switch (mode) {
+            case STORE_FILE:
+                return new FileStoreFactory(settings);
+            case STORE_MEMORY:
+                return new MemoryStoreFactory();
+            case STORE_NULL:
+                return new NoopStoreFactory();
+            case STORE_MAPPED:
+                return new MappedFileStoreFactory(settings);
+            case STORE_DURABLE:
+                if (syncPolicy == null || fsyncStats == null) {
+                    throw new IllegalArgumentException("durable store requires a sync policy");
+                }
+                return new MappedFileStoreFactory(settings, syncPolicy, fsyncStats);
+            default:
+                throw new IllegalArgumentException("Unknown persistence store mode: " + mode);
+        }
+    }
+    
+    /**
+     * screen: 输出到控制台; file: FileLogFactory; async: 后台线程写文件; none: 不记录日志
+     */
+    public static LogFactory createLogFactory(String mode, SessionSettings settings) {
+        switch (mode) {
+            case LOG_SCREEN:
+                return new ScreenLogFactory(true, true, true);
+            case LOG_FILE:
+                return new FileLogFactory(settings);
+            case LOG_ASYNC:
+                return new AsyncLogFactory(new FileLogFactory(settings));
+            case LOG_NONE:
+                // QuickFIX/J在日志工厂为null时使用内部的空日志实现
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown log mode: " + mode);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.metrics.EngineFootprint;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 多会话压测引擎。QuickFIX/J实现与原生NIO实现对外提供相同的会话建立和发送接口，
+ * 由fix.engine.type选择，压测结果可以直接比较。
+ */
+public interface SessionEngine<S extends EngineSession> {
+    
+    /**
+     * 发起所有会话的连接并立即返回，每个future在对应会话登录后完成
+     */
+    List<CompletableFuture<S>> startSessions(String baseSenderCompId, String targetCompId, int count);
+    
+    /**
+     * 建立所有会话并等待全部登录成功或超时
+     */
+    void createMultipleSessions(String baseSenderCompId, String targetCompId, int count);
+    
+    CompletableFuture<Void> getStartupComplete();
+    
+    S getSession(String sessionId);
+    
+    /**
+     * 当前已登录的会话，随登录/登出回调更新
+     */
+    ActiveSessionRegistry<S> getActiveSessions();
+    
+    int getActiveConnectionCount();
+    
+    double getConnectionSuccessRate();
+    
+    EngineFootprint getFootprint();
+    
+    void shutdown();
+}
\ No newline at end of file
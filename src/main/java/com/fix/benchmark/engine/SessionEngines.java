@@ -0,0 +1,33 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.nio.NioSessionEngine;
+
+import java.io.IOException;
+
+/**
+ * 按fix.engine.type创建压测引擎
+ */
+public final class SessionEngines {
+    
+    public static final String ENGINE_QUICKFIXJ = "quickfixj";
+    public static final String ENGINE_NIO = "nio";
+    
+    private SessionEngines() {
+    }
+    
+    /**
+     * quickfixj: MultiSessionEngineManager; nio: 非阻塞SocketChannel上实现会话层的轻量引擎，用于纯容量测试
+     */
+    public static SessionEngine<?> create(MultiSessionConfig config, MultiSessionMetrics metrics) throws IOException {
+        switch (config.getEngineType()) {
+            case ENGINE_QUICKFIXJ:
+                return new MultiSessionEngineManager(config, metrics);
+            case ENGINE_NIO:
+                return new NioSessionEngine(config, metrics);
+            default:
+                throw new IllegalArgumentException("Unknown engine type: " + config.getEngineType());
+        }
+    }
+}
\ No newline at end of file
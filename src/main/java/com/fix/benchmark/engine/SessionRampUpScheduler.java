@@ -0,0 +1,154 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.metrics.LogonStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 会话建立节奏控制: 按配置的每秒连接数发起登录，限制同时进行中的登录数，
+ * 给发起时间加随机抖动，登录超时或失败后按指数退避重试。
+ * <p>
+ * 所有调度状态只在单个调度线程上修改，因此不需要加锁。
+ */
+public class SessionRampUpScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(SessionRampUpScheduler.class);
+    
+    private final long intervalNanos;
+    private final int maxInFlight;
+    private final long jitterMillis;
+    private final int maxRetries;
+    private final long backoffMillis;
+    private final long backoffMaxMillis;
+    private final long logonTimeoutMillis;
+    private final LogonStats stats;
+    
+    private final ScheduledExecutorService executor;
+    private final Queue<Attempt<?>> ready = new ArrayDeque<>();
+    private long nextSlotNanos;
+    private int inFlight;
+    
+    public SessionRampUpScheduler(MultiSessionConfig config, LogonStats stats) {
+        double connectionsPerSecond = config.getRampUpConnectionsPerSecond();
+        this.intervalNanos = connectionsPerSecond > 0 ? (long) (1_000_000_000L / connectionsPerSecond) : 0;
+        this.maxInFlight = config.getRampUpMaxInFlight() > 0 ? config.getRampUpMaxInFlight() : Integer.MAX_VALUE;
+        this.jitterMillis = config.getRampUpJitterMillis();
+        this.maxRetries = config.getRampUpMaxRetries();
+        this.backoffMillis = config.getRampUpBackoffMillis();
+        this.backoffMaxMillis = config.getRampUpBackoffMaxMillis();
+        this.logonTimeoutMillis = config.getLogonTimeoutMillis();
+        this.stats = stats;
+        
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-ramp-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 提交一个会话的登录任务
+     *
+     * @param sessionId 会话标识，仅用于日志
+     * @param start     发起一次登录，返回登录完成时完成的future
+     * @param abort     登录超时或失败后调用，停止该会话的自动重连，等待下一次重试
+     * @return 登录成功时完成; 重试耗尽后以最后一次的异常失败
+     */
+    public <T> CompletableFuture<T> submit(String sessionId, Supplier<CompletableFuture<T>> start, Runnable abort) {
+        Attempt<T> attempt = new Attempt<>(sessionId, start, abort);
+        executor.execute(() -> {
+            ready.add(attempt);
+            dispatch();
+        });
+        return attempt.result;
+    }
+    
+    private void dispatch() {
+        while (inFlight < maxInFlight && !ready.isEmpty()) {
+            Attempt<?> attempt = ready.poll();
+            
+            // 按固定间隔分配发起时间，空闲后不补发积压的配额
+            long now = System.nanoTime();
+            long slot = Math.max(nextSlotNanos, now);
+            nextSlotNanos = slot + intervalNanos;
+            long jitterNanos = jitterMillis > 0
+                    ? TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(jitterMillis + 1)) : 0;
+            
+            inFlight++;
+            executor.schedule(() -> launch(attempt), slot + jitterNanos - now, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private <T> void launch(Attempt<T> attempt) {
+        attempt.tries++;
+        stats.recordAttempt(attempt.tries > 1);
+        long launchNanos = System.nanoTime();
+        
+        CompletableFuture<T> logon;
+        try {
+            logon = attempt.start.get();
+        } catch (RuntimeException e) {
+            logon = CompletableFuture.failedFuture(e);
+        }
+        
+        logon.orTimeout(logonTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, error) ->
+                executor.execute(() -> complete(attempt, launchNanos, value, error)));
+    }
+    
+    private <T> void complete(Attempt<T> attempt, long launchNanos, T value, Throwable error) {
+        inFlight--;
+        
+        if (error == null) {
+            stats.recordLogon(System.nanoTime() - launchNanos);
+            attempt.result.complete(value);
+        } else {
+            try {
+                attempt.abort.run();
+            } catch (RuntimeException e) {
+                logger.warn("Error aborting logon attempt for session {}", attempt.sessionId, e);
+            }
+            
+            if (attempt.tries <= maxRetries) {
+                long backoff = Math.min(backoffMaxMillis, backoffMillis << Math.min(attempt.tries - 1, 20));
+                logger.info("Session {} logon attempt {} failed ({}), retrying in {} ms",
+                        attempt.sessionId, attempt.tries, error.toString(), backoff);
+                executor.schedule(() -> {
+                    ready.add(attempt);
+                    dispatch();
+                }, backoff, TimeUnit.MILLISECONDS);
+            } else {
+                stats.recordFailure();
+                attempt.result.completeExceptionally(error);
+            }
+        }
+        
+        dispatch();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private static class Attempt<T> {
+        final String sessionId;
+        final Supplier<CompletableFuture<T>> start;
+        final Runnable abort;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        int tries;
+        
+        Attempt(String sessionId, Supplier<CompletableFuture<T>> start, Runnable abort) {
+            this.sessionId = sessionId;
+            this.start = start;
+            this.abort = abort;
+        }
+    }
+}
\ No newline at end of file
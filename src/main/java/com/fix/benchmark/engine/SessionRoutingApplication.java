@@ -0,0 +1,93 @@
+package com.fix.benchmark.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 共享Initiator模式下的回调分发器，按SessionID把回调转交给各会话自己的Application
+ */
+public class SessionRoutingApplication implements Application, InboundTap {
+    private static final Logger logger = LoggerFactory.getLogger(SessionRoutingApplication.class);
+    
+    private final ConcurrentHashMap<SessionID, Application> applications = new ConcurrentHashMap<>();
+    
+    public void register(SessionID sessionId, Application application) {
+        applications.put(sessionId, application);
+    }
+    
+    private Application route(SessionID sessionId) {
+        Application application = applications.get(sessionId);
+        if (application == null) {
+            logger.warn("No application registered for session {}", sessionId);
+        }
+        return application;
+    }
+    
+    @Override
+    public void onIncoming(SessionID sessionID, String message, long receivedNanos) {
+        // IO线程上的热路径，未注册时不记录日志
+        Application application = applications.get(sessionID);
+        if (application instanceof InboundTap) {
+            ((InboundTap) application).onIncoming(sessionID, message, receivedNanos);
+        }
+    }
+    
+    @Override
+    public void onCreate(SessionID sessionId) {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.onCreate(sessionId);
+        }
+    }
+    
+    @Override
+    public void onLogon(SessionID sessionId) {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.onLogon(sessionId);
+        }
+    }
+    
+    @Override
+    public void onLogout(SessionID sessionId) {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.onLogout(sessionId);
+        }
+    }
+    
+    @Override
+    public void toAdmin(Message message, SessionID sessionId) {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.toAdmin(message, sessionId);
+        }
+    }
+    
+    @Override
+    public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.fromAdmin(message, sessionId);
+        }
+    }
+    
+    @Override
+    public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.toApp(message, sessionId);
+        }
+    }
+    
+    @Override
+    public void fromApp(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+        Application application = route(sessionId);
+        if (application != null) {
+            application.fromApp(message, sessionId);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.metrics.EngineFootprint;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 会话建立阶段的登录计数和启动汇总，QuickFIX/J引擎和NIO引擎共用，两者的启动报告格式一致
+ */
+public final class SessionStartupTracker {
+    private static final Logger logger = LoggerFactory.getLogger(SessionStartupTracker.class);
+
+    private final MultiSessionMetrics metrics;
+    private final EngineFootprint footprint;
+
+    private final AtomicInteger activeConnections = new AtomicInteger(0);
+    private final AtomicInteger totalConnections = new AtomicInteger(0);
+    private final AtomicInteger failedConnections = new AtomicInteger(0);
+
+    public SessionStartupTracker(MultiSessionMetrics metrics, EngineFootprint footprint) {
+        this.metrics = metrics;
+        this.footprint = footprint;
+    }
+
+    /**
+     * 开始建立会话之前调用
+     */
+    public void begin() {
+        footprint.captureBaseline();
+        metrics.recordStartupBegin();
+    }
+
+    /**
+     * 在单个会话登录结束(成功或失败)时计数
+     */
+    public <S> CompletableFuture<S> track(String sessionId, CompletableFuture<S> logon) {
+        return logon.whenComplete((session, error) -> {
+            if (error == null) {
+                activeConnections.incrementAndGet();
+                metrics.recordConnectionSuccess(sessionId);
+                logger.info("Session {} connected successfully", sessionId);
+            } else {
+                failedConnections.incrementAndGet();
+                metrics.recordConnectionFailure(sessionId);
+                logger.warn("Session {} failed to connect: {}", sessionId, error.toString());
+            }
+            totalConnections.incrementAndGet();
+        });
+    }
+
+    /**
+     * 全部会话登录结束且汇总输出后完成，汇总包含启动耗时、登录统计和每会话的线程与内存开销
+     */
+    public CompletableFuture<Void> whenComplete(List<? extends CompletableFuture<?>> futures) {
+        int count = futures.size();
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).handle((ignored, error) -> {
+            metrics.recordStartupComplete();
+            logger.info("Connection summary: {} successful, {} failed, {} total",
+                    activeConnections.get(), failedConnections.get(), totalConnections.get());
+            logger.info("Startup: first logon after {} ms, all logons after {} ms",
+                    String.format("%.1f", metrics.getTimeToFirstLogonMs()),
+                    String.format("%.1f", metrics.getTimeToAllLogonsMs()));
+            metrics.getLogonStats().logSummary();
+
+            // 统计每个会话的线程与内存开销
+            footprint.captureAfter(count);
+            footprint.logSummary();
+            return null;
+        });
+    }
+
+    public int getActiveConnectionCount() {
+        return activeConnections.get();
+    }
+
+    public double getConnectionSuccessRate() {
+        if (totalConnections.get() == 0) return 0.0;
+        return (double) activeConnections.get() / totalConnections.get() * 100.0;
+    }
+}
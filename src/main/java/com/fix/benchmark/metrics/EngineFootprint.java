@@ -0,0 +1,86 @@
+package com.fix.benchmark.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 记录建立会话前后的线程数与堆占用，折算出每个会话的资源开销，用于比较不同Initiator布局
+ */
+public class EngineFootprint {
+    private static final Logger logger = LoggerFactory.getLogger(EngineFootprint.class);
+    
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    
+    private final String mode;
+    
+    private int baselineThreads;
+    private long baselineHeapBytes;
+    
+    private volatile int sessionCount;
+    private volatile int addedThreads;
+    private volatile long addedHeapBytes;
+    
+    public EngineFootprint(String mode) {
+        this.mode = mode;
+    }
+    
+    /**
+     * 在创建会话之前调用
+     */
+    public void captureBaseline() {
+        baselineThreads = threadBean.getThreadCount();
+        baselineHeapBytes = usedHeapAfterGc();
+    }
+    
+    /**
+     * 在会话全部建立之后调用
+     */
+    public void captureAfter(int sessionCount) {
+        this.sessionCount = sessionCount;
+        this.addedThreads = threadBean.getThreadCount() - baselineThreads;
+        this.addedHeapBytes = usedHeapAfterGc() - baselineHeapBytes;
+    }
+    
+    private long usedHeapAfterGc() {
+        memoryBean.gc();
+        return memoryBean.getHeapMemoryUsage().getUsed();
+    }
+    
+    public double getThreadsPerSession() {
+        return sessionCount > 0 ? (double) addedThreads / sessionCount : 0.0;
+    }
+    
+    public double getHeapKbPerSession() {
+        return sessionCount > 0 ? addedHeapBytes / 1024.0 / sessionCount : 0.0;
+    }
+    
+    public void logSummary() {
+        logger.info("=== Engine Footprint [{}] ===", mode);
+        logger.info("Sessions: {}", sessionCount);
+        logger.info("Threads Added: {} ({} per session)", addedThreads, String.format("%.2f", getThreadsPerSession()));
+        logger.info("Heap Added: {} MB ({} KB per session)",
+                String.format("%.2f", addedHeapBytes / 1024.0 / 1024.0),
+                String.format("%.2f", getHeapKbPerSession()));
+    }
+    
+    public String getMode() {
+        return mode;
+    }
+    
+    public int getSessionCount() {
+        return sessionCount;
+    }
+    
+    public int getAddedThreads() {
+        return addedThreads;
+    }
+    
+    public long getAddedHeapBytes() {
+        return addedHeapBytes;
+    }
+}
\ No newline at end of file
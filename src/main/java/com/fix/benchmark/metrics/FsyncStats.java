@@ -0,0 +1,56 @@
+package com.fix.benchmark.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消息存储刷盘统计: 次数、耗时分布以及每次刷盘覆盖的消息数(组提交的批量大小)
+ */
+public class FsyncStats {
+    private static final Logger logger = LoggerFactory.getLogger(FsyncStats.class);
+    
+    // 刷盘耗时，单位纳秒
+    private final Log2Histogram latency = new Log2Histogram();
+    private final LongAdder messagesCovered = new LongAdder();
+    
+    public void record(long nanos, long messages) {
+        latency.record(nanos);
+        messagesCovered.add(messages);
+    }
+    
+    public long getCount() {
+        return latency.getCount();
+    }
+    
+    public double getAverageMicros() {
+        return latency.getMean() / 1000.0;
+    }
+    
+    public double getMaxMicros() {
+        return latency.getMax() / 1000.0;
+    }
+    
+    /**
+     * 分位数的上界估计，单位微秒
+     */
+    public long getPercentileMicros(double percentile) {
+        return latency.getPercentile(percentile) / 1000;
+    }
+    
+    public double getMessagesPerSync() {
+        long n = latency.getCount();
+        return n > 0 ? (double) messagesCovered.sum() / n : 0.0;
+    }
+    
+    public void logSummary() {
+        logger.info("Fsync Count: {}", getCount());
+        logger.info("Fsync Latency: avg={} us, p50<={} us, p99<={} us, max={} us",
+                String.format("%.1f", getAverageMicros()),
+                getPercentileMicros(50),
+                getPercentileMicros(99),
+                String.format("%.1f", getMaxMicros()));
+        logger.info("Messages Per Fsync: {}", String.format("%.2f", getMessagesPerSync()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.fix.benchmark.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟记录器，基于HdrHistogram的对数-线性分桶，内存固定，分辨率1微秒、3位有效数字。
+ * <p>
+ * 记录线程按线程ID分散到若干个{@link Recorder}上，每个Recorder内部按阶段交换活动/非活动直方图，
+ * 记录是无锁、无分配的。读取时取出各分片自上次读取以来的区间直方图并合并，
+ * 区间结果用于实时报告，同时累加进总直方图用于最终报告。
+ * ThreadedSocketInitiator下每个会话一个线程，因此按分片而不是按线程建立Recorder，内存不随线程数增长。
+ */
+public class LatencyRecorder {
+    // 超过上限的值按上限记录，超时之外的延迟不会达到这个量级
+    public static final long DEFAULT_HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long LOWEST_DISCERNIBLE_NANOS = 1_000;
+    private static final int SIGNIFICANT_DIGITS = 3;
+    
+    private final long highestTrackableNanos;
+    private final int mask;
+    private final Recorder[] stripes;
+    private final Histogram[] recycled;
+    
+    // 以下只在持有本对象锁时访问: 上次sampleInterval以来的分布和累计分布
+    private final Histogram interval;
+    private final Histogram cumulative;
+    
+    public LatencyRecorder() {
+        this(DEFAULT_HIGHEST_TRACKABLE_NANOS);
+    }
+    
+    public LatencyRecorder(long highestTrackableNanos) {
+        this.highestTrackableNanos = highestTrackableNanos;
+        // 分片数取不小于2倍核数的2的幂
+        int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1);
+        this.mask = count - 1;
+        this.stripes = new Recorder[count];
+        this.recycled = new Histogram[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Recorder(LOWEST_DISCERNIBLE_NANOS, highestTrackableNanos, SIGNIFICANT_DIGITS);
+        }
+        this.interval = new Histogram(LOWEST_DISCERNIBLE_NANOS, highestTrackableNanos, SIGNIFICANT_DIGITS);
+        this.cumulative = new Histogram(LOWEST_DISCERNIBLE_NANOS, highestTrackableNanos, SIGNIFICANT_DIGITS);
+    }
+    
+    public void record(long latencyNanos) {
+        long value = latencyNanos < 0 ? 0 : Math.min(latencyNanos, highestTrackableNanos);
+        stripes[(int) Thread.currentThread().getId() & mask].recordValue(value);
+    }
+    
+    /**
+     * 自上次调用以来的延迟分布，同时计入累计分布
+     */
+    public synchronized LatencySnapshot sampleInterval() {
+        drain();
+        LatencySnapshot snapshot = LatencySnapshot.of(interval);
+        interval.reset();
+        return snapshot;
+    }
+    
+    /**
+     * 从创建或上次reset以来的累计延迟分布
+     */
+    public synchronized LatencySnapshot getCumulative() {
+        drain();
+        return LatencySnapshot.of(cumulative);
+    }
+    
+    public synchronized void reset() {
+        for (Recorder stripe : stripes) {
+            stripe.reset();
+        }
+        interval.reset();
+        cumulative.reset();
+    }
+    
+    private void drain() {
+        for (int i = 0; i < stripes.length; i++) {
+            recycled[i] = stripes[i].getIntervalHistogram(recycled[i]);
+            interval.add(recycled[i]);
+            cumulative.add(recycled[i]);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.fix.benchmark.metrics;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * 某一时刻或某一区间的延迟分布，单位纳秒
+ */
+public class LatencySnapshot {
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0.0, 0, 0, 0, 0, 0, 0);
+    
+    public final long count;
+    public final long minNanos;
+    public final long maxNanos;
+    public final double meanNanos;
+    public final long p50Nanos;
+    public final long p90Nanos;
+    public final long p95Nanos;
+    public final long p99Nanos;
+    public final long p999Nanos;
+    public final long p9999Nanos;
+    
+    public LatencySnapshot(long count, long minNanos, long maxNanos, double meanNanos,
+                           long p50Nanos, long p90Nanos, long p95Nanos, long p99Nanos,
+                           long p999Nanos, long p9999Nanos) {
+        this.count = count;
+        this.minNanos = minNanos;
+        this.maxNanos = maxNanos;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p95Nanos = p95Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.p9999Nanos = p9999Nanos;
+    }
+    
+    static LatencySnapshot of(Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return EMPTY;
+        }
+        return new LatencySnapshot(
+                histogram.getTotalCount(),
+                histogram.getMinValue(),
+                histogram.getMaxValue(),
+                histogram.getMean(),
+                histogram.getValueAtPercentile(50.0),
+                histogram.getValueAtPercentile(90.0),
+                histogram.getValueAtPercentile(95.0),
+                histogram.getValueAtPercentile(99.0),
+                histogram.getValueAtPercentile(99.9),
+                histogram.getValueAtPercentile(99.99));
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "count=%d, min=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms, p99.9=%.3fms, p99.99=%.3fms, max=%.3fms",
+            count,
+            minNanos / 1_000_000.0,
+            p50Nanos / 1_000_000.0,
+            p90Nanos / 1_000_000.0,
+            p99Nanos / 1_000_000.0,
+            p999Nanos / 1_000_000.0,
+            p9999Nanos / 1_000_000.0,
+            maxNanos / 1_000_000.0
+        );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.fix.benchmark.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按2的幂分桶的简单直方图，第i个桶覆盖 [2^(i-1), 2^i)。
+ * 适合量级跨度大、只需要粗略分位数的统计，例如刷盘和登录耗时。
+ */
+public class Log2Histogram {
+    private static final int BUCKETS = 64;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+        count.increment();
+        total.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public double getMean() {
+        long n = count.sum();
+        return n > 0 ? (double) total.sum() / n : 0.0;
+    }
+    
+    public long getMax() {
+        return max.get();
+    }
+    
+    /**
+     * 分位数的上界估计(所在桶的上沿)
+     */
+    public long getPercentile(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return i == 0 ? 0 : Math.min(max.get(), (1L << i) - 1);
+            }
+        }
+        return max.get();
+    }
+}
\ No newline at end of file
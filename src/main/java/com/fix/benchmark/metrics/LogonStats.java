@@ -0,0 +1,95 @@
+package com.fix.benchmark.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 会话建立阶段的统计: 登录尝试/重试/失败次数、单次登录耗时分布以及每秒登录数
+ */
+public class LogonStats {
+    private static final Logger logger = LoggerFactory.getLogger(LogonStats.class);
+    
+    // 从发起连接到收到登录确认的耗时，单位毫秒
+    private final Log2Histogram latency = new Log2Histogram();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    
+    // 每秒(相对起始时间)完成的登录数
+    private final ConcurrentSkipListMap<Long, LongAdder> logonsPerSecond = new ConcurrentSkipListMap<>();
+    private volatile long startNanos = System.nanoTime();
+    private volatile long lastLogonNanos;
+    
+    public void reset() {
+        logonsPerSecond.clear();
+        startNanos = System.nanoTime();
+        lastLogonNanos = 0;
+    }
+    
+    public void recordAttempt(boolean retry) {
+        attempts.increment();
+        if (retry) {
+            retries.increment();
+        }
+    }
+    
+    public void recordLogon(long latencyNanos) {
+        latency.record(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        long now = System.nanoTime();
+        lastLogonNanos = now;
+        long second = TimeUnit.NANOSECONDS.toSeconds(now - startNanos);
+        logonsPerSecond.computeIfAbsent(second, k -> new LongAdder()).increment();
+    }
+    
+    public void recordFailure() {
+        failures.increment();
+    }
+    
+    public long getLogons() {
+        return latency.getCount();
+    }
+    
+    public long getAttempts() {
+        return attempts.sum();
+    }
+    
+    public long getRetries() {
+        return retries.sum();
+    }
+    
+    public long getFailures() {
+        return failures.sum();
+    }
+    
+    public long getLatencyPercentileMs(double percentile) {
+        return latency.getPercentile(percentile);
+    }
+    
+    /**
+     * 从起始到最后一次登录的平均每秒登录数
+     */
+    public double getAverageLogonsPerSecond() {
+        long elapsed = lastLogonNanos - startNanos;
+        return lastLogonNanos == 0 || elapsed <= 0 ? 0.0 : getLogons() * 1_000_000_000.0 / elapsed;
+    }
+    
+    public long getPeakLogonsPerSecond() {
+        return logonsPerSecond.values().stream().mapToLong(LongAdder::sum).max().orElse(0);
+    }
+    
+    public void logSummary() {
+        logger.info("Logon Attempts: {} (retries {}, failed sessions {})", getAttempts(), getRetries(), getFailures());
+        logger.info("Logon Latency: avg={} ms, p50<={} ms, p90<={} ms, p99<={} ms, max={} ms",
+                String.format("%.1f", latency.getMean()),
+                getLatencyPercentileMs(50),
+                getLatencyPercentileMs(90),
+                getLatencyPercentileMs(99),
+                latency.getMax());
+        logger.info("Logon Throughput: avg={} logons/s, peak={} logons/s",
+                String.format("%.1f", getAverageLogonsPerSecond()), getPeakLogonsPerSecond());
+    }
+}
\ No newline at end of file
@@ -5,6 +5,8 @@ import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.TimeUnit;
@@ -17,6 +19,15 @@ public class MetricsCollector {
     private final AtomicLong messagesReceived = new AtomicLong(0);
     private final LongAdder totalLatency = new LongAdder();
     
+    // 引擎启动到会话登录完成的时间
+    private volatile long timeToLogonNanos;
+    
+    // 运行模式(存储/日志等)，写入报告以便比较不同运行
+    private final Map<String, String> runModes = new ConcurrentHashMap<>();
+    
+    // 持久化存储的刷盘统计，仅durable存储产生数据
+    private final FsyncStats fsyncStats = new FsyncStats();
+    
     public MetricsCollector() {
         this.responseTimer = Timer.builder("fix.response.time")
                 .description("Time taken for FIX response")
@@ -33,16 +44,37 @@ public class MetricsCollector {
         responseTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
     }
     
+    public void recordTimeToLogon(long nanos) {
+        timeToLogonNanos = nanos;
+    }
+    
+    public double getTimeToLogonMs() {
+        return timeToLogonNanos / 1_000_000.0;
+    }
+    
+    public void recordRunMode(String name, String value) {
+        runModes.put(name, value);
+    }
+    
+    public FsyncStats getFsyncStats() {
+        return fsyncStats;
+    }
+    
     public void logSummary() {
         long sent = messagesSent.get();
         long received = messagesReceived.get();
         double avgLatencyMs = totalLatency.sum() / (double) received / 1_000_000.0;
         
         logger.info("=== Performance Summary ===");
+        logger.info("Run Modes: {}", runModes);
+        logger.info("Time To Logon: {} ms", String.format("%.1f", getTimeToLogonMs()));
         logger.info("Messages Sent: {}", sent);
         logger.info("Messages Received: {}", received);
         logger.info("Average Latency: {} ms", String.format("%.3f", avgLatencyMs));
         logger.info("Success Rate: {}%", String.format("%.2f", (received * 100.0 / sent)));
+        if (fsyncStats.getCount() > 0) {
+            fsyncStats.logSummary();
+        }
     }
     
     public void shutdown() {
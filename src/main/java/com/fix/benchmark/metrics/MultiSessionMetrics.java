@@ -7,6 +7,7 @@ import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -27,9 +28,35 @@ public class MultiSessionMetrics {
     private final LongAdder totalMessagesReceived = new LongAdder();
     private final LongAdder totalRequestsSent = new LongAdder();
     private final LongAdder totalResponsesReceived = new LongAdder();
+    private final LongAdder totalRequestTimeouts = new LongAdder();
     
     private final Timer globalResponseTimer;
     
+    // 全局延迟分布，实时报告取区间值，最终报告取累计值:
+    // 应答延迟从计划发送时间算起，服务时间从实际发送时间算起，发送端滞后为两者之差
+    private final LatencyRecorder responseTime = new LatencyRecorder();
+    private final LatencyRecorder serviceTime = new LatencyRecorder();
+    private final LatencyRecorder senderLag = new LatencyRecorder();
+    private final PhaseLatencyRecorder phaseLatency = new PhaseLatencyRecorder();
+    
+    // 启动阶段: 从开始建立会话到第一个/全部会话登录完成
+    private volatile long startupBeginNanos;
+    private volatile long allLogonsNanos;
+    private final AtomicLong firstLogonNanos = new AtomicLong(0);
+    private final AtomicLong lastLogonNanos = new AtomicLong(0);
+    
+    // 运行模式(存储/日志/Initiator布局等)，写入报告以便比较不同运行
+    private final Map<String, String> runModes = new ConcurrentHashMap<>();
+    
+    // 持久化存储的刷盘统计，仅durable存储产生数据
+    private final FsyncStats fsyncStats = new FsyncStats();
+    
+    // 会话建立阶段的登录耗时与吞吐
+    private final LogonStats logonStats = new LogonStats();
+    
+    // 发送路径的每消息分配字节数
+    private final SendAllocationStats sendAllocationStats = new SendAllocationStats();
+    
     public MultiSessionMetrics() {
         this.globalResponseTimer = Timer.builder("fix.global.response.time")
                 .description("Global FIX response time across all sessions")
@@ -42,6 +69,10 @@ public class MultiSessionMetrics {
                 .register(Metrics.globalRegistry);
         Gauge.builder("fix.connections.failed", failedConnections, AtomicLong::get)
                 .register(Metrics.globalRegistry);
+        Gauge.builder("fix.startup.first.logon.ms", this, MultiSessionMetrics::getTimeToFirstLogonMs)
+                .register(Metrics.globalRegistry);
+        Gauge.builder("fix.startup.all.logons.ms", this, MultiSessionMetrics::getTimeToAllLogonsMs)
+                .register(Metrics.globalRegistry);
     }
     
     public void recordConnectionSuccess(String sessionId) {
@@ -57,9 +88,40 @@ public class MultiSessionMetrics {
     }
     
     public void recordSessionLogin(String sessionId) {
+        long now = System.nanoTime();
+        firstLogonNanos.compareAndSet(0, now);
+        lastLogonNanos.accumulateAndGet(now, Math::max);
         getSessionMetrics(sessionId).recordLogin();
     }
     
+    /**
+     * 开始建立会话时调用
+     */
+    public void recordStartupBegin() {
+        firstLogonNanos.set(0);
+        lastLogonNanos.set(0);
+        allLogonsNanos = 0;
+        logonStats.reset();
+        startupBeginNanos = System.nanoTime();
+    }
+    
+    /**
+     * 所有会话登录成功或失败后调用，固定最后一次登录的时间，之后的重连不再计入
+     */
+    public void recordStartupComplete() {
+        allLogonsNanos = lastLogonNanos.get();
+    }
+    
+    public double getTimeToFirstLogonMs() {
+        long first = firstLogonNanos.get();
+        return startupBeginNanos == 0 || first == 0 ? 0.0 : (first - startupBeginNanos) / 1_000_000.0;
+    }
+    
+    public double getTimeToAllLogonsMs() {
+        long all = allLogonsNanos;
+        return startupBeginNanos == 0 || all == 0 ? 0.0 : (all - startupBeginNanos) / 1_000_000.0;
+    }
+    
     public void recordSessionLogout(String sessionId) {
         getSessionMetrics(sessionId).recordLogout();
     }
@@ -71,9 +133,21 @@ public class MultiSessionMetrics {
     
     public void recordResponse(String sessionId, long latencyNanos) {
         globalResponseTimer.record(latencyNanos, TimeUnit.NANOSECONDS);
+        responseTime.record(latencyNanos);
         getSessionMetrics(sessionId).recordResponse(latencyNanos);
     }
     
+    /**
+     * 由共用本类记录器的请求跟踪器在应答关联后调用，延迟分布已由跟踪器记录，这里只更新计数和会话统计
+     */
+    void recordTrackedResponse(String sessionId, long responseTimeNanos) {
+        globalResponseTimer.record(responseTimeNanos, TimeUnit.NANOSECONDS);
+        totalResponsesReceived.increment();
+        SessionMetrics session = getSessionMetrics(sessionId);
+        session.recordResponse(responseTimeNanos);
+        session.recordResponseReceived();
+    }
+    
     public void recordRequestSent(String sessionId) {
         totalRequestsSent.increment();
         getSessionMetrics(sessionId).recordRequestSent();
@@ -88,38 +162,98 @@ public class MultiSessionMetrics {
         getSessionMetrics(sessionId).recordSendFailure(reason);
     }
     
-    public void recordResponseReceived(String sessionId) {
-        totalResponsesReceived.increment();
-        getSessionMetrics(sessionId).recordResponseReceived();
+    /**
+     * 超时未应答的请求数，之后到达的应答不再计入
+     */
+    public void recordRequestTimeouts(String sessionId, int count) {
+        totalRequestTimeouts.add(count);
+        getSessionMetrics(sessionId).recordRequestTimeouts(count);
+    }
+    
+    public long getTotalRequestTimeouts() {
+        return totalRequestTimeouts.sum();
     }
     
     private SessionMetrics getSessionMetrics(String sessionId) {
         return sessionMetrics.computeIfAbsent(sessionId, k -> new SessionMetrics(k));
     }
     
+    public void recordRunMode(String name, String value) {
+        runModes.put(name, value);
+    }
+    
+    public Map<String, String> getRunModes() {
+        return runModes;
+    }
+    
+    public FsyncStats getFsyncStats() {
+        return fsyncStats;
+    }
+    
+    public LogonStats getLogonStats() {
+        return logonStats;
+    }
+    
+    public SendAllocationStats getSendAllocationStats() {
+        return sendAllocationStats;
+    }
+    
+    public LatencyRecorder getResponseTime() {
+        return responseTime;
+    }
+    
+    public LatencyRecorder getServiceTime() {
+        return serviceTime;
+    }
+    
+    public LatencyRecorder getSenderLag() {
+        return senderLag;
+    }
+    
+    public PhaseLatencyRecorder getPhaseLatency() {
+        return phaseLatency;
+    }
+    
     public void logSummary() {
         logger.info("=== Multi-Session Performance Summary ===");
+        logger.info("Run Modes: {}", runModes);
         logger.info("Total Connections: {}", totalConnections.get());
         logger.info("Successful Connections: {} ({}%)", 
                 successfulConnections.get(), 
                 getConnectionSuccessRate());
         logger.info("Failed Connections: {}", failedConnections.get());
+        logger.info("Time To First Logon: {} ms", String.format("%.1f", getTimeToFirstLogonMs()));
+        logger.info("Time To All Logons: {} ms", String.format("%.1f", getTimeToAllLogonsMs()));
+        if (logonStats.getAttempts() > 0) {
+            logonStats.logSummary();
+        }
         
         logger.info("Total Messages Sent: {}", totalMessagesSent.sum());
         logger.info("Total Messages Received: {}", totalMessagesReceived.sum());
         logger.info("Total Requests Sent: {}", totalRequestsSent.sum());
         logger.info("Total Responses Received: {}", totalResponsesReceived.sum());
+        logger.info("Total Request Timeouts: {}", totalRequestTimeouts.sum());
+        if (sendAllocationStats.getMessages() > 0) {
+            sendAllocationStats.logSummary(runModes.getOrDefault("send-path", "session"));
+        }
         
         logger.info("Global Response Rate: {}%", getGlobalResponseRate());
         logger.info("Global Average Latency: {} ms", getGlobalAverageLatencyMs());
+        logger.info("Response Time (from intended send): {}", responseTime.getCumulative());
+        logger.info("Service Time (from actual send): {}", serviceTime.getCumulative());
+        logger.info("Sender Lag: {}", senderLag.getCumulative());
+        if (fsyncStats.getCount() > 0) {
+            fsyncStats.logSummary();
+        }
         
         // 会话详细统计
         sessionMetrics.forEach((sessionId, metrics) -> {
-            logger.info("Session {}: Connected={}, Messages={}, Responses={}, AvgLatency={}ms, SuccessRate={}%",
+            logger.info("Session {}: Connected={}, Messages={}, Responses={}, Timeouts={}, AvgLatency={}ms, SuccessRate={}%",
                     sessionId,
                     metrics.isConnected(),
                     metrics.getMessagesSent(),
                     metrics.getResponsesReceived(),
+                    metrics.getRequestTimeouts(),
                     String.format("%.2f", metrics.getAverageLatencyMs()),
                     String.format("%.2f", metrics.getResponseRate()));
         });
@@ -156,6 +290,7 @@ public class MultiSessionMetrics {
         private final AtomicLong messagesSent = new AtomicLong(0);
         private final AtomicLong requestsSent = new AtomicLong(0);
         private final AtomicLong responsesReceived = new AtomicLong(0);
+        private final AtomicLong requestTimeouts = new AtomicLong(0);
         private final LongAdder totalLatency = new LongAdder();
         
         private final Timer sessionResponseTimer;
@@ -204,6 +339,10 @@ public class MultiSessionMetrics {
             // 可以记录失败原因
         }
         
+        public void recordRequestTimeouts(int count) {
+            requestTimeouts.addAndGet(count);
+        }
+        
         public boolean isConnected() {
             return loginCount.get() > logoutCount.get();
         }
@@ -216,6 +355,10 @@ public class MultiSessionMetrics {
             return responsesReceived.get();
         }
         
+        public long getRequestTimeouts() {
+            return requestTimeouts.get();
+        }
+        
         public double getAverageLatencyMs() {
             long responses = responsesReceived.get();
             if (responses == 0) return 0.0;
@@ -0,0 +1,86 @@
+package com.fix.benchmark.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按负载曲线的阶段统计应答延迟。请求按计划发送时间归入阶段，阶段结束后才到达的应答仍计入发出时的阶段，
+ * 阶段切换处不会把上一阶段积压的延迟算到下一阶段。未调用{@link #start}时不记录。
+ */
+public class PhaseLatencyRecorder {
+    private static final int SIGNIFICANT_DIGITS = 3;
+    
+    private volatile Phases phases;
+    
+    /**
+     * 开始按阶段记录，endOffsetsNanos为各阶段相对startNanos的结束时间，按升序排列
+     */
+    public void start(long startNanos, String[] names, long[] endOffsetsNanos) {
+        phases = new Phases(startNanos, names, endOffsetsNanos);
+    }
+    
+    public void record(long intendedNanos, long latencyNanos) {
+        Phases current = phases;
+        if (current == null) {
+            return;
+        }
+        long offset = intendedNanos - current.startNanos;
+        int index = 0;
+        while (index < current.endOffsets.length - 1 && offset >= current.endOffsets[index]) {
+            index++;
+        }
+        long value = latencyNanos < 0 ? 0 : Math.min(latencyNanos, LatencyRecorder.DEFAULT_HIGHEST_TRACKABLE_NANOS);
+        current.histograms[index].recordValue(value);
+    }
+    
+    /**
+     * 清空各阶段已记录的延迟，阶段划分不变
+     */
+    public void reset() {
+        Phases current = phases;
+        if (current != null) {
+            for (Histogram histogram : current.histograms) {
+                histogram.reset();
+            }
+        }
+    }
+    
+    /**
+     * 各阶段的延迟分布，按阶段顺序排列
+     */
+    public Map<String, LatencySnapshot> getPhaseLatencies() {
+        Phases current = phases;
+        if (current == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, LatencySnapshot> result = new LinkedHashMap<>();
+        for (int i = 0; i < current.names.length; i++) {
+            result.put(current.names[i], LatencySnapshot.of(current.histograms[i].copy()));
+        }
+        return result;
+    }
+    
+    private static final class Phases {
+        final long startNanos;
+        final String[] names;
+        final long[] endOffsets;
+        final Histogram[] histograms;
+        
+        Phases(long startNanos, String[] names, long[] endOffsets) {
+            if (names.length == 0 || names.length != endOffsets.length) {
+                throw new IllegalArgumentException("Phase names and end offsets must be non-empty and of equal length");
+            }
+            this.startNanos = startNanos;
+            this.names = names.clone();
+            this.endOffsets = endOffsets.clone();
+            this.histograms = new Histogram[names.length];
+            for (int i = 0; i < names.length; i++) {
+                histograms[i] = new ConcurrentHistogram(LatencyRecorder.DEFAULT_HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+            }
+        }
+    }
+}
\ No newline at end of file
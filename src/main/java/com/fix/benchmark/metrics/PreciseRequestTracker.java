@@ -3,176 +3,276 @@ package com.fix.benchmark.metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 请求/应答跟踪。每个会话一个{@link RequestRing}，在途请求只占用环中的long槽位，
+ * 超时由{@link RequestTimeoutWheel}按毫秒检测，本类汇总各环的应答、超时和延迟统计。
+ * <p>
+ * 内嵌时间戳模式下发送时间随TestReqID发出并由应答带回，环不保存发送时间，
+ * 延迟不依赖任何按请求查找的状态；两种模式记入同一组延迟分布。
+ */
 public class PreciseRequestTracker {
     private static final Logger logger = LoggerFactory.getLogger(PreciseRequestTracker.class);
     
-    // 请求跟踪映射
-    private final ConcurrentHashMap<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    // 每会话的最小环容量；实际容量需覆盖超时时间内单个会话的在途请求数，见ringCapacity
+    public static final int DEFAULT_RING_CAPACITY = 256;
+    // 按速率估算时的上限，每个槽位最多24字节
+    public static final int MAX_RING_CAPACITY = 1 << 20;
+    
+    // 会话ID -> 在途请求环，只在会话创建时写入
+    private final ConcurrentHashMap<String, RequestRing> rings = new ConcurrentHashMap<>();
+    private final int ringCapacity;
+    private final boolean embeddedTimestamps;
+    // 内嵌时间戳的基准，时间戳只编码相对它的偏移
+    private final long epochNanos = System.nanoTime();
+    
+    // 环编号 -> 环，供时间轮按条目中的编号找回环；只在注册时整体替换
+    private volatile RequestRing[] ringsById = new RequestRing[0];
     
     // 统计信息
-    private final AtomicLong totalRequests = new AtomicLong(0);
-    private final AtomicLong totalResponses = new AtomicLong(0);
-    private final AtomicLong totalTimeouts = new AtomicLong(0);
-    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAdder totalRequests = new LongAdder();
+    private final LongAdder totalResponses = new LongAdder();
+    // 超时分两类: 到期未应答，以及环槽位被新请求覆盖
+    private final LongAdder expiredTimeouts = new LongAdder();
+    private final LongAdder overrunTimeouts = new LongAdder();
     
-    // 延迟分布统计
-    private final ConcurrentSkipListMap<Long, AtomicLong> latencyDistribution = new ConcurrentSkipListMap<>();
+    // 延迟分布统计: 应答延迟从计划发送时间算起，服务时间从实际发送时间算起，发送端滞后为两者之差。
+    // 与MultiSessionMetrics共用时就是它的记录器
+    private final LatencyRecorder responseTime;
+    private final LatencyRecorder serviceTime;
+    private final LatencyRecorder senderLag;
+    private final PhaseLatencyRecorder phaseLatency;
+    // 不为null时应答和超时同时计入它的全局和会话统计
+    private final MultiSessionMetrics metrics;
     
     // 超时配置
     private final long timeoutMillis;
-    
-    // 性能边界
-    private volatile long minLatencyNanos = Long.MAX_VALUE;
-    private volatile long maxLatencyNanos = Long.MIN_VALUE;
+    private final RequestTimeoutWheel timeoutWheel;
     
     public PreciseRequestTracker(long timeoutMillis) {
+        this(timeoutMillis, DEFAULT_RING_CAPACITY);
+    }
+    
+    public PreciseRequestTracker(long timeoutMillis, int ringCapacity) {
+        this(timeoutMillis, ringCapacity, false);
+    }
+    
+    /**
+     * @param embeddedTimestamps 为true时延迟由TestReqID中回显的发送时间计算，环只用于超时检测
+     */
+    public PreciseRequestTracker(long timeoutMillis, int ringCapacity, boolean embeddedTimestamps) {
+        this(timeoutMillis, ringCapacity, embeddedTimestamps, null);
+    }
+    
+    /**
+     * @param metrics 不为null时延迟记入它的记录器，应答和超时计入它的会话统计，引擎的汇总报告与跟踪器一致
+     */
+    public PreciseRequestTracker(long timeoutMillis, int ringCapacity, boolean embeddedTimestamps, MultiSessionMetrics metrics) {
         this.timeoutMillis = timeoutMillis;
+        this.ringCapacity = ringCapacity;
+        this.embeddedTimestamps = embeddedTimestamps;
+        this.metrics = metrics;
+        if (metrics != null) {
+            this.responseTime = metrics.getResponseTime();
+            this.serviceTime = metrics.getServiceTime();
+            this.senderLag = metrics.getSenderLag();
+            this.phaseLatency = metrics.getPhaseLatency();
+        } else {
+            this.responseTime = new LatencyRecorder();
+            this.serviceTime = new LatencyRecorder();
+            this.senderLag = new LatencyRecorder();
+            this.phaseLatency = new PhaseLatencyRecorder();
+        }
+        this.timeoutWheel = new RequestTimeoutWheel(this, timeoutMillis);
     }
     
     /**
-     * 记录发送的请求
+     * 按峰值总速率估算每会话的环容量: 超时时间内单个会话的平均在途请求数留一倍余量
+     * (会话选择不均匀时个别会话更多)，取不小于它的2的幂，限制在[DEFAULT_RING_CAPACITY, MAX_RING_CAPACITY]。
+     * 容量不足时未到期的请求被新请求覆盖并计为超时
      */
-    public void recordRequest(String testReqId, long sendTimeNanos) {
-        PendingRequest request = new PendingRequest(testReqId, sendTimeNanos);
-        pendingRequests.put(testReqId, request);
-        totalRequests.incrementAndGet();
+    public static int ringCapacity(double peakRate, long timeoutMillis, int sessions) {
+        double inFlight = 2 * peakRate * timeoutMillis / 1000.0 / Math.max(1, sessions);
+        if (!(inFlight > DEFAULT_RING_CAPACITY)) {
+            return DEFAULT_RING_CAPACITY;
+        }
+        if (inFlight >= MAX_RING_CAPACITY) {
+            return MAX_RING_CAPACITY;
+        }
+        int required = (int) Math.ceil(inFlight);
+        int capacity = Integer.highestOneBit(required);
+        return capacity == required ? capacity : capacity << 1;
     }
     
     /**
-     * 记录响应到达
+     * 会话的在途请求环，同一会话多次调用返回同一个实例。应在会话创建时获取并保存
      */
-    public void recordResponse(String testReqId, long receiveTimeNanos) {
-        PendingRequest request = pendingRequests.remove(testReqId);
-        if (request != null) {
-            long latency = receiveTimeNanos - request.sendTimeNanos;
-            totalResponses.incrementAndGet();
-            totalLatencyNanos.add(latency);
-            
-            // 更新边界值
-            updateLatencyBounds(latency);
-            
-            // 记录延迟分布
-            recordLatencyDistribution(latency);
-            
-            request.markCompleted(latency);
+    public RequestRing ringFor(String sessionId) {
+        return rings.computeIfAbsent(sessionId, this::registerRing);
+    }
+    
+    private synchronized RequestRing registerRing(String sessionId) {
+        RequestRing[] current = ringsById;
+        if (current.length >= 1 << (Long.SIZE - 1 - RequestTimeoutWheel.SEQUENCE_BITS)) {
+            throw new IllegalStateException("Too many sessions for request tracking: " + current.length);
+        }
+        RequestRing ring = new RequestRing(this, sessionId, current.length, ringCapacity, embeddedTimestamps);
+        RequestRing[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = ring;
+        ringsById = next;
+        return ring;
+    }
+    
+    public boolean isEmbeddedTimestamps() {
+        return embeddedTimestamps;
+    }
+    
+    long getEpochNanos() {
+        return epochNanos;
+    }
+    
+    RequestRing ringById(int ringId) {
+        RequestRing[] current = ringsById;
+        return ringId < current.length ? current[ringId] : null;
+    }
+    
+    void scheduleTimeout(int ringId, long sequence, long sendNanos) {
+        timeoutWheel.schedule(ringId, sequence, sendNanos);
+    }
+    
+    void onRequest(long senderLagNanos) {
+        totalRequests.increment();
+        senderLag.record(senderLagNanos);
+    }
+    
+    void onCancel() {
+        totalRequests.decrement();
+    }
+    
+    void onResponse(String sessionId, long intendedNanos, long serviceTimeNanos, long responseTimeNanos) {
+        totalResponses.increment();
+        serviceTime.record(serviceTimeNanos);
+        responseTime.record(responseTimeNanos);
+        phaseLatency.record(intendedNanos, responseTimeNanos);
+        if (metrics != null) {
+            metrics.recordTrackedResponse(sessionId, responseTimeNanos);
+        }
+    }
+    
+    void onExpired(String sessionId) {
+        expiredTimeouts.increment();
+        if (metrics != null) {
+            metrics.recordRequestTimeouts(sessionId, 1);
+        }
+    }
+    
+    void onOverrun(String sessionId) {
+        overrunTimeouts.increment();
+        if (metrics != null) {
+            metrics.recordRequestTimeouts(sessionId, 1);
         }
     }
     
     /**
-     * 检查并处理超时请求
+     * 立即处理到currentTimeNanos为止到期的请求。时间轮每毫秒自动推进，
+     * 这里只用于在读取统计之前确保到期请求都已计入
      */
     public void checkTimeouts(long currentTimeNanos) {
-        long timeoutNanos = timeoutMillis * 1_000_000L;
-        
-        pendingRequests.entrySet().removeIf(entry -> {
-            PendingRequest request = entry.getValue();
-            if (currentTimeNanos - request.sendTimeNanos > timeoutNanos) {
-                totalTimeouts.incrementAndGet();
-                request.markTimeout();
-                logger.debug("Request {} timed out after {} ms", 
-                        request.testReqId, timeoutMillis);
-                return true;
-            }
-            return false;
-        });
+        int expired = timeoutWheel.advance(currentTimeNanos);
+        if (expired > 0) {
+            logger.debug("{} requests timed out after {} ms", expired, timeoutMillis);
+        }
+    }
+    
+    public long getExpiredTimeouts() {
+        return expiredTimeouts.sum();
+    }
+    
+    public long getOverrunTimeouts() {
+        return overrunTimeouts.sum();
     }
     
     /**
-     * 获取统计摘要
+     * 有超时的会话及其超时次数，按次数从多到少排列
+     */
+    public Map<String, Long> getTimeoutsBySession() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        rings.values().stream()
+                .filter(ring -> ring.getTimeouts() > 0)
+                .sorted((a, b) -> Long.compare(b.getTimeouts(), a.getTimeouts()))
+                .forEach(ring -> result.put(ring.getSessionId(), ring.getTimeouts()));
+        return result;
+    }
+    
+    /**
+     * 获取统计摘要，延迟为从开始或上次reset以来的累计分布，延迟字段为从计划发送时间算起的应答延迟
      */
     public StatsSnapshot getStats() {
-        long total = totalRequests.get();
-        long responses = totalResponses.get();
-        long timeouts = totalTimeouts.get();
-        
-        double avgLatency = total > 0 ? totalLatencyNanos.sum() / (double) responses : 0.0;
+        long total = totalRequests.sum();
+        long responses = totalResponses.sum();
+        long timeouts = expiredTimeouts.sum() + overrunTimeouts.sum();
         
         return new StatsSnapshot(
                 total,
                 responses,
                 timeouts,
-                minLatencyNanos,
-                maxLatencyNanos,
-                avgLatency,
-                calculatePercentile(0.95),
-                calculatePercentile(0.99),
+                responseTime.getCumulative(),
+                serviceTime.getCumulative(),
+                senderLag.getCumulative(),
                 total > 0 ? (responses * 100.0 / total) : 0.0,
                 total > 0 ? (timeouts * 100.0 / total) : 0.0
         );
     }
     
-    private void updateLatencyBounds(long latency) {
-        minLatencyNanos = Math.min(minLatencyNanos, latency);
-        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+    /**
+     * 上次调用以来的应答延迟分布，用于实时报告
+     */
+    public LatencySnapshot getIntervalResponseTime() {
+        return responseTime.sampleInterval();
     }
     
-    private void recordLatencyDistribution(long latency) {
-        // 将延迟按微秒分组
-        long bucket = latency / 1000L; // 转换为微秒
-        latencyDistribution.computeIfAbsent(bucket, k -> new AtomicLong()).incrementAndGet();
+    public LatencySnapshot getIntervalServiceTime() {
+        return serviceTime.sampleInterval();
     }
     
-    private long calculatePercentile(double percentile) {
-        if (latencyDistribution.isEmpty()) return 0;
-        
-        long totalSamples = latencyDistribution.values().stream()
-                .mapToLong(AtomicLong::get)
-                .sum();
-        
-        long targetCount = (long) (totalSamples * percentile);
-        long cumulative = 0;
-        
-        for (Map.Entry<Long, AtomicLong> entry : latencyDistribution.entrySet()) {
-            cumulative += entry.getValue().get();
-            if (cumulative >= targetCount) {
-                return entry.getKey() * 1000L; // 转换回纳秒
-            }
-        }
-        
-        return latencyDistribution.lastKey() * 1000L;
+    public LatencySnapshot getIntervalSenderLag() {
+        return senderLag.sampleInterval();
+    }
+    
+    /**
+     * 按负载阶段划分的应答延迟
+     */
+    public PhaseLatencyRecorder getPhaseLatency() {
+        return phaseLatency;
     }
     
     public int getPendingCount() {
-        return pendingRequests.size();
+        int pending = 0;
+        for (RequestRing ring : rings.values()) {
+            pending += ring.getPendingCount();
+        }
+        return pending;
     }
     
     public void reset() {
-        pendingRequests.clear();
-        latencyDistribution.clear();
-        totalRequests.set(0);
-        totalResponses.set(0);
-        totalTimeouts.set(0);
-        totalLatencyNanos.reset();
-        minLatencyNanos = Long.MAX_VALUE;
-        maxLatencyNanos = Long.MIN_VALUE;
-    }
-    
-    // 内部类
-    private static class PendingRequest {
-        final String testReqId;
-        final long sendTimeNanos;
-        volatile long responseTimeNanos = -1;
-        volatile boolean completed = false;
-        volatile boolean timeout = false;
-        
-        PendingRequest(String testReqId, long sendTimeNanos) {
-            this.testReqId = testReqId;
-            this.sendTimeNanos = sendTimeNanos;
-        }
-        
-        void markCompleted(long latencyNanos) {
-            this.responseTimeNanos = latencyNanos;
-            this.completed = true;
-        }
-        
-        void markTimeout() {
-            this.timeout = true;
-        }
+        rings.values().forEach(RequestRing::clear);
+        responseTime.reset();
+        serviceTime.reset();
+        senderLag.reset();
+        phaseLatency.reset();
+        totalRequests.reset();
+        totalResponses.reset();
+        expiredTimeouts.reset();
+        overrunTimeouts.reset();
+    }
+    
+    public void shutdown() {
+        timeoutWheel.shutdown();
     }
     
     public static class StatsSnapshot {
@@ -182,23 +282,34 @@ public class PreciseRequestTracker {
         public final long minLatencyNanos;
         public final long maxLatencyNanos;
         public final double avgLatencyNanos;
+        public final long p50LatencyNanos;
+        public final long p90LatencyNanos;
         public final long p95LatencyNanos;
         public final long p99LatencyNanos;
+        public final long p999LatencyNanos;
+        public final long p9999LatencyNanos;
+        public final LatencySnapshot serviceTime;
+        public final LatencySnapshot senderLag;
         public final double responseRate;
         public final double timeoutRate;
         
         public StatsSnapshot(long totalRequests, long totalResponses, long totalTimeouts,
-                           long minLatencyNanos, long maxLatencyNanos, double avgLatencyNanos,
-                           long p95LatencyNanos, long p99LatencyNanos,
+                           LatencySnapshot latency, LatencySnapshot serviceTime, LatencySnapshot senderLag,
                            double responseRate, double timeoutRate) {
             this.totalRequests = totalRequests;
             this.totalResponses = totalResponses;
             this.totalTimeouts = totalTimeouts;
-            this.minLatencyNanos = minLatencyNanos;
-            this.maxLatencyNanos = maxLatencyNanos;
-            this.avgLatencyNanos = avgLatencyNanos;
-            this.p95LatencyNanos = p95LatencyNanos;
-            this.p99LatencyNanos = p99LatencyNanos;
+            this.minLatencyNanos = latency.minNanos;
+            this.maxLatencyNanos = latency.maxNanos;
+            this.avgLatencyNanos = latency.meanNanos;
+            this.p50LatencyNanos = latency.p50Nanos;
+            this.p90LatencyNanos = latency.p90Nanos;
+            this.p95LatencyNanos = latency.p95Nanos;
+            this.p99LatencyNanos = latency.p99Nanos;
+            this.p999LatencyNanos = latency.p999Nanos;
+            this.p9999LatencyNanos = latency.p9999Nanos;
+            this.serviceTime = serviceTime;
+            this.senderLag = senderLag;
             this.responseRate = responseRate;
             this.timeoutRate = timeoutRate;
         }
@@ -206,13 +317,16 @@ public class PreciseRequestTracker {
         @Override
         public String toString() {
             return String.format(
-                "Stats{total=%d, responses=%d, timeouts=%d, min=%.2fms, max=%.2fms, avg=%.2fms, p95=%.2fms, p99=%.2fms, responseRate=%.2f%%, timeoutRate=%.2f%%}",
+                "Stats{total=%d, responses=%d, timeouts=%d, min=%.3fms, avg=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms, p99.9=%.3fms, p99.99=%.3fms, max=%.3fms, responseRate=%.2f%%, timeoutRate=%.2f%%}",
                 totalRequests, totalResponses, totalTimeouts,
                 minLatencyNanos / 1_000_000.0,
-                maxLatencyNanos / 1_000_000.0,
                 avgLatencyNanos / 1_000_000.0,
-                p95LatencyNanos / 1_000_000.0,
+                p50LatencyNanos / 1_000_000.0,
+                p90LatencyNanos / 1_000_000.0,
                 p99LatencyNanos / 1_000_000.0,
+                p999LatencyNanos / 1_000_000.0,
+                p9999LatencyNanos / 1_000_000.0,
+                maxLatencyNanos / 1_000_000.0,
                 responseRate, timeoutRate
             );
         }
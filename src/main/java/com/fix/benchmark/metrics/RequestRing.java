@@ -0,0 +1,267 @@
+package com.fix.benchmark.metrics;
+
+import com.fix.benchmark.utils.TestReqIdCodec;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个会话的在途请求环形缓冲区，只保存long类型的计划发送时间和实际发送时间。
+ * 请求序号由本环分配并编码进TestReqID，应答到达时按序号取模直接定位槽位，
+ * 不需要Map，也不为每个请求创建对象。
+ * <p>
+ * 槽位中的序号用CAS清除，应答、超时和撤销之间不加锁，同一请求只会被其中一个处理。
+ * 超时由{@link RequestTimeoutWheel}检测。容量需覆盖超时时间内单个会话的最大在途请求数，
+ * 槽位被新请求覆盖时旧请求按超时(overrun)计。
+ * <p>
+ * 内嵌时间戳模式下环不保存发送时间: 发送方把{@link #stamp}的结果随序号一起编码进TestReqID，
+ * 应答原样带回，延迟完全由回显的值算出。环中只剩每槽位一个序号，仅用于去重和超时检测。
+ */
+public final class RequestRing {
+    
+    // 槽位空闲(已应答、已超时或从未使用)
+    private static final long FREE = -1;
+    
+    // 内嵌时间戳 = 计划发送时间相对epoch的纳秒数(取低44位，约4.9小时一圈) << LAG_BITS | 发送端滞后微秒数(饱和)
+    static final int LAG_BITS = 20;
+    static final long MAX_LAG_MICROS = (1L << LAG_BITS) - 1;
+    static final long OFFSET_MASK = (1L << (Long.SIZE - LAG_BITS)) - 1;
+    
+    private final PreciseRequestTracker owner;
+    private final String sessionId;
+    private final int ringId;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    // 内嵌时间戳模式下为null
+    private final long[] intendedNanos;
+    private final long[] sendNanos;
+    private final long epochNanos;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    
+    // 本会话的超时次数: 到期未应答 / 槽位被覆盖
+    private final AtomicLong expiredTimeouts = new AtomicLong();
+    private final AtomicLong overrunTimeouts = new AtomicLong();
+    
+    RequestRing(PreciseRequestTracker owner, String sessionId, int ringId, int capacity, boolean embeddedTimestamps) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.owner = owner;
+        this.sessionId = sessionId;
+        this.ringId = ringId;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.intendedNanos = embeddedTimestamps ? null : new long[capacity];
+        this.sendNanos = embeddedTimestamps ? null : new long[capacity];
+        this.epochNanos = owner.getEpochNanos();
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, FREE);
+        }
+    }
+    
+    /**
+     * 登记一个即将发送的请求，返回需要编码进TestReqID的序号
+     */
+    public long begin(long sendTimeNanos) {
+        return begin(sendTimeNanos, sendTimeNanos);
+    }
+    
+    /**
+     * 登记一个即将发送的请求，intendedSendNanos为发送计划中这条请求应当发出的时间
+     */
+    public long begin(long intendedSendNanos, long sendTimeNanos) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        // 先收回槽位再写入发送时间，最后发布序号，应答方读到序号时发送时间一定已可见
+        if (sequences.getAndSet(slot, FREE) != FREE) {
+            pending.decrementAndGet();
+            overrunTimeouts.incrementAndGet();
+            owner.onOverrun(sessionId);
+        }
+        if (intendedNanos != null) {
+            intendedNanos[slot] = intendedSendNanos;
+            sendNanos[slot] = sendTimeNanos;
+        }
+        sequences.set(slot, sequence);
+        pending.incrementAndGet();
+        owner.onRequest(sendTimeNanos - intendedSendNanos);
+        owner.scheduleTimeout(ringId, sequence, sendTimeNanos);
+        return sequence;
+    }
+    
+    /**
+     * 应答到达，返回从计划发送时间算起的应答延迟；序号未知、已超时或已处理时返回-1
+     */
+    public long complete(long sequence, long receiveTimeNanos) {
+        if (intendedNanos == null) {
+            throw new IllegalStateException("Ring for session " + sessionId + " uses embedded timestamps");
+        }
+        if (sequence < 0) {
+            return -1;
+        }
+        int slot = (int) (sequence & mask);
+        // 发送时间须在CAS释放槽位之前读取，释放后并发的begin可能立即覆盖。
+        // 读到本序号说明begin写入的发送时间已可见，CAS成功说明读取期间槽位未被收回重用
+        if (sequences.get(slot) != sequence) {
+            return -1;
+        }
+        long intended = intendedNanos[slot];
+        long send = sendNanos[slot];
+        if (!sequences.compareAndSet(slot, sequence, FREE)) {
+            return -1;
+        }
+        pending.decrementAndGet();
+        long responseTime = receiveTimeNanos - intended;
+        owner.onResponse(sessionId, intended, receiveTimeNanos - send, responseTime);
+        return responseTime;
+    }
+    
+    /**
+     * begin返回的序号对应的TestReqID，编码环编号和序号，内嵌时间戳模式下再带上{@link #stamp}
+     */
+    public String testReqId(long sequence, long intendedSendNanos, long sendTimeNanos) {
+        return intendedNanos == null
+                ? TestReqIdCodec.format(ringId, sequence, stamp(intendedSendNanos, sendTimeNanos))
+                : TestReqIdCodec.format(ringId, sequence);
+    }
+    
+    /**
+     * 同{@link #testReqId(long, long, long)}，写入调用方复用的缓冲区并返回它
+     */
+    public TestReqIdCodec testReqId(TestReqIdCodec buffer, long sequence, long intendedSendNanos, long sendTimeNanos) {
+        return intendedNanos == null
+                ? buffer.encode(ringId, sequence, stamp(intendedSendNanos, sendTimeNanos))
+                : buffer.encode(ringId, sequence);
+    }
+    
+    /**
+     * 应答到达，直接在text的[start, end)区间上解析回显的TestReqID，不截取子串。
+     * 不是本环发出的ID返回-1，其余同{@link #complete(long, long)}
+     */
+    public long complete(CharSequence text, int start, int end, long receiveTimeNanos) {
+        if (TestReqIdCodec.sessionIndex(text, start, end) != ringId) {
+            return -1;
+        }
+        long sequence = TestReqIdCodec.sequence(text, start, end);
+        if (intendedNanos != null) {
+            return complete(sequence, receiveTimeNanos);
+        }
+        if (!TestReqIdCodec.hasTimestamp(text, start, end)) {
+            return -1;
+        }
+        return complete(sequence, TestReqIdCodec.timestamp(text, start, end), receiveTimeNanos);
+    }
+    
+    /**
+     * 内嵌时间戳模式下需要编码进TestReqID的时间戳，包含计划发送时间和发送端滞后。
+     * 偏移按2^44纳秒回绕，运行超过4.9小时后仍能正确解码，见{@link #intendedNanos}
+     */
+    public long stamp(long intendedSendNanos, long sendTimeNanos) {
+        return stamp(epochNanos, intendedSendNanos, sendTimeNanos);
+    }
+    
+    static long stamp(long epochNanos, long intendedSendNanos, long sendTimeNanos) {
+        long offset = (intendedSendNanos - epochNanos) & OFFSET_MASK;
+        long lagMicros = Math.min(Math.max(0, sendTimeNanos - intendedSendNanos) / 1000, MAX_LAG_MICROS);
+        return offset << LAG_BITS | lagMicros;
+    }
+    
+    /**
+     * 由回显的stamp还原计划发送时间: 取不晚于接收时间、偏移低44位与stamp相同的最近时刻。
+     * 应答在发送后4.9小时内到达时结果唯一，超时远小于这个范围
+     */
+    static long intendedNanos(long epochNanos, long stamp, long receiveTimeNanos) {
+        long age = (receiveTimeNanos - epochNanos - (stamp >>> LAG_BITS)) & OFFSET_MASK;
+        return receiveTimeNanos - age;
+    }
+    
+    /**
+     * 内嵌时间戳模式下应答到达，延迟由回显的stamp算出，环只用来确认请求尚未应答或超时。
+     * 返回从计划发送时间算起的应答延迟；序号未知或已处理时返回-1
+     */
+    public long complete(long sequence, long stamp, long receiveTimeNanos) {
+        if (sequence < 0) {
+            return -1;
+        }
+        long intended = intendedNanos(epochNanos, stamp, receiveTimeNanos);
+        long responseTime = receiveTimeNanos - intended;
+        if (!sequences.compareAndSet((int) (sequence & mask), sequence, FREE)) {
+            return -1;
+        }
+        pending.decrementAndGet();
+        long lag = (stamp & MAX_LAG_MICROS) * 1000;
+        owner.onResponse(sessionId, intended, Math.max(0, responseTime - lag), responseTime);
+        return responseTime;
+    }
+    
+    /**
+     * 撤销发送失败的请求，不计入超时
+     */
+    public boolean cancel(long sequence) {
+        if (sequence < 0 || !sequences.compareAndSet((int) (sequence & mask), sequence, FREE)) {
+            return false;
+        }
+        pending.decrementAndGet();
+        owner.onCancel();
+        return true;
+    }
+    
+    /**
+     * 请求到期，仍未应答时按超时处理并返回true
+     */
+    boolean expire(long sequence) {
+        if (!sequences.compareAndSet((int) (sequence & mask), sequence, FREE)) {
+            return false;
+        }
+        pending.decrementAndGet();
+        expiredTimeouts.incrementAndGet();
+        owner.onExpired(sessionId);
+        return true;
+    }
+    
+    void clear() {
+        for (int slot = 0; slot <= mask; slot++) {
+            sequences.set(slot, FREE);
+        }
+        pending.set(0);
+        expiredTimeouts.set(0);
+        overrunTimeouts.set(0);
+    }
+    
+    public int getPendingCount() {
+        return pending.get();
+    }
+    
+    public long getTimeouts() {
+        return expiredTimeouts.get() + overrunTimeouts.get();
+    }
+    
+    public long getExpiredTimeouts() {
+        return expiredTimeouts.get();
+    }
+    
+    public long getOverrunTimeouts() {
+        return overrunTimeouts.get();
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    /**
+     * 环在跟踪器中的编号，从0开始连续分配，可作为TestReqID中的会话序号
+     */
+    public int getRingId() {
+        return ringId;
+    }
+    
+    public boolean isEmbeddedTimestamps() {
+        return intendedNanos == null;
+    }
+    
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.fix.benchmark.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 请求超时的哈希时间轮，刻度1毫秒，按发送刻度分桶。
+ * <p>
+ * 所有请求的超时时间相同，发送于刻度t的请求在刻度t + timeoutTicks到期，
+ * 轮的长度大于超时刻度数，因此同一个桶里的请求到期刻度相同，不需要圈数。
+ * 条目是打包成一个long的(环编号, 序号)，插入是追加到数组，不为每个请求创建对象；
+ * 应答和撤销不需要从轮中删除条目，到期时对环槽位的CAS失败即说明请求已处理。
+ * <p>
+ * 桶按线程ID分片，发送线程之间不争用同一把锁。后台线程每个刻度推进一次，
+ * 超时检测的误差在1~2毫秒以内，每个请求在轮中只被访问一次。
+ */
+final class RequestTimeoutWheel implements Runnable {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+    
+    // 条目 = ringId << SEQUENCE_BITS | sequence
+    static final int SEQUENCE_BITS = 40;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    
+    private final PreciseRequestTracker owner;
+    private final long originNanos = System.nanoTime();
+    private final long timeoutTicks;
+    private final int wheelMask;
+    private final int stripeMask;
+    private final Stripe[] stripes;
+    private final Thread thread;
+    private volatile boolean running = true;
+    
+    RequestTimeoutWheel(PreciseRequestTracker owner, long timeoutMillis) {
+        this.owner = owner;
+        this.timeoutTicks = Math.max(1, timeoutMillis);
+        // 轮长取不小于2倍超时刻度数的2的幂，推进线程停顿不超过一个超时时间时桶不会被下一圈复用
+        int wheelSize = Integer.highestOneBit((int) Math.min(1 << 28, timeoutTicks) * 4 - 1);
+        this.wheelMask = wheelSize - 1;
+        
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1);
+        this.stripeMask = stripeCount - 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(wheelSize);
+        }
+        
+        this.thread = new Thread(this, "request-timeout-wheel");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    /**
+     * 登记一个在sendNanos发送的请求
+     */
+    void schedule(int ringId, long sequence, long sendNanos) {
+        long entry = ((long) ringId << SEQUENCE_BITS) | (sequence & SEQUENCE_MASK);
+        long tick = (sendNanos - originNanos) / TICK_NANOS;
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        boolean expired;
+        synchronized (stripe) {
+            // 发送线程在取时间与插入之间被挂起时，对应的桶可能已经处理过，直接按超时处理
+            expired = tick <= stripe.processedTick;
+            if (!expired) {
+                stripe.add((int) (tick & wheelMask), entry);
+            }
+        }
+        if (expired) {
+            expire(entry);
+        }
+    }
+    
+    @Override
+    public void run() {
+        while (running) {
+            LockSupport.parkNanos(TICK_NANOS);
+            advance(System.nanoTime());
+        }
+    }
+    
+    /**
+     * 处理到nowNanos为止所有到期的桶，返回本次超时的请求数
+     */
+    synchronized int advance(long nowNanos) {
+        long dueTick = (nowNanos - originNanos) / TICK_NANOS - timeoutTicks;
+        int expired = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                // 长时间未推进时最多处理一整圈
+                long from = Math.max(stripe.processedTick + 1, dueTick - wheelMask);
+                for (long tick = from; tick <= dueTick; tick++) {
+                    int bucket = (int) (tick & wheelMask);
+                    long[] entries = stripe.entries[bucket];
+                    int size = stripe.sizes[bucket];
+                    for (int i = 0; i < size; i++) {
+                        if (expire(entries[i])) {
+                            expired++;
+                        }
+                    }
+                    stripe.sizes[bucket] = 0;
+                }
+                stripe.processedTick = Math.max(stripe.processedTick, dueTick);
+            }
+        }
+        return expired;
+    }
+    
+    private boolean expire(long entry) {
+        RequestRing ring = owner.ringById((int) (entry >>> SEQUENCE_BITS));
+        return ring != null && ring.expire(entry & SEQUENCE_MASK);
+    }
+    
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+    
+    private static final class Stripe {
+        final long[][] entries;
+        final int[] sizes;
+        long processedTick = -1;
+        
+        Stripe(int wheelSize) {
+            this.entries = new long[wheelSize][];
+            this.sizes = new int[wheelSize];
+        }
+        
+        void add(int bucket, long entry) {
+            long[] current = entries[bucket];
+            int size = sizes[bucket];
+            if (current == null) {
+                current = entries[bucket] = new long[INITIAL_BUCKET_CAPACITY];
+            } else if (size == current.length) {
+                current = entries[bucket] = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = entry;
+            sizes[bucket] = size + 1;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.fix.benchmark.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 发送路径的每消息内存分配统计，基于发送线程的累计分配字节数(ThreadMXBean)。
+ * 用法: long mark = mark(); 发送; record(mark)。
+ */
+public class SendAllocationStats {
+    private static final Logger logger = LoggerFactory.getLogger(SendAllocationStats.class);
+    
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final boolean supported;
+    
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    
+    public SendAllocationStats() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threadBean = (com.sun.management.ThreadMXBean) bean;
+            this.threadBean.setThreadAllocatedMemoryEnabled(true);
+            this.supported = true;
+        } else {
+            this.threadBean = null;
+            this.supported = false;
+        }
+    }
+    
+    /**
+     * 当前线程到目前为止分配的字节数，不支持时返回-1
+     */
+    public long mark() {
+        return supported ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+    
+    public void record(long mark) {
+        if (mark < 0) {
+            return;
+        }
+        bytes.add(threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - mark);
+        messages.increment();
+    }
+    
+    public boolean isSupported() {
+        return supported;
+    }
+    
+    public long getMessages() {
+        return messages.sum();
+    }
+    
+    public double getBytesPerMessage() {
+        long count = messages.sum();
+        return count > 0 ? (double) bytes.sum() / count : 0.0;
+    }
+    
+    public void logSummary(String sendPath) {
+        logger.info("Send Allocation [{}]: {} bytes/msg over {} messages",
+                sendPath, String.format("%.1f", getBytesPerMessage()), getMessages());
+    }
+}
\ No newline at end of file
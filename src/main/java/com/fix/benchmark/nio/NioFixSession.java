@@ -0,0 +1,553 @@
+package com.fix.benchmark.nio;
+
+import com.fix.benchmark.codec.MessageTemplate;
+import com.fix.benchmark.engine.EngineSession;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.SessionID;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 原生NIO上的FIX发起端会话，只实现压测需要的会话层:
+ * Logon(带ResetSeqNumFlag，每次连接序号从1开始)、心跳与TestRequest、Logout、
+ * 对ResendRequest回复SequenceReset-Reset(不保存已发消息)、接收SequenceReset。
+ * 入站序号出现缺口时只计数不请求重传。断线后不自动重连。
+ * <p>
+ * 读和定时检查只在所属selector线程上执行；发送可以来自任意线程。
+ * 连接状态、编码和写出缓冲区由会话锁保护，能直接写完时不经过selector线程。
+ */
+public class NioFixSession implements EngineSession {
+    private static final Logger logger = LoggerFactory.getLogger(NioFixSession.class);
+    
+    private static final byte SOH = 1;
+    private static final int CHECKSUM_LENGTH = 7;
+    
+    private static final int TAG_CHECKSUM = 10;
+    private static final int TAG_MSG_SEQ_NUM = 34;
+    private static final int TAG_MSG_TYPE = 35;
+    private static final int TAG_NEW_SEQ_NO = 36;
+    private static final int TAG_TEST_REQ_ID = 112;
+    
+    private final String sessionId;
+    private final SessionID fixSessionId;
+    private final InetSocketAddress address;
+    private final SelectorLoop loop;
+    private final MultiSessionMetrics metrics;
+    private final int bufferSize;
+    private final long heartbeatMillis;
+    
+    private final MessageTemplate logonTemplate;
+    private final MessageTemplate logoutTemplate;
+    private final MessageTemplate heartbeatTemplate;
+    private final MessageTemplate heartbeatReplyTemplate;
+    private final MessageTemplate testRequestTemplate;
+    private final MessageTemplate sequenceResetTemplate;
+    
+    private final CompletableFuture<SessionID> logonFuture = new CompletableFuture<>();
+    // 当前这次连接的登录结果，连接在登录前断开时以异常完成
+    private CompletableFuture<NioFixSession> attempt;
+    // 会话不登记请求，应答交给生成TestReqID的一方关联，未设置时忽略
+    private volatile ResponseListener responseListener;
+    private volatile ConnectionListener connectionListener;
+    
+    // 以下状态在连接建立时创建，由会话锁保护
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer inbound;
+    private ByteBuffer outbound;
+    private int nextSenderSeqNum;
+    
+    // 仅selector线程访问
+    private int nextTargetSeqNum;
+    private final AsciiView fieldView = new AsciiView();
+    
+    private volatile boolean loggedOn;
+    private volatile boolean logoutSent;
+    private volatile long lastSentMillis;
+    private volatile long lastReceivedMillis;
+    private volatile boolean testRequestOutstanding;
+    
+    private volatile long sequenceGaps;
+    
+    NioFixSession(String sessionId, SessionID fixSessionId, InetSocketAddress address, SelectorLoop loop,
+                  MultiSessionMetrics metrics, int bufferSize, int heartBtInt) {
+        this.sessionId = sessionId;
+        this.fixSessionId = fixSessionId;
+        this.address = address;
+        this.loop = loop;
+        this.metrics = metrics;
+        this.bufferSize = bufferSize;
+        this.heartbeatMillis = heartBtInt * 1000L;
+        
+        this.logonTemplate = new MessageTemplate(fixSessionId, "A", 0, "98=0|108=" + heartBtInt + "|141=Y|");
+        this.logoutTemplate = new MessageTemplate(fixSessionId, "5", 0, null);
+        this.heartbeatTemplate = new MessageTemplate(fixSessionId, "0", 0, null);
+        this.heartbeatReplyTemplate = new MessageTemplate(fixSessionId, "0", TAG_TEST_REQ_ID, null);
+        this.testRequestTemplate = MessageTemplate.testRequest(fixSessionId);
+        this.sequenceResetTemplate = new MessageTemplate(fixSessionId, "4", TAG_NEW_SEQ_NO, null);
+    }
+    
+    /**
+     * 发起一次连接，登录完成时返回的future完成。重试时关闭旧连接重新建立
+     */
+    synchronized CompletableFuture<NioFixSession> connect() {
+        closeChannel();
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, 65536);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 65536);
+            if (inbound == null) {
+                inbound = ByteBuffer.allocateDirect(bufferSize);
+                outbound = ByteBuffer.allocateDirect(bufferSize);
+            }
+            inbound.clear();
+            outbound.clear();
+            nextSenderSeqNum = 1;
+            nextTargetSeqNum = 1;
+            logoutSent = false;
+            
+            attempt = new CompletableFuture<>();
+            channel.connect(address);
+            loop.register(this, channel);
+        } catch (IOException e) {
+            closeChannel();
+            return CompletableFuture.failedFuture(e);
+        }
+        return attempt;
+    }
+    
+    synchronized void onRegistered(SelectionKey key) {
+        if (key.channel() != channel) {
+            // 注册前连接已被关闭或替换
+            key.cancel();
+            return;
+        }
+        this.key = key;
+        if (channel.isConnected()) {
+            sendLogon();
+        }
+    }
+    
+    synchronized void onConnectable() throws IOException {
+        if (channel.finishConnect()) {
+            key.interestOps(SelectionKey.OP_READ);
+            sendLogon();
+        }
+    }
+    
+    private void sendLogon() {
+        lastReceivedMillis = System.currentTimeMillis();
+        send(logonTemplate, null);
+    }
+    
+    synchronized void onReadable() throws IOException {
+        int read = channel.read(inbound);
+        if (read < 0) {
+            close("Connection closed by peer");
+            return;
+        }
+        lastReceivedMillis = System.currentTimeMillis();
+        
+        inbound.flip();
+        while (inbound.hasRemaining()) {
+            int frame = frameLength(inbound, inbound.position(), inbound.limit());
+            if (frame < 0) {
+                close("Garbled inbound message");
+                return;
+            }
+            if (frame == 0) {
+                break;
+            }
+            onMessage(inbound.position(), inbound.position() + frame);
+            if (channel == null) {
+                return;
+            }
+            inbound.position(inbound.position() + frame);
+        }
+        inbound.compact();
+        if (!inbound.hasRemaining()) {
+            close("Inbound message exceeds buffer size " + bufferSize);
+        }
+    }
+    
+    synchronized void onWritable() throws IOException {
+        flush();
+    }
+    
+    /**
+     * 一条完整消息的长度，数据不完整时返回0，格式错误时返回-1
+     */
+    private static int frameLength(ByteBuffer buffer, int start, int limit) {
+        if (buffer.get(start) != '8') {
+            return -1;
+        }
+        int i = start;
+        while (i < limit && buffer.get(i) != SOH) {
+            i++;
+        }
+        if (i + 3 > limit) {
+            return 0;
+        }
+        if (buffer.get(i + 1) != '9' || buffer.get(i + 2) != '=') {
+            return -1;
+        }
+        int bodyLength = 0;
+        int j = i + 3;
+        while (j < limit && buffer.get(j) != SOH) {
+            bodyLength = bodyLength * 10 + (buffer.get(j) - '0');
+            j++;
+        }
+        if (j >= limit) {
+            return 0;
+        }
+        int total = j + 1 - start + bodyLength + CHECKSUM_LENGTH;
+        return start + total <= limit ? total : 0;
+    }
+    
+    private void onMessage(int start, int end) {
+        char msgType = 0;
+        int msgSeqNum = 0;
+        int newSeqNo = 0;
+        int testReqIdStart = -1;
+        int testReqIdLength = 0;
+        int checksumField = end;
+        int checksum = -1;
+        
+        int pos = start;
+        while (pos < end) {
+            int fieldStart = pos;
+            int tag = 0;
+            byte b;
+            while (pos < end && (b = inbound.get(pos)) != '=') {
+                tag = tag * 10 + (b - '0');
+                pos++;
+            }
+            int valueStart = ++pos;
+            int value = 0;
+            while (pos < end && (b = inbound.get(pos)) != SOH) {
+                value = value * 10 + (b - '0');
+                pos++;
+            }
+            int valueLength = pos - valueStart;
+            pos++;
+            
+            switch (tag) {
+                case TAG_MSG_TYPE:
+                    msgType = valueLength == 1 ? (char) inbound.get(valueStart) : 0;
+                    break;
+                case TAG_MSG_SEQ_NUM:
+                    msgSeqNum = value;
+                    break;
+                case TAG_NEW_SEQ_NO:
+                    newSeqNo = value;
+                    break;
+                case TAG_TEST_REQ_ID:
+                    testReqIdStart = valueStart;
+                    testReqIdLength = valueLength;
+                    break;
+                case TAG_CHECKSUM:
+                    checksumField = fieldStart;
+                    checksum = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        int sum = 0;
+        for (int i = start; i < checksumField; i++) {
+            sum += inbound.get(i);
+        }
+        if ((sum & 0xFF) != checksum) {
+            logger.warn("Session {} dropped message with bad checksum", sessionId);
+            return;
+        }
+        
+        if (msgSeqNum > nextTargetSeqNum && msgType != 'A' && msgType != '4') {
+            sequenceGaps++;
+        }
+        nextTargetSeqNum = Math.max(nextTargetSeqNum, msgSeqNum + 1);
+        testRequestOutstanding = false;
+        
+        switch (msgType) {
+            case 'A':
+                onLogon();
+                break;
+            case '0':
+                if (testReqIdStart >= 0) {
+                    onTestRequestAnswered(testReqIdStart, testReqIdLength);
+                }
+                break;
+            case '1':
+                if (testReqIdStart >= 0) {
+                    send(heartbeatReplyTemplate, fieldView.wrap(inbound, testReqIdStart, testReqIdLength));
+                } else {
+                    send(heartbeatTemplate, null);
+                }
+                break;
+            case '2':
+                resetSequence();
+                break;
+            case '4':
+                if (newSeqNo > 0) {
+                    nextTargetSeqNum = newSeqNo;
+                }
+                break;
+            case '5':
+                if (!logoutSent) {
+                    send(logoutTemplate, null);
+                }
+                close("Logout received");
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void onLogon() {
+        loggedOn = true;
+        metrics.recordSessionLogin(fixSessionId.toString());
+        notifyConnection(true);
+        logger.info("Session {} logged on: {}", sessionId, fixSessionId);
+        logonFuture.complete(fixSessionId);
+        if (attempt != null) {
+            attempt.complete(this);
+        }
+    }
+    
+    private void onTestRequestAnswered(int testReqIdStart, int testReqIdLength) {
+        ResponseListener listener = responseListener;
+        if (listener != null) {
+            long receivedNanos = System.nanoTime();
+            listener.onResponse(fieldView.wrap(inbound, testReqIdStart, testReqIdLength), 0, testReqIdLength, receivedNanos);
+        }
+    }
+    
+    /**
+     * 不保存已发送的消息，收到ResendRequest时用SequenceReset-Reset把对方的期望序号推进到当前序号
+     */
+    private synchronized void resetSequence() {
+        int seqNum = nextSenderSeqNum;
+        if (encodeAndWrite(sequenceResetTemplate, seqNum, Integer.toString(seqNum))) {
+            // Reset模式不消耗序号
+            nextSenderSeqNum = seqNum;
+        }
+    }
+    
+    synchronized void onTimer(long now) {
+        if (!loggedOn) {
+            return;
+        }
+        if (now - lastReceivedMillis >= heartbeatMillis * 3) {
+            close("Heartbeat timeout");
+            return;
+        }
+        if (now - lastReceivedMillis >= heartbeatMillis * 2 && !testRequestOutstanding) {
+            testRequestOutstanding = true;
+            send(testRequestTemplate, "TEST");
+        } else if (now - lastSentMillis >= heartbeatMillis) {
+            send(heartbeatTemplate, null);
+        }
+    }
+    
+    @Override
+    public void setResponseListener(ResponseListener listener) {
+        this.responseListener = listener;
+    }
+    
+    @Override
+    public void setConnectionListener(ConnectionListener listener) {
+        this.connectionListener = listener;
+    }
+    
+    private void notifyConnection(boolean connected) {
+        ConnectionListener listener = connectionListener;
+        if (listener != null) {
+            listener.onConnectionChanged(connected);
+        }
+    }
+    
+    @Override
+    public boolean sendTestRequest(String testReqId) {
+        if (!loggedOn) {
+            metrics.recordSendFailure(sessionId, "Not connected");
+            return false;
+        }
+        
+        boolean sent = send(testRequestTemplate, testReqId);
+        if (sent) {
+            metrics.recordMessageSent(sessionId);
+            metrics.recordRequestSent(sessionId);
+        } else {
+            metrics.recordSendFailure(sessionId, "Send buffer full");
+        }
+        return sent;
+    }
+    
+    private synchronized boolean send(MessageTemplate template, CharSequence value) {
+        return encodeAndWrite(template, nextSenderSeqNum, value);
+    }
+    
+    /**
+     * 编码并追加到写出缓冲区，然后尝试直接写出。缓冲区放不下时返回false且不消耗序号
+     */
+    private boolean encodeAndWrite(MessageTemplate template, int seqNum, CharSequence value) {
+        if (channel == null || !channel.isConnected()) {
+            return false;
+        }
+        int length = template.encode(seqNum, System.currentTimeMillis(), value);
+        try {
+            if (outbound.remaining() < length) {
+                flush();
+                if (outbound.remaining() < length) {
+                    return false;
+                }
+            }
+            outbound.put(template.getBuffer(), template.getOffset(), length);
+            nextSenderSeqNum = seqNum + 1;
+            lastSentMillis = System.currentTimeMillis();
+            flush();
+            return true;
+        } catch (IOException e) {
+            logger.warn("Session {} write failed: {}", sessionId, e.getMessage());
+            loop.execute(() -> close("Write failed"));
+            return false;
+        }
+    }
+    
+    /**
+     * 写出缓冲区中的数据，写不完时注册OP_WRITE由selector线程继续
+     */
+    private void flush() throws IOException {
+        outbound.flip();
+        channel.write(outbound);
+        outbound.compact();
+        if (key != null && key.isValid()) {
+            int ops = key.interestOps();
+            if (outbound.position() > 0) {
+                if ((ops & SelectionKey.OP_WRITE) == 0) {
+                    key.interestOps(ops | SelectionKey.OP_WRITE);
+                    loop.wakeup();
+                }
+            } else if ((ops & SelectionKey.OP_WRITE) != 0) {
+                key.interestOps(ops & ~SelectionKey.OP_WRITE);
+            }
+        }
+    }
+    
+    /**
+     * 发送Logout，对方确认后关闭连接
+     */
+    synchronized void logout() {
+        if (loggedOn && !logoutSent) {
+            logoutSent = true;
+            send(logoutTemplate, null);
+        }
+    }
+    
+    synchronized void close(String reason) {
+        if (channel == null) {
+            return;
+        }
+        closeChannel();
+        loop.deregister(this);
+        if (attempt != null && !attempt.isDone()) {
+            attempt.completeExceptionally(new IOException(reason));
+        }
+        if (loggedOn) {
+            loggedOn = false;
+            metrics.recordSessionLogout(fixSessionId.toString());
+            notifyConnection(false);
+            logger.info("Session {} logged out: {} ({})", sessionId, fixSessionId, reason);
+        } else {
+            logger.debug("Session {} closed before logon: {}", sessionId, reason);
+        }
+        if (sequenceGaps > 0) {
+            logger.info("Session {} saw {} inbound sequence gaps", sessionId, sequenceGaps);
+        }
+    }
+    
+    private void closeChannel() {
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing channel for session {}", sessionId, e);
+            }
+            channel = null;
+        }
+    }
+    
+    @Override
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    @Override
+    public boolean isConnected() {
+        return loggedOn;
+    }
+    
+    @Override
+    public CompletableFuture<SessionID> getLogonFuture() {
+        return logonFuture;
+    }
+    
+    public SessionID getFixSessionId() {
+        return fixSessionId;
+    }
+    
+    /**
+     * 复用的CharSequence视图，指向读缓冲区中的字段值，避免为回填和回显的TestReqID创建String
+     */
+    private static final class AsciiView implements CharSequence {
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+        
+        AsciiView wrap(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+        
+        @Override
+        public int length() {
+            return length;
+        }
+        
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+        
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                text.append(charAt(i));
+            }
+            return text.toString();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.fix.benchmark.nio;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.engine.ActiveSessionRegistry;
+import com.fix.benchmark.engine.SessionEngine;
+import com.fix.benchmark.engine.SessionEngines;
+import com.fix.benchmark.engine.SessionRampUpScheduler;
+import com.fix.benchmark.engine.SessionStartupTracker;
+import com.fix.benchmark.metrics.EngineFootprint;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.FixVersions;
+import quickfix.SessionID;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于非阻塞SocketChannel的压测引擎，会话按轮询分配到固定数量的selector线程(默认每核一个)。
+ * 收发缓冲区为直接内存，消息用预编码模板生成，用于在QuickFIX/J客户端成为瓶颈之前压满服务端。
+ * 会话建立同样经过SessionRampUpScheduler，结果与QuickFIX/J引擎可以直接比较。
+ */
+public class NioSessionEngine implements SessionEngine<NioFixSession> {
+    private static final Logger logger = LoggerFactory.getLogger(NioSessionEngine.class);
+    
+    // 与QuickFIX/J会话配置中的HeartBtInt一致
+    private static final int HEART_BT_INT = 30;
+    private static final long LOGOUT_WAIT_MILLIS = 1000;
+    
+    private final MultiSessionConfig config;
+    private final MultiSessionMetrics metrics;
+    private final InetSocketAddress address;
+    private final SelectorLoop[] loops;
+    private final SessionRampUpScheduler rampUp;
+    private final EngineFootprint footprint;
+    private final SessionStartupTracker startup;
+    private final ConcurrentHashMap<String, NioFixSession> sessions = new ConcurrentHashMap<>();
+    private final ActiveSessionRegistry<NioFixSession> activeSessions = new ActiveSessionRegistry<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    
+    private volatile CompletableFuture<Void> startupComplete = CompletableFuture.completedFuture(null);
+    
+    public NioSessionEngine(MultiSessionConfig config, MultiSessionMetrics metrics) throws IOException {
+        this.config = config;
+        this.metrics = metrics;
+        this.address = new InetSocketAddress(config.getServerHost(), Integer.parseInt(config.getServerPort()));
+        this.rampUp = new SessionRampUpScheduler(config, metrics.getLogonStats());
+        this.footprint = new EngineFootprint(SessionEngines.ENGINE_NIO);
+        this.startup = new SessionStartupTracker(metrics, footprint);
+        
+        this.loops = new SelectorLoop[config.getNioSelectorThreads()];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new SelectorLoop(i);
+            loops[i].start();
+        }
+        
+        metrics.recordRunMode("engine", SessionEngines.ENGINE_NIO);
+        metrics.recordRunMode("selector-threads", String.valueOf(loops.length));
+    }
+    
+    private CompletableFuture<NioFixSession> createSession(String baseSenderCompId, String targetCompId, int sessionId) {
+        String senderCompId = MultiSessionConfig.senderCompId(baseSenderCompId, sessionId);
+        SessionID fixSessionId = new SessionID(FixVersions.BEGINSTRING_FIX44, senderCompId, targetCompId);
+        SelectorLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        
+        NioFixSession session = new NioFixSession(senderCompId, fixSessionId, address, loop, metrics,
+                config.getNioBufferSize(), HEART_BT_INT);
+        sessions.put(senderCompId, session);
+        activeSessions.register(session);
+        session.setConnectionListener(connected -> activeSessions.update(session, connected));
+        
+        CompletableFuture<NioFixSession> logon = rampUp.submit(senderCompId, session::connect,
+                () -> session.close("Logon attempt timed out"));
+        return startup.track(senderCompId, logon);
+    }
+    
+    @Override
+    public List<CompletableFuture<NioFixSession>> startSessions(String baseSenderCompId, String targetCompId, int count) {
+        logger.info("Creating {} sessions (nio engine, {} selector threads, {} connections/s, {} in flight)...",
+                count, loops.length,
+                config.getRampUpConnectionsPerSecond() > 0 ? config.getRampUpConnectionsPerSecond() : "unlimited",
+                config.getRampUpMaxInFlight() > 0 ? config.getRampUpMaxInFlight() : "unlimited");
+        
+        startup.begin();
+        
+        List<CompletableFuture<NioFixSession>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(createSession(baseSenderCompId, targetCompId, i + 1));
+        }
+        
+        startupComplete = startup.whenComplete(futures);
+        
+        return futures;
+    }
+    
+    @Override
+    public void createMultipleSessions(String baseSenderCompId, String targetCompId, int count) {
+        startSessions(baseSenderCompId, targetCompId, count);
+        startupComplete.join();
+    }
+    
+    @Override
+    public CompletableFuture<Void> getStartupComplete() {
+        return startupComplete;
+    }
+    
+    @Override
+    public NioFixSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+    
+    @Override
+    public ActiveSessionRegistry<NioFixSession> getActiveSessions() {
+        return activeSessions;
+    }
+    
+    @Override
+    public int getActiveConnectionCount() {
+        return startup.getActiveConnectionCount();
+    }
+    
+    @Override
+    public double getConnectionSuccessRate() {
+        return startup.getConnectionSuccessRate();
+    }
+    
+    @Override
+    public EngineFootprint getFootprint() {
+        return footprint;
+    }
+    
+    @Override
+    public void shutdown() {
+        logger.info("Shutting down all sessions...");
+        
+        rampUp.shutdown();
+        
+        // 先发送Logout，给对方确认留出时间，再关闭连接和selector线程
+        sessions.values().forEach(NioFixSession::logout);
+        long deadline = System.currentTimeMillis() + LOGOUT_WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline && sessions.values().stream().anyMatch(NioFixSession::isConnected)) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        
+        for (SelectorLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+}
\ No newline at end of file
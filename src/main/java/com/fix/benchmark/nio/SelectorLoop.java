@@ -0,0 +1,148 @@
+package com.fix.benchmark.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 单个selector线程，负责一组会话的连接、读、写以及心跳检查。
+ * 会话集合只在本线程上访问，其他线程通过{@link #execute(Runnable)}投递任务。
+ */
+class SelectorLoop implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(SelectorLoop.class);
+    
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+    private static final long TIMER_INTERVAL_MILLIS = 1000;
+    
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioFixSession> sessions = new HashSet<>();
+    private volatile boolean running;
+    
+    SelectorLoop(int index) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "fix-nio-selector-" + index);
+        this.thread.setDaemon(true);
+    }
+    
+    void start() {
+        running = true;
+        thread.start();
+    }
+    
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+    
+    /**
+     * 注册一个刚发起连接的会话
+     */
+    void register(NioFixSession session, SocketChannel channel) {
+        execute(() -> {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                int ops = channel.isConnected() ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+                SelectionKey key = channel.register(selector, ops, session);
+                sessions.add(session);
+                session.onRegistered(key);
+            } catch (IOException e) {
+                session.close("Register failed: " + e.getMessage());
+            }
+        });
+    }
+    
+    void deregister(NioFixSession session) {
+        execute(() -> sessions.remove(session));
+    }
+    
+    void wakeup() {
+        selector.wakeup();
+    }
+    
+    @Override
+    public void run() {
+        long nextTimer = System.currentTimeMillis() + TIMER_INTERVAL_MILLIS;
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                runTasks();
+                
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                
+                long now = System.currentTimeMillis();
+                if (now >= nextTimer) {
+                    for (NioFixSession session : sessions) {
+                        session.onTimer(now);
+                    }
+                    nextTimer = now + TIMER_INTERVAL_MILLIS;
+                }
+            } catch (Exception e) {
+                logger.error("Error in selector loop {}", thread.getName(), e);
+            }
+        }
+    }
+    
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+    
+    private void handle(SelectionKey key) {
+        NioFixSession session = (NioFixSession) key.attachment();
+        try {
+            if (key.isValid() && key.isConnectable()) {
+                session.onConnectable();
+            }
+            if (key.isValid() && key.isReadable()) {
+                session.onReadable();
+            }
+            if (key.isValid() && key.isWritable()) {
+                session.onWritable();
+            }
+        } catch (IOException e) {
+            session.close(e.getMessage());
+        }
+    }
+    
+    /**
+     * 停止线程并关闭仍在本线程上的会话
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        runTasks();
+        for (NioFixSession session : new HashSet<>(sessions)) {
+            session.close("Engine shutdown");
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Error closing selector {}", thread.getName(), e);
+        }
+    }
+}
\ No newline at end of file
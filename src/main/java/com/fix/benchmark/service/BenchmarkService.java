@@ -1,9 +1,12 @@
 package com.fix.benchmark.service;
 
+import com.fix.benchmark.config.MultiSessionConfig;
 import com.fix.benchmark.dto.*;
 import com.fix.benchmark.engine.MultiSessionEngineManager;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
 import com.fix.benchmark.metrics.PreciseRequestTracker;
 import com.fix.benchmark.test.EnhancedLoadTester;
+import com.fix.benchmark.test.SaturationSearch;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import org.springframework.stereotype.Service;
@@ -64,6 +67,9 @@ public class BenchmarkService {
     }
 
     private void executeBenchmark(BenchmarkTask task) {
+        PreciseRequestTracker tracker = null;
+        MultiSessionEngineManager engineManager = null;
+        EnhancedLoadTester tester = null;
         try {
             task.setStatus(TaskStatus.builder()
                 .taskId(task.getTaskId())
@@ -72,9 +78,15 @@ public class BenchmarkService {
                 .totalSessions(task.getRequest().getSessionCount())
                 .build());
 
-            // 初始化引擎和测试器
-            PreciseRequestTracker tracker = new PreciseRequestTracker(task.getRequest().getTimeoutMillis());
-            MultiSessionEngineManager engineManager = new MultiSessionEngineManager(config, tracker);
+            // 初始化引擎和测试器，请求环按本次任务的最高速率估算容量
+            StartRequest request = task.getRequest();
+            double peakRate = "search".equalsIgnoreCase(request.getMode())
+                ? request.getSearchMaxRate() : request.getMessagesPerSecond();
+            MultiSessionMetrics metrics = new MultiSessionMetrics();
+            tracker = new PreciseRequestTracker(request.getTimeoutMillis(),
+                PreciseRequestTracker.ringCapacity(peakRate, request.getTimeoutMillis(), request.getSessionCount()),
+                false, metrics);
+            engineManager = new MultiSessionEngineManager(new MultiSessionConfig(config), metrics);
             
             // 创建会话
             engineManager.createMultipleSessions(
@@ -84,7 +96,7 @@ public class BenchmarkService {
             );
 
             // 启动测试
-            EnhancedLoadTester tester = new EnhancedLoadTester(
+            tester = new EnhancedLoadTester(
                 engineManager,
                 tracker,
                 task.getRequest().getTimeoutMillis(),
@@ -92,177 +104,69 @@ public class BenchmarkService {
             );
 
             task.setTester(tester);
-            tester.startTest(task.getRequest().getDurationSeconds());
+            if ("search".equalsIgnoreCase(task.getRequest().getMode())) {
+                runSaturationSearch(task, tester);
+            } else {
+                tester.startTest(task.getRequest().getDurationSeconds());
+            }
 
             // 测试完成
             task.complete();
             
         } catch (Exception e) {
             task.fail(e.getMessage());
-        }
-    }
-
-    private static class BenchmarkTask {
-        private final String taskId;
-        private final StartRequest request;
-        private EnhancedLoadTester tester;
-        private volatile TaskStatus status;
-        private volatile BenchmarkReport report;
-
-        public BenchmarkTask(String taskId, StartRequest request) {
-            this.taskId = taskId;
-            this.request = request;
-            this.status = TaskStatus.builder()
-                .taskId(taskId)
-                .status("PENDING")
-                .startTime(LocalDateTime.now())
-                .build();
-        }
-
-        public void setTester(EnhancedLoadTester tester) {
-            this.tester = tester;
-        }
-
-        public void complete() {
-            status.setStatus("COMPLETED");
-            status.setEndTime(LocalDateTime.now());
-            report = generateReport();
-        }
-
-        public void fail(String error) {
-            status.setStatus("FAILED");
-            status.setEndTime(LocalDateTime.now());
-        }
-
-        public void stop() {
+        } finally {
+            // 结束或失败后释放发送线程、会话和时间轮线程，任务之间不残留
             if (tester != null) {
                 tester.stop();
-                status.setStatus("STOPPED");
-                status.setEndTime(LocalDateTime.now());
+            }
+            if (engineManager != null) {
+                engineManager.shutdown();
+            }
+            if (tracker != null) {
+                tracker.shutdown();
             }
         }
-
-        public TaskStatus getStatus() {
-            return status;
-        }
-
-        public BenchmarkReport generateReport() {
-            if (report != null) return report;
-            
-            // 生成报告逻辑
-            return new BenchmarkReport();
-        }
-
-        public String getTaskId() {
-            return taskId;
-        }
-
-        public StartRequest getRequest() {
-            return request;
-        }
-    }
-}package com.fix.benchmark.service;
-
-import com.fix.benchmark.dto.*;
-import com.fix.benchmark.engine.MultiSessionEngineManager;
-import com.fix.benchmark.metrics.PreciseRequestTracker;
-import com.fix.benchmark.test.EnhancedLoadTester;
-import com.typesafe.config.Config;
-import com.typesafe.config.ConfigFactory;
-import org.springframework.stereotype.Service;
-
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.*;
-
-@Service
-public class BenchmarkService {
-
-    private final Map<String, BenchmarkTask> activeTasks = new ConcurrentHashMap<>();
-    private final ExecutorService taskExecutor = Executors.newCachedThreadPool();
-    private final Config config = ConfigFactory.load();
-
-    public String startBenchmark(StartRequest request) {
-        String taskId = UUID.randomUUID().toString();
-        
-        BenchmarkTask task = new BenchmarkTask(taskId, request);
-        activeTasks.put(taskId, task);
-        
-        taskExecutor.submit(() -> executeBenchmark(task));
-        
-        return taskId;
-    }
-
-    public boolean stopBenchmark(String taskId) {
-        BenchmarkTask task = activeTasks.get(taskId);
-        if (task != null) {
-            task.stop();
-            return true;
-        }
-        return false;
-    }
-
-    public StatusResponse getStatus(String taskId) {
-        BenchmarkTask task = activeTasks.get(taskId);
-        if (task == null) {
-            return null;
-        }
-        
-        return new StatusResponse(true, task.getStatus(), null);
-    }
-
-    public ReportResponse getReport(String taskId) {
-        BenchmarkTask task = activeTasks.get(taskId);
-        if (task == null) {
-            return null;
-        }
-        
-        return new ReportResponse(true, task.generateReport(), null);
-    }
-
-    public TaskListResponse getAllTasks() {
-        Map<String, TaskStatus> taskMap = new HashMap<>();
-        activeTasks.forEach((id, task) -> taskMap.put(id, task.getStatus()));
-        return new TaskListResponse(taskMap);
     }
 
-    private void executeBenchmark(BenchmarkTask task) {
-        try {
-            task.setStatus(TaskStatus.builder()
-                .taskId(task.getTaskId())
-                .status("RUNNING")
-                .startTime(LocalDateTime.now())
-                .totalSessions(task.getRequest().getSessionCount())
-                .build());
-
-            // 初始化引擎和测试器
-            PreciseRequestTracker tracker = new PreciseRequestTracker(task.getRequest().getTimeoutMillis());
-            MultiSessionEngineManager engineManager = new MultiSessionEngineManager(config, tracker);
-            
-            // 创建会话
-            engineManager.createMultipleSessions(
-                task.getRequest().getBaseSenderCompId(),
-                task.getRequest().getTargetCompId(),
-                task.getRequest().getSessionCount()
-            );
-
-            // 启动测试
-            EnhancedLoadTester tester = new EnhancedLoadTester(
-                engineManager,
-                tracker,
-                task.getRequest().getTimeoutMillis(),
-                task.getRequest().getMessagesPerSecond()
-            );
-
-            task.setTester(tester);
-            tester.startTest(task.getRequest().getDurationSeconds());
-
-            // 测试完成
-            task.complete();
-            
-        } catch (Exception e) {
-            task.fail(e.getMessage());
-        }
+    /**
+     * 在已建立的会话上连续运行短时稳态试验，查找p99和超时率满足SLO的最大速率
+     */
+    private void runSaturationSearch(BenchmarkTask task, EnhancedLoadTester tester) throws InterruptedException {
+        StartRequest request = task.getRequest();
+        SaturationSearch search = new SaturationSearch(
+            request.getSearchMinRate(),
+            request.getSearchMaxRate(),
+            request.getSloP99Millis(),
+            request.getMaxTimeoutRate(),
+            request.getSearchResolution(),
+            request.getMaxTrials()
+        );
+
+        SaturationSearch.Result result = search.search(
+            rate -> tester.runTrial(rate, request.getTrialWarmupSeconds(), request.getTrialSeconds()));
+
+        SaturationReport saturation = new SaturationReport();
+        saturation.setSaturated(result.saturated);
+        if (result.knee != null) {
+            saturation.setKneeRate(result.knee.offeredRate);
+            saturation.setKneeP99Ms(result.knee.p99Millis);
+        }
+        List<CurvePoint> curve = new ArrayList<>();
+        for (SaturationSearch.Trial trial : result.curve) {
+            CurvePoint point = new CurvePoint();
+            point.setOfferedRate(trial.offeredRate);
+            point.setAchievedRate(trial.achievedRate);
+            point.setP50Ms(trial.p50Millis);
+            point.setP99Ms(trial.p99Millis);
+            point.setP999Ms(trial.p999Millis);
+            point.setMaxMs(trial.maxMillis);
+            point.setTimeoutRate(trial.timeoutRate);
+            point.setPassed(trial.passed);
+            curve.add(point);
+        }
+        saturation.setCurve(curve);
+        task.setSaturation(saturation);
     }
 
     private static class BenchmarkTask {
@@ -271,6 +175,7 @@ public class BenchmarkService {
         private EnhancedLoadTester tester;
         private volatile TaskStatus status;
         private volatile BenchmarkReport report;
+        private volatile SaturationReport saturation;
 
         public BenchmarkTask(String taskId, StartRequest request) {
             this.taskId = taskId;
@@ -286,6 +191,10 @@ public class BenchmarkService {
             this.tester = tester;
         }
 
+        public void setSaturation(SaturationReport saturation) {
+            this.saturation = saturation;
+        }
+
         public void complete() {
             status.setStatus("COMPLETED");
             status.setEndTime(LocalDateTime.now());
@@ -313,7 +222,10 @@ public class BenchmarkService {
             if (report != null) return report;
             
             // 生成报告逻辑
-            return new BenchmarkReport();
+            BenchmarkReport result = new BenchmarkReport();
+            result.setTaskId(taskId);
+            result.setSaturation(saturation);
+            return result;
         }
 
         public String getTaskId() {
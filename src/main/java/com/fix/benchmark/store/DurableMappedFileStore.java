@@ -0,0 +1,108 @@
+package com.fix.benchmark.store;
+
+import com.fix.benchmark.metrics.FsyncStats;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * 按 {@link SyncPolicy} 刷盘的内存映射存储。
+ * <p>
+ * 每次写入分配一个递增票号; 刷盘前在锁内读取已写入的票号，刷盘完成后该票号之前的写入即为持久。
+ * interval策略下由 {@link GroupCommitSyncer} 统一刷盘，写入方等待自己的票号落盘后才返回，
+ * 因此发送延迟中包含真实的持久化开销。
+ */
+public class DurableMappedFileStore extends MappedFileStore {
+    
+    private final SyncPolicy policy;
+    private final FsyncStats stats;
+    
+    private final Object syncMonitor = new Object();
+    private long writtenTicket;
+    private volatile long syncedTicket;
+    
+    public DurableMappedFileStore(String path, String sessionFileName, int segmentSize, int indexChunkEntries,
+                                  SyncPolicy policy, FsyncStats stats) throws IOException {
+        super(path, sessionFileName, segmentSize, indexChunkEntries);
+        this.policy = policy;
+        this.stats = stats;
+        
+        if (SyncPolicy.INTERVAL.equals(policy.getType())) {
+            GroupCommitSyncer.register(this, policy.getIntervalMicros());
+        }
+    }
+    
+    @Override
+    public boolean set(int sequence, String message) throws IOException {
+        long ticket;
+        synchronized (this) {
+            super.set(sequence, message);
+            ticket = ++writtenTicket;
+        }
+        
+        switch (policy.getType()) {
+            case SyncPolicy.EVERY_MESSAGE:
+                syncPending();
+                break;
+            case SyncPolicy.EVERY_N:
+                if (ticket % policy.getEveryN() == 0) {
+                    syncPending();
+                }
+                break;
+            case SyncPolicy.INTERVAL:
+                awaitSynced(ticket);
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+    
+    /**
+     * 刷盘并记录耗时，返回本次覆盖的消息数
+     */
+    long syncPending() throws IOException {
+        long target;
+        synchronized (this) {
+            target = writtenTicket;
+        }
+        long covered = target - syncedTicket;
+        if (covered <= 0) {
+            return 0;
+        }
+        
+        long start = System.nanoTime();
+        sync();
+        stats.record(System.nanoTime() - start, covered);
+        
+        synchronized (syncMonitor) {
+            if (target > syncedTicket) {
+                syncedTicket = target;
+            }
+            syncMonitor.notifyAll();
+        }
+        return covered;
+    }
+    
+    private void awaitSynced(long ticket) throws IOException {
+        synchronized (syncMonitor) {
+            while (syncedTicket < ticket) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for store sync");
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (SyncPolicy.INTERVAL.equals(policy.getType())) {
+            GroupCommitSyncer.unregister(this);
+        }
+        syncPending();
+        super.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.fix.benchmark.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 组提交刷盘线程: 每个间隔把所有interval策略存储中未落盘的写入刷到磁盘，并唤醒等待的写入方。
+ * 所有会话共享一个线程，间隔取第一个注册存储的配置(同一次运行中配置相同)。
+ * 最后一个存储注销时线程退出；之后注册的存储启动新线程，新旧线程各有自己的存储列表和停止标志，
+ * 旧线程尚未醒来时也不会被新的注册重新启用。
+ */
+final class GroupCommitSyncer implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitSyncer.class);
+    
+    // 当前的刷盘线程，只在持有类锁时读写
+    private static GroupCommitSyncer current;
+    
+    private final CopyOnWriteArrayList<DurableMappedFileStore> stores = new CopyOnWriteArrayList<>();
+    private final long intervalNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+    
+    private GroupCommitSyncer(long intervalMicros) {
+        this.intervalNanos = TimeUnit.MICROSECONDS.toNanos(intervalMicros);
+        this.thread = new Thread(this, "fix-store-sync");
+        this.thread.setDaemon(true);
+    }
+    
+    static synchronized void register(DurableMappedFileStore store, long intervalMicros) {
+        if (current == null) {
+            current = new GroupCommitSyncer(intervalMicros);
+            current.thread.start();
+        }
+        current.stores.add(store);
+    }
+    
+    static synchronized void unregister(DurableMappedFileStore store) {
+        if (current == null) {
+            return;
+        }
+        current.stores.remove(store);
+        if (current.stores.isEmpty()) {
+            current.running = false;
+            LockSupport.unpark(current.thread);
+            current = null;
+        }
+    }
+    
+    /**
+     * 当前的刷盘线程，没有注册的存储时为null
+     */
+    static synchronized Thread currentThread() {
+        return current != null ? current.thread : null;
+    }
+    
+    @Override
+    public void run() {
+        long nextSync = System.nanoTime() + intervalNanos;
+        while (running) {
+            long delay = nextSync - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+            nextSync += intervalNanos;
+            
+            for (DurableMappedFileStore store : stores) {
+                try {
+                    store.syncPending();
+                } catch (Exception e) {
+                    logger.error("Error syncing message store", e);
+                }
+            }
+            
+            // 刷盘耗时超过间隔时不追赶，从当前时间重新计时
+            long now = System.nanoTime();
+            if (nextSync < now) {
+                nextSync = now + intervalNanos;
+            }
+        }
+    }
+}
\ No newline at end of file
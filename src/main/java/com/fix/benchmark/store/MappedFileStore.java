@@ -0,0 +1,253 @@
+package com.fix.benchmark.store;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.MessageStore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 基于内存映射文件的消息存储。
+ * <p>
+ * 每个会话使用三类文件:
+ * <ul>
+ *   <li>header: 序号、创建时间和当前写位置，固定64字节</li>
+ *   <li>index: 以序号为下标的long数组，记录消息在段文件中的位置，重传查找为O(1)</li>
+ *   <li>body.N: 预分配的定长段文件，顺序追加 [长度][消息字节] 记录</li>
+ * </ul>
+ * 启动恢复只需映射header和index，不扫描消息体，因此与存储的消息数量无关。
+ */
+public class MappedFileStore implements MessageStore, Closeable {
+    
+    private static final int MAGIC = 0x46495853; // "FIXS"
+    private static final int VERSION = 1;
+    
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_NEXT_SENDER = 8;
+    private static final int H_NEXT_TARGET = 12;
+    private static final int H_CREATION_TIME = 16;
+    private static final int H_WRITE_SEGMENT = 24;
+    private static final int H_WRITE_OFFSET = 28;
+    private static final int H_MAX_SEQ = 32;
+    
+    private static final int RECORD_HEADER = 4;
+    
+    private final String filePrefix;
+    private final int segmentSize;
+    private final int indexChunkEntries;
+    private final Charset charset = CharsetSupport.getCharsetInstance();
+    
+    private final MappedByteBuffer header;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // 上次刷盘之后第一个被写过的段
+    private int firstDirtySegment;
+    
+    public MappedFileStore(String path, String sessionFileName, int segmentSize, int indexChunkEntries) throws IOException {
+        File directory = new File(path);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create store directory " + directory.getAbsolutePath());
+        }
+        
+        this.filePrefix = new File(directory, sessionFileName).getAbsolutePath();
+        this.segmentSize = segmentSize;
+        this.indexChunkEntries = indexChunkEntries;
+        
+        try (RandomAccessFile headerFile = new RandomAccessFile(filePrefix + ".header", "rw")) {
+            this.header = headerFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        }
+        
+        this.indexChannel = new RandomAccessFile(filePrefix + ".index", "rw").getChannel();
+        long indexBytes = Math.max(indexChannel.size(), (long) indexChunkEntries * Long.BYTES);
+        this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexBytes);
+        
+        if (header.getInt(H_MAGIC) != MAGIC) {
+            initializeHeader();
+        }
+    }
+    
+    private void initializeHeader() {
+        header.putInt(H_MAGIC, MAGIC);
+        header.putInt(H_VERSION, VERSION);
+        header.putInt(H_NEXT_SENDER, 1);
+        header.putInt(H_NEXT_TARGET, 1);
+        header.putLong(H_CREATION_TIME, System.currentTimeMillis());
+        header.putInt(H_WRITE_SEGMENT, 0);
+        header.putInt(H_WRITE_OFFSET, 0);
+        header.putInt(H_MAX_SEQ, 0);
+    }
+    
+    @Override
+    public synchronized boolean set(int sequence, String message) throws IOException {
+        byte[] bytes = message.getBytes(charset);
+        int recordSize = RECORD_HEADER + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IOException("Message of " + bytes.length + " bytes exceeds segment size " + segmentSize);
+        }
+        
+        int segmentIndex = header.getInt(H_WRITE_SEGMENT);
+        int offset = header.getInt(H_WRITE_OFFSET);
+        if (offset + recordSize > segmentSize) {
+            // 当前段剩余空间不足，切换到下一个段
+            segmentIndex++;
+            offset = 0;
+        }
+        
+        MappedByteBuffer segment = segment(segmentIndex);
+        segment.position(offset);
+        segment.putInt(bytes.length);
+        segment.put(bytes);
+        
+        ensureIndexCapacity(sequence);
+        index.putLong(indexOffset(sequence), (long) segmentIndex * segmentSize + offset + 1);
+        
+        header.putInt(H_WRITE_SEGMENT, segmentIndex);
+        header.putInt(H_WRITE_OFFSET, offset + recordSize);
+        if (sequence > header.getInt(H_MAX_SEQ)) {
+            header.putInt(H_MAX_SEQ, sequence);
+        }
+        return true;
+    }
+    
+    @Override
+    public synchronized void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+        int last = Math.min(endSequence, header.getInt(H_MAX_SEQ));
+        for (int sequence = Math.max(startSequence, 1); sequence <= last; sequence++) {
+            long position = index.getLong(indexOffset(sequence));
+            if (position == 0) {
+                continue;
+            }
+            position--;
+            
+            MappedByteBuffer segment = segment((int) (position / segmentSize));
+            int offset = (int) (position % segmentSize);
+            int length = segment.getInt(offset);
+            
+            byte[] bytes = new byte[length];
+            ByteBuffer view = segment.duplicate();
+            view.position(offset + RECORD_HEADER);
+            view.get(bytes);
+            messages.add(new String(bytes, charset));
+        }
+    }
+    
+    /**
+     * 把上次刷盘之后写入的段、索引和header强制写到磁盘。
+     * 只在锁内记录需要刷的缓冲区，刷盘本身不阻塞并发写入。
+     */
+    public void sync() throws IOException {
+        List<MappedByteBuffer> dirty;
+        MappedByteBuffer indexBuffer;
+        synchronized (this) {
+            int from = Math.min(firstDirtySegment, segments.size());
+            dirty = new ArrayList<>(segments.subList(from, segments.size()));
+            firstDirtySegment = header.getInt(H_WRITE_SEGMENT);
+            indexBuffer = index;
+        }
+        for (MappedByteBuffer segment : dirty) {
+            segment.force();
+        }
+        indexBuffer.force();
+        header.force();
+    }
+    
+    private static int indexOffset(int sequence) {
+        return sequence * Long.BYTES;
+    }
+    
+    private MappedByteBuffer segment(int segmentIndex) throws IOException {
+        while (segments.size() <= segmentIndex) {
+            String segmentFile = filePrefix + ".body." + segments.size();
+            try (RandomAccessFile file = new RandomAccessFile(segmentFile, "rw")) {
+                // 映射即按段大小预分配文件
+                segments.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            }
+        }
+        return segments.get(segmentIndex);
+    }
+    
+    private void ensureIndexCapacity(int sequence) throws IOException {
+        long required = ((long) sequence + 1) * Long.BYTES;
+        if (required <= index.capacity()) {
+            return;
+        }
+        long chunkBytes = (long) indexChunkEntries * Long.BYTES;
+        long newSize = ((required + chunkBytes - 1) / chunkBytes) * chunkBytes;
+        index.force();
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+    
+    @Override
+    public int getNextSenderMsgSeqNum() {
+        return header.getInt(H_NEXT_SENDER);
+    }
+    
+    @Override
+    public int getNextTargetMsgSeqNum() {
+        return header.getInt(H_NEXT_TARGET);
+    }
+    
+    @Override
+    public void setNextSenderMsgSeqNum(int next) {
+        header.putInt(H_NEXT_SENDER, next);
+    }
+    
+    @Override
+    public void setNextTargetMsgSeqNum(int next) {
+        header.putInt(H_NEXT_TARGET, next);
+    }
+    
+    @Override
+    public void incrNextSenderMsgSeqNum() {
+        setNextSenderMsgSeqNum(getNextSenderMsgSeqNum() + 1);
+    }
+    
+    @Override
+    public void incrNextTargetMsgSeqNum() {
+        setNextTargetMsgSeqNum(getNextTargetMsgSeqNum() + 1);
+    }
+    
+    @Override
+    public Date getCreationTime() {
+        return new Date(header.getLong(H_CREATION_TIME));
+    }
+    
+    @Override
+    public synchronized void reset() {
+        // 只清除已使用的索引范围，段文件直接覆盖写
+        int maxSeq = header.getInt(H_MAX_SEQ);
+        for (int sequence = 1; sequence <= maxSeq; sequence++) {
+            index.putLong(indexOffset(sequence), 0L);
+        }
+        initializeHeader();
+        firstDirtySegment = 0;
+    }
+    
+    @Override
+    public void refresh() {
+        // 映射内存即为文件内容，无需重新加载
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        header.force();
+        index.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        indexChannel.close();
+    }
+}
\ No newline at end of file
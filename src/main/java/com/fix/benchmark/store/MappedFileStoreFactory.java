@@ -0,0 +1,56 @@
+package com.fix.benchmark.store;
+
+import com.fix.benchmark.metrics.FsyncStats;
+import quickfix.*;
+
+import java.io.IOException;
+
+/**
+ * 创建 {@link MappedFileStore}，存储目录沿用 FileStorePath 配置
+ * <p>
+ * 可选配置: MappedFileStoreSegmentSize (段文件字节数，默认64MB),
+ * MappedFileStoreIndexChunk (索引每次扩展的条目数，默认1M)
+ * <p>
+ * 指定刷盘策略时创建 {@link DurableMappedFileStore}，刷盘次数与耗时记入 {@link FsyncStats}
+ */
+public class MappedFileStoreFactory implements MessageStoreFactory {
+    public static final String SETTING_SEGMENT_SIZE = "MappedFileStoreSegmentSize";
+    public static final String SETTING_INDEX_CHUNK = "MappedFileStoreIndexChunk";
+    
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final long DEFAULT_INDEX_CHUNK = 1024 * 1024;
+    
+    private final SessionSettings settings;
+    private final SyncPolicy syncPolicy;
+    private final FsyncStats fsyncStats;
+    
+    public MappedFileStoreFactory(SessionSettings settings) {
+        this(settings, null, null);
+    }
+    
+    public MappedFileStoreFactory(SessionSettings settings, SyncPolicy syncPolicy, FsyncStats fsyncStats) {
+        this.settings = settings;
+        this.syncPolicy = syncPolicy;
+        this.fsyncStats = fsyncStats;
+    }
+    
+    @Override
+    public MessageStore create(SessionID sessionID) {
+        try {
+            String path = settings.getString(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH);
+            int segmentSize = (int) getLong(sessionID, SETTING_SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE);
+            int indexChunk = (int) getLong(sessionID, SETTING_INDEX_CHUNK, DEFAULT_INDEX_CHUNK);
+            String fileName = FileUtil.sessionIdFileName(sessionID);
+            if (syncPolicy != null) {
+                return new DurableMappedFileStore(path, fileName, segmentSize, indexChunk, syncPolicy, fsyncStats);
+            }
+            return new MappedFileStore(path, fileName, segmentSize, indexChunk);
+        } catch (ConfigError | FieldConvertError | IOException e) {
+            throw new RuntimeError(e);
+        }
+    }
+    
+    private long getLong(SessionID sessionID, String key, long defaultValue) throws ConfigError, FieldConvertError {
+        return settings.isSetting(sessionID, key) ? settings.getLong(sessionID, key) : defaultValue;
+    }
+}
\ No newline at end of file
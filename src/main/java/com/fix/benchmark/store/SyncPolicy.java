@@ -0,0 +1,66 @@
+package com.fix.benchmark.store;
+
+/**
+ * 持久化存储的刷盘策略
+ * <ul>
+ *   <li>none: 不主动刷盘，由操作系统回写</li>
+ *   <li>every-n: 每写入N条消息由发送线程刷盘一次</li>
+ *   <li>interval: 组提交，后台线程每隔固定微秒刷盘，写入方等待所在批次落盘后返回</li>
+ *   <li>every-message: 每条消息写入后立即刷盘</li>
+ * </ul>
+ */
+public final class SyncPolicy {
+    public static final String NONE = "none";
+    public static final String EVERY_N = "every-n";
+    public static final String INTERVAL = "interval";
+    public static final String EVERY_MESSAGE = "every-message";
+    
+    private final String type;
+    private final int everyN;
+    private final long intervalMicros;
+    
+    public SyncPolicy(String type, int everyN, long intervalMicros) {
+        switch (type) {
+            case NONE:
+            case EVERY_N:
+            case INTERVAL:
+            case EVERY_MESSAGE:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown sync policy: " + type);
+        }
+        if (EVERY_N.equals(type) && everyN < 1) {
+            throw new IllegalArgumentException("sync every-n must be positive: " + everyN);
+        }
+        if (INTERVAL.equals(type) && intervalMicros < 1) {
+            throw new IllegalArgumentException("sync interval-micros must be positive: " + intervalMicros);
+        }
+        this.type = type;
+        this.everyN = everyN;
+        this.intervalMicros = intervalMicros;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public int getEveryN() {
+        return everyN;
+    }
+    
+    public long getIntervalMicros() {
+        return intervalMicros;
+    }
+    
+    @Override
+    public String toString() {
+        switch (type) {
+            case EVERY_N:
+                return type + "(" + everyN + ")";
+            case INTERVAL:
+                return type + "(" + intervalMicros + "us)";
+            default:
+                return type;
+        }
+    }
+}
\ No newline at end of file
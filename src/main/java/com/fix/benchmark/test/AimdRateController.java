@@ -0,0 +1,235 @@
+package com.fix.benchmark.test;
+
+import com.fix.benchmark.metrics.LatencySnapshot;
+import com.fix.benchmark.metrics.PreciseRequestTracker;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 加性增、乘性减(AIMD)的自适应速率控制，用于寻找并保持系统不超时能承受的最高负载。
+ * <p>
+ * 每个控制周期读取{@link PreciseRequestTracker}的区间应答延迟、在途请求数和新增超时:
+ * p99和在途数都在目标之内且没有新超时时速率增加固定值，否则乘以减小系数。
+ * 速率通过{@link LoadPhase.Adaptive}交给节拍器，调整从当前时刻生效。
+ * 每个周期的速率和同一区间的延迟记入时间线，结束时输出，也可以写成CSV。
+ * <p>
+ * 控制器独占tracker的区间延迟，运行期间其他地方不应再调用getIntervalResponseTime。
+ */
+public class AimdRateController implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(AimdRateController.class);
+    
+    private final PreciseRequestTracker tracker;
+    private final LoadPhase.Adaptive phase;
+    private final double minRate;
+    private final double maxRate;
+    private final double increasePerInterval;
+    private final double decreaseFactor;
+    private final long intervalMillis;
+    private final long targetP99Nanos;
+    private final int maxPending;
+    private final String timelineFile;
+    
+    private final List<Sample> timeline = Collections.synchronizedList(new ArrayList<>());
+    private volatile long startNanos;
+    private long lastNanos;
+    private long lastTimeouts;
+    
+    public AimdRateController(PreciseRequestTracker tracker, double initialRate, double minRate, double maxRate,
+                              double increasePerInterval, double decreaseFactor, long intervalMillis,
+                              double targetP99Millis, int maxPending, long durationSeconds, String timelineFile) {
+        if (!(minRate > 0) || maxRate < minRate || initialRate < minRate || initialRate > maxRate) {
+            throw new IllegalArgumentException("Adaptive rate requires 0 < min-rate <= initial-rate <= max-rate");
+        }
+        if (!(increasePerInterval > 0) || !(decreaseFactor > 0 && decreaseFactor < 1)) {
+            throw new IllegalArgumentException("Adaptive rate requires increase > 0 and 0 < decrease-factor < 1");
+        }
+        if (intervalMillis <= 0 || !(targetP99Millis > 0) || maxPending <= 0) {
+            throw new IllegalArgumentException("Adaptive rate requires positive interval, target p99 and max pending");
+        }
+        this.tracker = tracker;
+        this.phase = new LoadPhase.Adaptive("adaptive", durationSeconds, false, initialRate);
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increasePerInterval = increasePerInterval;
+        this.decreaseFactor = decreaseFactor;
+        this.intervalMillis = intervalMillis;
+        this.targetP99Nanos = (long) (targetP99Millis * 1_000_000);
+        this.maxPending = maxPending;
+        this.timelineFile = timelineFile;
+    }
+    
+    /**
+     * 读取test.adaptive配置块
+     */
+    public static AimdRateController fromConfig(Config config, PreciseRequestTracker tracker, long durationSeconds) {
+        return new AimdRateController(
+                tracker,
+                config.getDouble("initial-rate"),
+                config.getDouble("min-rate"),
+                config.getDouble("max-rate"),
+                config.getDouble("increase-per-interval"),
+                config.getDouble("decrease-factor"),
+                config.getLong("interval-millis"),
+                config.getDouble("target-p99-millis"),
+                config.getInt("max-pending"),
+                durationSeconds,
+                config.hasPath("timeline-file") ? config.getString("timeline-file") : "");
+    }
+    
+    /**
+     * 只含一个自适应阶段的负载曲线
+     */
+    public LoadProfile getProfile() {
+        return new LoadProfile(Collections.singletonList(phase));
+    }
+    
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+    
+    /**
+     * 曲线从startNanos开始，与节拍器使用同一起点
+     */
+    public void start(long startNanos) {
+        this.startNanos = startNanos;
+        this.lastNanos = startNanos;
+        this.lastTimeouts = tracker.getExpiredTimeouts() + tracker.getOverrunTimeouts();
+        tracker.getIntervalResponseTime();
+    }
+    
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        LatencySnapshot latency = tracker.getIntervalResponseTime();
+        int pending = tracker.getPendingCount();
+        long timeouts = tracker.getExpiredTimeouts() + tracker.getOverrunTimeouts();
+        long newTimeouts = timeouts - lastTimeouts;
+        lastTimeouts = timeouts;
+        
+        boolean breach = latency.p99Nanos > targetP99Nanos || pending > maxPending || newTimeouts > 0;
+        double rate = phase.getRate();
+        double next = breach ? Math.max(minRate, rate * decreaseFactor) : Math.min(maxRate, rate + increasePerInterval);
+        double elapsedSeconds = (now - startNanos) / 1_000_000_000.0;
+        if (next != rate) {
+            phase.setRate(elapsedSeconds, next);
+        }
+        
+        Sample sample = new Sample(elapsedSeconds, rate, next,
+                latency.count / ((now - lastNanos) / 1_000_000_000.0), latency, pending, newTimeouts, breach);
+        lastNanos = now;
+        timeline.add(sample);
+        logger.info("Adaptive rate: {}", sample);
+    }
+    
+    public List<Sample> getTimeline() {
+        synchronized (timeline) {
+            return new ArrayList<>(timeline);
+        }
+    }
+    
+    /**
+     * 输出速率与延迟时间线，配置了timeline-file时同时写入CSV
+     */
+    public void report() {
+        List<Sample> samples = getTimeline();
+        if (samples.isEmpty()) {
+            return;
+        }
+        
+        double maxHeld = 0;
+        double sum = 0;
+        int decreases = 0;
+        for (Sample sample : samples) {
+            sum += sample.rate;
+            if (sample.breach) {
+                decreases++;
+            } else {
+                maxHeld = Math.max(maxHeld, sample.rate);
+            }
+        }
+        // 后一半时间的平均速率，此时控制器已收敛到锯齿区间
+        double settled = 0;
+        List<Sample> tail = samples.subList(samples.size() / 2, samples.size());
+        for (Sample sample : tail) {
+            settled += sample.rate;
+        }
+        
+        logger.info("=== Adaptive Rate Timeline ===");
+        logger.info(String.format("%9s %12s %12s %12s %10s %10s %10s %8s %8s",
+                "time(s)", "rate/s", "next/s", "responses/s", "p50(ms)", "p99(ms)", "max(ms)", "pending", "timeouts"));
+        for (Sample s : samples) {
+            logger.info(String.format("%9.1f %12.1f %12.1f %12.1f %10.3f %10.3f %10.3f %8d %8d",
+                    s.elapsedSeconds, s.rate, s.nextRate, s.responseRate,
+                    s.latency.p50Nanos / 1_000_000.0, s.latency.p99Nanos / 1_000_000.0,
+                    s.latency.maxNanos / 1_000_000.0, s.pending, s.timeouts));
+        }
+        logger.info("Adaptive rate: highest rate held within target {} msg/s, mean {} msg/s, settled mean {} msg/s, {} decreases in {} intervals",
+                String.format("%.1f", maxHeld), String.format("%.1f", sum / samples.size()),
+                String.format("%.1f", settled / tail.size()), decreases, samples.size());
+        
+        if (!timelineFile.isEmpty()) {
+            writeTimeline(Paths.get(timelineFile), samples);
+        }
+    }
+    
+    private void writeTimeline(Path path, List<Sample> samples) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.println("elapsed_s,rate,next_rate,responses_per_s,count,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,pending,timeouts,breach");
+            for (Sample s : samples) {
+                out.println(String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%b",
+                        s.elapsedSeconds, s.rate, s.nextRate, s.responseRate, s.latency.count,
+                        s.latency.p50Nanos / 1_000_000.0, s.latency.p90Nanos / 1_000_000.0,
+                        s.latency.p99Nanos / 1_000_000.0, s.latency.p999Nanos / 1_000_000.0,
+                        s.latency.maxNanos / 1_000_000.0, s.pending, s.timeouts, s.breach));
+            }
+            logger.info("Adaptive rate timeline written to {}", path.toAbsolutePath());
+        } catch (IOException e) {
+            logger.error("Failed to write adaptive rate timeline to {}", path, e);
+        }
+    }
+    
+    /**
+     * 一个控制周期: 周期内的速率、周期结束时决定的新速率和同一区间的应答延迟
+     */
+    public static final class Sample {
+        public final double elapsedSeconds;
+        public final double rate;
+        public final double nextRate;
+        public final double responseRate;
+        public final LatencySnapshot latency;
+        public final int pending;
+        public final long timeouts;
+        public final boolean breach;
+        
+        Sample(double elapsedSeconds, double rate, double nextRate, double responseRate,
+               LatencySnapshot latency, int pending, long timeouts, boolean breach) {
+            this.elapsedSeconds = elapsedSeconds;
+            this.rate = rate;
+            this.nextRate = nextRate;
+            this.responseRate = responseRate;
+            this.latency = latency;
+            this.pending = pending;
+            this.timeouts = timeouts;
+            this.breach = breach;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("t=%.1fs, rate=%.1f -> %.1f msg/s, responses=%.1f/s, p99=%.3fms, pending=%d, timeouts=%d%s",
+                    elapsedSeconds, rate, nextRate, responseRate, latency.p99Nanos / 1_000_000.0,
+                    pending, timeouts, breach ? ", BREACH" : "");
+        }
+    }
+}
\ No newline at end of file
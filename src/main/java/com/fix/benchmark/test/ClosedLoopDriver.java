@@ -0,0 +1,340 @@
+package com.fix.benchmark.test;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.engine.EngineSession;
+import com.fix.benchmark.metrics.LatencySnapshot;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.utils.TestReqIdCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 闭环压测: 每个会话保持固定数量K个在途TestRequest，收到应答的同时在接收线程上发出下一个。
+ * <p>
+ * 与按速率发送的开环模式不同，闭环的吞吐由窗口和延迟决定(吞吐 ≈ 会话数 × K / 平均延迟)，
+ * 发送端不会堆积请求，适合测量给定并发度下系统能达到的吞吐和对应的延迟。
+ * 依次运行配置中的每个(会话数, K)组合，每步先预热再测量，步与步之间等待在途请求排空，
+ * 最后输出吞吐和延迟随K与会话数变化的表格。
+ * <p>
+ * 窗口的每个位置是一条独立的请求链，位置s上的请求序号为s + n × capacity，TestReqID用{@link TestReqIdCodec}编码会话序号和请求序号。
+ * 会话本身不保存请求，应答经会话的{@link EngineSession.ResponseListener}原样交给本会话的窗口，
+ * 由窗口从TestReqID解出位置和序号，发送时间只记在位置上。单个请求超时只作废它所在的位置并立即补发，
+ * 丢失的请求不会长期占用窗口；被作废请求的迟到应答与位置上的当前序号不符，直接忽略。
+ */
+public class ClosedLoopDriver {
+    private static final Logger logger = LoggerFactory.getLogger(ClosedLoopDriver.class);
+    
+    private final List<Window> windows = new ArrayList<>();
+    private final MultiSessionConfig config;
+    private final MultiSessionMetrics metrics;
+    private final long timeoutNanos;
+    private final int capacity;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "closed-loop-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final List<StepResult> results = new ArrayList<>();
+    
+    public ClosedLoopDriver(List<? extends EngineSession> sessions, MultiSessionConfig config, MultiSessionMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getClosedLoopTimeoutMillis());
+        
+        int maxWindow = 1;
+        for (int window : config.getClosedLoopWindows()) {
+            if (window <= 0) {
+                throw new IllegalArgumentException("test.closed-loop.windows must be positive: " + window);
+            }
+            maxWindow = Math.max(maxWindow, window);
+        }
+        // 位置数取2的幂，序号到位置的映射是一次位与
+        this.capacity = Integer.highestOneBit(maxWindow * 2 - 1);
+        
+        for (EngineSession session : sessions) {
+            Window window = new Window(session, windows.size());
+            session.setResponseListener(window);
+            windows.add(window);
+        }
+    }
+    
+    /**
+     * 依次运行所有(会话数, K)组合，返回每步的结果
+     */
+    public List<StepResult> runSweep() throws InterruptedException {
+        if (windows.isEmpty()) {
+            logger.error("No connected sessions available for closed-loop test");
+            return results;
+        }
+        
+        List<Integer> sessionCounts = new ArrayList<>();
+        for (int count : config.getClosedLoopSessionCounts()) {
+            if (count > windows.size()) {
+                logger.warn("Closed-loop session count {} exceeds {} connected sessions, capped", count, windows.size());
+            }
+            int capped = Math.min(count, windows.size());
+            if (capped > 0 && !sessionCounts.contains(capped)) {
+                sessionCounts.add(capped);
+            }
+        }
+        if (sessionCounts.isEmpty()) {
+            sessionCounts.add(windows.size());
+        }
+        
+        logger.info("Starting closed-loop sweep: windows={}, sessions={}, warmup={}s, step={}s, timeout={}ms",
+                config.getClosedLoopWindows(), sessionCounts, config.getClosedLoopWarmupSeconds(),
+                config.getClosedLoopStepSeconds(), config.getClosedLoopTimeoutMillis());
+        
+        long checkMillis = Math.max(1, config.getClosedLoopTimeoutMillis() / 4);
+        ScheduledFuture<?> check = watchdog.scheduleAtFixedRate(this::checkTimeouts, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        try {
+            for (int sessionCount : sessionCounts) {
+                for (int window : config.getClosedLoopWindows()) {
+                    StepResult result = runStep(sessionCount, window);
+                    results.add(result);
+                    logger.info("Closed-loop step {}", result);
+                }
+            }
+        } finally {
+            check.cancel(false);
+            for (Window window : windows) {
+                window.stop();
+            }
+        }
+        
+        logResults();
+        return results;
+    }
+    
+    private StepResult runStep(int sessionCount, int window) throws InterruptedException {
+        List<Window> active = windows.subList(0, sessionCount);
+        for (Window w : active) {
+            w.start(window);
+        }
+        
+        TimeUnit.SECONDS.sleep(config.getClosedLoopWarmupSeconds());
+        
+        // 丢弃预热期间的延迟样本
+        metrics.getResponseTime().sampleInterval();
+        long startResponses = responses.sum();
+        long startTimeouts = timeouts.sum();
+        long startFailures = sendFailures.sum();
+        long startNanos = System.nanoTime();
+        
+        TimeUnit.SECONDS.sleep(config.getClosedLoopStepSeconds());
+        
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long stepResponses = responses.sum() - startResponses;
+        LatencySnapshot latency = metrics.getResponseTime().sampleInterval();
+        StepResult result = new StepResult(window, sessionCount,
+                stepResponses * 1_000_000_000.0 / elapsedNanos, latency,
+                timeouts.sum() - startTimeouts, sendFailures.sum() - startFailures);
+        
+        // 停止补发并等待在途请求排空，下一步从空窗口开始，超时仍未应答的请求直接作废
+        for (Window w : active) {
+            w.stop();
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (Window w : active) {
+            while (w.inFlight() > 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            w.abandon();
+        }
+        return result;
+    }
+    
+    private void checkTimeouts() {
+        long now = System.nanoTime();
+        for (Window window : windows) {
+            window.checkTimeouts(now);
+        }
+    }
+    
+    private void logResults() {
+        logger.info("=== Closed-Loop Results ===");
+        logger.info(String.format("%6s %8s %14s %10s %10s %10s %10s %10s %9s",
+                "K", "sessions", "throughput/s", "mean(ms)", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "timeouts"));
+        for (StepResult r : results) {
+            logger.info(String.format("%6d %8d %14.1f %10.3f %10.3f %10.3f %10.3f %10.3f %9d",
+                    r.window, r.sessions, r.throughput,
+                    r.latency.meanNanos / 1_000_000.0,
+                    r.latency.p50Nanos / 1_000_000.0,
+                    r.latency.p99Nanos / 1_000_000.0,
+                    r.latency.p999Nanos / 1_000_000.0,
+                    r.latency.maxNanos / 1_000_000.0,
+                    r.timeouts));
+        }
+    }
+    
+    public List<StepResult> getResults() {
+        return results;
+    }
+    
+    public void shutdown() {
+        watchdog.shutdownNow();
+        for (Window window : windows) {
+            window.stop();
+            window.session.setResponseListener(null);
+        }
+    }
+    
+    /**
+     * 单个会话的在途请求窗口。
+     * slots[s]为正数时是位置s上在途请求的序号，不大于0时位置空闲，绝对值是该位置上一个请求的序号。
+     * 占用位置用CAS，应答、看门狗和启动补发可以并发执行。
+     */
+    private final class Window implements EngineSession.ResponseListener {
+        final EngineSession session;
+        final int index;
+        final AtomicLongArray slots = new AtomicLongArray(capacity);
+        final AtomicLongArray sentNanos = new AtomicLongArray(capacity);
+        // sentNanos[s]所属请求的序号，在sentNanos之后写入；与位置上的序号不同时发送时间尚未写好
+        final AtomicLongArray sentSequence = new AtomicLongArray(capacity);
+        // 窗口大小，0表示停止补发
+        volatile int limit;
+        
+        Window(EngineSession session, int index) {
+            this.session = session;
+            this.index = index;
+            for (int slot = 0; slot < capacity; slot++) {
+                slots.set(slot, -slot);
+            }
+        }
+        
+        void start(int window) {
+            limit = window;
+            for (int slot = 0; slot < window; slot++) {
+                long current = slots.get(slot);
+                if (current <= 0) {
+                    send(slot, current, -current + capacity);
+                }
+            }
+        }
+        
+        void stop() {
+            limit = 0;
+        }
+        
+        int inFlight() {
+            int count = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (slots.get(slot) > 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        /**
+         * 作废所有在途请求，它们的迟到应答将被忽略
+         */
+        void abandon() {
+            for (int slot = 0; slot < capacity; slot++) {
+                long current = slots.get(slot);
+                if (current > 0) {
+                    slots.compareAndSet(slot, current, -current);
+                }
+            }
+        }
+        
+        /**
+         * 从expected状态占用位置并发出序号为sequence的请求，位置已被其他线程占用时放弃
+         */
+        void send(int slot, long expected, long sequence) {
+            // 先占位再记发送时间，竞争失败的线程不会覆盖胜者的发送时间；应答不会早于发送到达
+            if (!slots.compareAndSet(slot, expected, sequence)) {
+                return;
+            }
+            sentNanos.set(slot, System.nanoTime());
+            sentSequence.set(slot, sequence);
+            String testReqId = TestReqIdCodec.format(index, sequence);
+            if (!session.sendTestRequest(testReqId)) {
+                // 发送失败的位置保持空闲，由看门狗重试
+                slots.compareAndSet(slot, sequence, -sequence);
+                sendFailures.increment();
+            }
+        }
+        
+        void checkTimeouts(long now) {
+            int window = limit;
+            for (int slot = 0; slot < capacity; slot++) {
+                long current = slots.get(slot);
+                if (current > 0) {
+                    // 刚占位、发送时间还未写入的请求不判超时
+                    if (sentSequence.get(slot) == current && now - sentNanos.get(slot) > timeoutNanos
+                            && slots.compareAndSet(slot, current, -current)) {
+                        timeouts.increment();
+                        metrics.recordRequestTimeouts(session.getSessionId(), 1);
+                        if (slot < window) {
+                            send(slot, -current, current + capacity);
+                        }
+                    }
+                } else if (slot < window) {
+                    send(slot, current, -current + capacity);
+                }
+            }
+        }
+        
+        @Override
+        public void onResponse(CharSequence text, int start, int end, long receivedNanos) {
+            if (TestReqIdCodec.sessionIndex(text, start, end) != index) {
+                return;
+            }
+            long sequence = TestReqIdCodec.sequence(text, start, end);
+            if (sequence <= 0) {
+                return;
+            }
+            int slot = (int) (sequence & (capacity - 1));
+            // 发送时间须在释放位置之前读取，释放后位置可能立即被补发的请求占用
+            long sent = sentNanos.get(slot);
+            // 已超时作废或不属于本驱动的应答
+            if (!slots.compareAndSet(slot, sequence, -sequence)) {
+                return;
+            }
+            responses.increment();
+            metrics.recordResponse(session.getSessionId(), receivedNanos - sent);
+            metrics.recordResponseReceived(session.getSessionId());
+            if (slot < limit) {
+                send(slot, -sequence, sequence + capacity);
+            }
+        }
+    }
+    
+    public static final class StepResult {
+        public final int window;
+        public final int sessions;
+        public final double throughput;
+        public final LatencySnapshot latency;
+        public final long timeouts;
+        public final long sendFailures;
+        
+        StepResult(int window, int sessions, double throughput, LatencySnapshot latency, long timeouts, long sendFailures) {
+            this.window = window;
+            this.sessions = sessions;
+            this.throughput = throughput;
+            this.latency = latency;
+            this.timeouts = timeouts;
+            this.sendFailures = sendFailures;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("K=%d, sessions=%d, throughput=%.1f msg/s, timeouts=%d, sendFailures=%d, latency: %s",
+                    window, sessions, throughput, timeouts, sendFailures, latency);
+        }
+    }
+}
\ No newline at end of file
@@ -1,42 +1,64 @@
 package com.fix.benchmark.test;
 
+import com.fix.benchmark.engine.ActiveSessionRegistry;
 import com.fix.benchmark.engine.MultiSessionEngineManager;
 import com.fix.benchmark.engine.MultiSessionEngineManager.SessionInstance;
 import com.fix.benchmark.metrics.PreciseRequestTracker;
 import com.fix.benchmark.metrics.PreciseRequestTracker.StatsSnapshot;
+import com.fix.benchmark.metrics.RequestRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 public class EnhancedLoadTester {
     private static final Logger logger = LoggerFactory.getLogger(EnhancedLoadTester.class);
+    private static final int PACER_BATCH_SIZE = 64;
     
     private final MultiSessionEngineManager engineManager;
     private final PreciseRequestTracker requestTracker;
     private final long timeoutMillis;
+    private final double messagesPerSecond;
     
     private final ExecutorService testExecutor;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
     private final AtomicBoolean running = new AtomicBoolean(false);
-    
-    private final PreciseRateLimiter rateLimiter;
+    private final List<Pacer> pacers = new CopyOnWriteArrayList<>();
+    // 会话ID -> 请求跟踪器中该会话的在途请求环，会话首次发送时绑定应答回调
+    private final Map<String, RequestRing> sessionRings = new ConcurrentHashMap<>();
+    private volatile AimdRateController rateController;
+    private volatile ActiveSessionRegistry.Strategy sessionSelection = ActiveSessionRegistry.Strategy.RANDOM;
     
     public EnhancedLoadTester(MultiSessionEngineManager engineManager, PreciseRequestTracker requestTracker, 
                             int timeoutMillis, double messagesPerSecond) {
         this.engineManager = engineManager;
         this.requestTracker = requestTracker;
         this.timeoutMillis = timeoutMillis;
-        this.rateLimiter = new PreciseRateLimiter(messagesPerSecond);
+        this.messagesPerSecond = messagesPerSecond;
         
         this.testExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     }
     
+    /**
+     * 每个请求选取会话的策略，默认随机
+     */
+    public void setSessionSelection(ActiveSessionRegistry.Strategy sessionSelection) {
+        this.sessionSelection = sessionSelection;
+    }
+    
     public void startTest(int durationSeconds) {
-        logger.info("Starting enhanced test with timeout={}ms, rate={}msg/s", timeoutMillis, rateLimiter.permitsPerSecond);
+        startTest(LoadProfile.constant(messagesPerSecond, durationSeconds));
+    }
+    
+    /**
+     * 按负载曲线发送，速率为全部会话的总速率
+     */
+    public void startTest(LoadProfile profile) {
+        logger.info("Starting enhanced test with timeout={}ms, load profile phases={}, duration={}s",
+                timeoutMillis, String.join(",", profile.getPhaseNames()), profile.getDurationNanos() / 1_000_000_000L);
         
         running.set(true);
         
@@ -45,26 +67,39 @@ public class EnhancedLoadTester {
         
         // 启动实时报告
         scheduler.scheduleAtFixedRate(this::reportStatus, 5, 5, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(new SendRateReporter(pacers), 1, 1, TimeUnit.SECONDS);
         
         // 启动测试
-        testExecutor.submit(() -> runTest(durationSeconds));
+        testExecutor.submit(() -> runTest(profile));
     }
     
-    private void runTest(int durationSeconds) {
-        long endTime = System.currentTimeMillis() + durationSeconds * 1000L;
+    /**
+     * 自适应速率: 由AIMD控制器根据实时延迟调整总速率，运行durationSeconds
+     */
+    public void startAdaptiveTest(AimdRateController controller) {
+        this.rateController = controller;
+        startTest(controller.getProfile());
+    }
+    
+    private void runTest(LoadProfile profile) {
+        // 节拍器按负载曲线发放许可，发送端停顿后落后的请求整批补发，延迟从计划时间算起
+        long[] batch = new long[PACER_BATCH_SIZE];
+        long startNanos = System.nanoTime();
+        requestTracker.getPhaseLatency().start(startNanos, profile.getPhaseNames(), profile.getPhaseEndNanos());
+        Pacer pacer = new Pacer(profile, 1.0, startNanos);
+        pacers.add(pacer);
         
-        while (running.get() && System.currentTimeMillis() < endTime) {
-            // 控制发送速率
-            if (rateLimiter.tryAcquire()) {
-                sendTestRequest();
-            }
-            
-            // 短暂休眠避免CPU占用过高
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        AimdRateController controller = rateController;
+        if (controller != null) {
+            controller.start(startNanos);
+            scheduler.scheduleAtFixedRate(controller, controller.getIntervalMillis(),
+                    controller.getIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+        
+        int count;
+        while (running.get() && (count = pacer.acquire(batch)) > 0) {
+            for (int i = 0; i < count; i++) {
+                sendTestRequest(batch[i]);
             }
         }
         
@@ -76,43 +111,89 @@ public class EnhancedLoadTester {
         generateFinalReport();
     }
     
-    private void sendTestRequest() {
-        // 随机选择一个活跃会话
-        String sessionId = selectActiveSession();
-        if (sessionId == null) {
-            return;
+    /**
+     * 以固定总速率运行一次试验并阻塞到结束，供饱和点搜索使用。先预热warmupSeconds，
+     * 然后清零统计测量measureSeconds，停止发送后等待在途请求应答或超时。
+     * 会话在试验之间保持连接。测试器已停止时返回null
+     */
+    public SaturationSearch.Trial runTrial(double rate, int warmupSeconds, int measureSeconds) {
+        if (testExecutor.isShutdown()) {
+            return null;
+        }
+        running.set(true);
+        requestTracker.reset();
+        
+        long[] batch = new long[PACER_BATCH_SIZE];
+        long startNanos = System.nanoTime();
+        long measureStartNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        Pacer pacer = new Pacer(LoadProfile.constant(rate, warmupSeconds + measureSeconds), 1.0, startNanos);
+        boolean measuring = warmupSeconds == 0;
+        
+        int count;
+        while (running.get() && (count = pacer.acquire(batch)) > 0) {
+            // 预热期间的请求不计入结果，它们的迟到应答在清零后被忽略
+            if (!measuring && batch[0] >= measureStartNanos) {
+                requestTracker.reset();
+                measuring = true;
+            }
+            for (int i = 0; i < count; i++) {
+                sendTestRequest(batch[i]);
+            }
+        }
+        if (!running.get()) {
+            return null;
         }
         
-        SessionInstance session = engineManager.getSession(sessionId);
-        if (session != null && session.isConnected()) {
-            String testReqId = generateTestReqId(sessionId);
-            session.sendTestRequest(testReqId);
-            
-            // 记录请求开始时间
-            requestTracker.recordRequestStart(testReqId, System.nanoTime());
-            logger.debug("Sent test request {} via session {}", testReqId, sessionId);
+        // 最后一批请求的超时比发送结束晚一个超时时间加时间轮的刻度误差
+        long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis + 100);
+        while (requestTracker.getPendingCount() > 0 && System.nanoTime() < drainDeadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
         }
+        requestTracker.checkTimeouts(System.nanoTime());
+        
+        StatsSnapshot stats = requestTracker.getStats();
+        return new SaturationSearch.Trial(
+                rate,
+                stats.totalResponses / (double) measureSeconds,
+                stats.p50LatencyNanos / 1_000_000.0,
+                stats.p99LatencyNanos / 1_000_000.0,
+                stats.p999LatencyNanos / 1_000_000.0,
+                stats.maxLatencyNanos / 1_000_000.0,
+                stats.timeoutRate);
     }
     
-    private String selectActiveSession() {
-        // 获取所有活跃会话
-        List<String> activeSessions = engineManager.getSessions().entrySet().stream()
-                .filter(entry -> entry.getValue().isConnected())
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-        
-        if (activeSessions.isEmpty()) {
+    private void sendTestRequest(long intendedNanos) {
+        // 从登录/登出回调维护的活跃会话索引中选取，粘性哈希下同一发送线程固定使用同一会话
+        SessionInstance session = engineManager.getActiveSessions()
+                .select(sessionSelection, Thread.currentThread().getId());
+        if (session == null) {
             logger.warn("No active sessions available for testing");
-            return null;
+            return;
         }
         
-        // 随机选择一个活跃会话
-        int index = ThreadLocalRandom.current().nextInt(activeSessions.size());
-        return activeSessions.get(index);
+        if (session.isConnected()) {
+            // TestReqID由会话的环分配，应答经会话的回调回到同一个环，延迟记入请求跟踪器
+            RequestRing ring = sessionRings.computeIfAbsent(session.getSessionId(), id -> bindRing(session));
+            long sendNanos = System.nanoTime();
+            long sequence = ring.begin(intendedNanos, sendNanos);
+            String testReqId = ring.testReqId(sequence, intendedNanos, sendNanos);
+            if (session.sendTestRequest(testReqId)) {
+                logger.debug("Sent test request {} via session {}", testReqId, session.getSessionId());
+            } else {
+                ring.cancel(sequence);
+            }
+        }
     }
     
-    private String generateTestReqId(String sessionId) {
-        return "BENCH-" + sessionId + "-" + System.nanoTime() + "-" + Thread.currentThread().getId();
+    private RequestRing bindRing(SessionInstance session) {
+        RequestRing ring = requestTracker.ringFor(session.getSessionId());
+        session.setResponseListener(ring::complete);
+        return ring;
     }
     
     private void checkTimeouts() {
@@ -122,6 +203,12 @@ public class EnhancedLoadTester {
     private void reportStatus() {
         StatsSnapshot stats = requestTracker.getStats();
         logger.info("Live Stats: {}", stats);
+        // 自适应模式下区间延迟由速率控制器读取并记入时间线
+        if (rateController == null) {
+            logger.info("Interval Response Time: {}", requestTracker.getIntervalResponseTime());
+        }
+        logger.info("Interval Service Time: {}", requestTracker.getIntervalServiceTime());
+        logger.info("Interval Sender Lag: {}", requestTracker.getIntervalSenderLag());
     }
     
     private void waitForRemainingResponses() {
@@ -148,17 +235,36 @@ public class EnhancedLoadTester {
         logger.info("=== FINAL PERFORMANCE REPORT ===");
         logger.info("Total Requests: {}", stats.totalRequests);
         logger.info("Successful Responses: {}", stats.totalResponses);
-        logger.info("Timeouts: {}", stats.totalTimeouts);
+        logger.info("Timeouts: {} (expired: {}, overrun: {})", stats.totalTimeouts,
+                requestTracker.getExpiredTimeouts(), requestTracker.getOverrunTimeouts());
+        requestTracker.getTimeoutsBySession().entrySet().stream()
+                .limit(10)
+                .forEach(e -> logger.info("  {}: {}", e.getKey(), e.getValue()));
         logger.info("");
         logger.info("Response Rate: {}%", String.format("%.2f", stats.responseRate));
         logger.info("Timeout Rate: {}%", String.format("%.2f", stats.timeoutRate));
         logger.info("");
-        logger.info("Latency Statistics:");
-        logger.info("  Min: {} ms", String.format("%.2f", stats.minLatencyNanos / 1_000_000.0));
-        logger.info("  Max: {} ms", String.format("%.2f", stats.maxLatencyNanos / 1_000_000.0));
-        logger.info("  Avg: {} ms", String.format("%.2f", stats.avgLatencyNanos / 1_000_000.0));
-        logger.info("  P95: {} ms", String.format("%.2f", stats.p95LatencyNanos / 1_000_000.0));
-        logger.info("  P99: {} ms", String.format("%.2f", stats.p99LatencyNanos / 1_000_000.0));
+        logger.info("Response Time (from intended send):");
+        logger.info("  Min: {} ms", String.format("%.3f", stats.minLatencyNanos / 1_000_000.0));
+        logger.info("  Avg: {} ms", String.format("%.3f", stats.avgLatencyNanos / 1_000_000.0));
+        logger.info("  P50: {} ms", String.format("%.3f", stats.p50LatencyNanos / 1_000_000.0));
+        logger.info("  P90: {} ms", String.format("%.3f", stats.p90LatencyNanos / 1_000_000.0));
+        logger.info("  P99: {} ms", String.format("%.3f", stats.p99LatencyNanos / 1_000_000.0));
+        logger.info("  P99.9: {} ms", String.format("%.3f", stats.p999LatencyNanos / 1_000_000.0));
+        logger.info("  P99.99: {} ms", String.format("%.3f", stats.p9999LatencyNanos / 1_000_000.0));
+        logger.info("  Max: {} ms", String.format("%.3f", stats.maxLatencyNanos / 1_000_000.0));
+        logger.info("Service Time (from actual send): {}", stats.serviceTime);
+        logger.info("Sender Lag: {}", stats.senderLag);
+        logger.info("");
+        logger.info("Response Time by load phase:");
+        requestTracker.getPhaseLatency().getPhaseLatencies()
+                .forEach((phase, latency) -> logger.info("  {}: {}", phase, latency));
+        
+        AimdRateController controller = rateController;
+        if (controller != null) {
+            logger.info("");
+            controller.report();
+        }
     }
     
     public void stop() {
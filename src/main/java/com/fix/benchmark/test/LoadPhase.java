@@ -0,0 +1,376 @@
+package com.fix.benchmark.test;
+
+import com.typesafe.config.Config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负载曲线的一个阶段: 持续时间内的目标速率函数rate(t)及其累积量cumulative(t) = ∫rate，t为阶段内秒数。
+ * 到达方式为uniform时第k个请求在cumulative(t) = k处发出；poisson时相邻请求的累积量间隔服从指数分布，
+ * 即按rate(t)的非齐次泊松过程到达。
+ */
+public abstract class LoadPhase {
+    private final String name;
+    private final double durationSeconds;
+    private final boolean poisson;
+    
+    protected LoadPhase(String name, double durationSeconds, boolean poisson) {
+        if (!(durationSeconds > 0)) {
+            throw new IllegalArgumentException("Load phase " + name + " must have a positive duration");
+        }
+        this.name = name;
+        this.durationSeconds = durationSeconds;
+        this.poisson = poisson;
+    }
+    
+    /**
+     * 阶段开始后t秒的目标速率(msg/s)，恒大于0
+     */
+    public abstract double rate(double t);
+    
+    /**
+     * 阶段开始到t秒应发出的请求数
+     */
+    public abstract double cumulative(double t);
+    
+    /**
+     * 阶段内的最高速率，用于估算在途请求数
+     */
+    public abstract double peakRate();
+    
+    public String getName() {
+        return name;
+    }
+    
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+    
+    public long getDurationNanos() {
+        return (long) (durationSeconds * TimeUnit.SECONDS.toNanos(1));
+    }
+    
+    public boolean isPoisson() {
+        return poisson;
+    }
+    
+    /**
+     * 从HOCON读取一个阶段，例如:
+     * <pre>
+     * { name = "open", type = "spike", duration-seconds = 30, rate = 1000,
+     *   spike-rate = 20000, spike-seconds = 0.5, period-seconds = 10, arrivals = "poisson" }
+     * </pre>
+     */
+    public static LoadPhase fromConfig(Config config, int index) {
+        String type = config.getString("type");
+        String name = config.hasPath("name") ? config.getString("name") : type + "-" + (index + 1);
+        double duration = config.getDouble("duration-seconds");
+        String arrivals = config.hasPath("arrivals") ? config.getString("arrivals") : "uniform";
+        boolean poisson;
+        switch (arrivals) {
+            case "uniform":
+                poisson = false;
+                break;
+            case "poisson":
+                poisson = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown arrivals for load phase " + name + ": " + arrivals);
+        }
+        
+        switch (type) {
+            case "constant":
+                return new Constant(name, duration, poisson, config.getDouble("rate"));
+            case "ramp":
+                return new Ramp(name, duration, poisson, config.getDouble("from-rate"), config.getDouble("to-rate"));
+            case "staircase":
+                return new Staircase(name, duration, poisson, config.getDouble("from-rate"),
+                        config.getDouble("to-rate"), config.getInt("steps"));
+            case "spike":
+                return new Spike(name, duration, poisson, config.getDouble("rate"), config.getDouble("spike-rate"),
+                        config.getDouble("spike-seconds"),
+                        config.hasPath("period-seconds") ? config.getDouble("period-seconds") : duration,
+                        config.hasPath("offset-seconds") ? config.getDouble("offset-seconds") : 0.0);
+            case "sine":
+                return new Sine(name, duration, poisson, config.getDouble("rate"), config.getDouble("amplitude"),
+                        config.getDouble("period-seconds"));
+            default:
+                throw new IllegalArgumentException("Unknown load phase type for " + name + ": " + type);
+        }
+    }
+    
+    private static void requirePositive(String name, String key, double value) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException("Load phase " + name + " requires " + key + " > 0, got " + value);
+        }
+    }
+    
+    /**
+     * 恒定速率
+     */
+    public static final class Constant extends LoadPhase {
+        private final double rate;
+        
+        public Constant(String name, double durationSeconds, boolean poisson, double rate) {
+            super(name, durationSeconds, poisson);
+            requirePositive(name, "rate", rate);
+            this.rate = rate;
+        }
+        
+        @Override
+        public double rate(double t) {
+            return rate;
+        }
+        
+        @Override
+        public double cumulative(double t) {
+            return rate * t;
+        }
+        
+        @Override
+        public double peakRate() {
+            return rate;
+        }
+    }
+    
+    /**
+     * 速率在阶段内从fromRate线性变化到toRate
+     */
+    public static final class Ramp extends LoadPhase {
+        private final double fromRate;
+        private final double slope;
+        
+        public Ramp(String name, double durationSeconds, boolean poisson, double fromRate, double toRate) {
+            super(name, durationSeconds, poisson);
+            requirePositive(name, "from-rate", fromRate);
+            requirePositive(name, "to-rate", toRate);
+            this.fromRate = fromRate;
+            this.slope = (toRate - fromRate) / durationSeconds;
+        }
+        
+        @Override
+        public double rate(double t) {
+            return fromRate + slope * t;
+        }
+        
+        @Override
+        public double cumulative(double t) {
+            return fromRate * t + slope * t * t / 2;
+        }
+        
+        @Override
+        public double peakRate() {
+            return Math.max(fromRate, rate(getDurationSeconds()));
+        }
+    }
+    
+    /**
+     * 阶梯: 阶段均分为steps级，速率从fromRate逐级升(降)到toRate，每级内恒定
+     */
+    public static final class Staircase extends LoadPhase {
+        private final double fromRate;
+        private final double increment;
+        private final double stepSeconds;
+        private final int steps;
+        
+        public Staircase(String name, double durationSeconds, boolean poisson, double fromRate, double toRate, int steps) {
+            super(name, durationSeconds, poisson);
+            requirePositive(name, "from-rate", fromRate);
+            requirePositive(name, "to-rate", toRate);
+            requirePositive(name, "steps", steps);
+            this.fromRate = fromRate;
+            this.increment = steps > 1 ? (toRate - fromRate) / (steps - 1) : 0;
+            this.stepSeconds = durationSeconds / steps;
+            this.steps = steps;
+        }
+        
+        private int step(double t) {
+            return Math.min(steps - 1, Math.max(0, (int) (t / stepSeconds)));
+        }
+        
+        @Override
+        public double rate(double t) {
+            return fromRate + increment * step(t);
+        }
+        
+        @Override
+        public double cumulative(double t) {
+            int k = step(t);
+            // 前k级: Σ(fromRate + i * increment) * stepSeconds
+            double completed = (k * fromRate + increment * k * (k - 1) / 2.0) * stepSeconds;
+            return completed + rate(t) * (t - k * stepSeconds);
+        }
+        
+        @Override
+        public double peakRate() {
+            return Math.max(fromRate, fromRate + increment * (steps - 1));
+        }
+    }
+    
+    /**
+     * 尖峰/微突发: 基础速率rate，从offsetSeconds开始每periodSeconds出现一次持续spikeSeconds的spikeRate
+     */
+    public static final class Spike extends LoadPhase {
+        private final double rate;
+        private final double spikeRate;
+        private final double spikeSeconds;
+        private final double periodSeconds;
+        private final double offsetSeconds;
+        
+        public Spike(String name, double durationSeconds, boolean poisson, double rate, double spikeRate,
+                     double spikeSeconds, double periodSeconds, double offsetSeconds) {
+            super(name, durationSeconds, poisson);
+            requirePositive(name, "rate", rate);
+            requirePositive(name, "spike-rate", spikeRate);
+            requirePositive(name, "spike-seconds", spikeSeconds);
+            requirePositive(name, "period-seconds", periodSeconds);
+            if (spikeSeconds > periodSeconds || offsetSeconds < 0) {
+                throw new IllegalArgumentException("Load phase " + name
+                        + " requires 0 <= offset-seconds and spike-seconds <= period-seconds");
+            }
+            this.rate = rate;
+            this.spikeRate = spikeRate;
+            this.spikeSeconds = spikeSeconds;
+            this.periodSeconds = periodSeconds;
+            this.offsetSeconds = offsetSeconds;
+        }
+        
+        // 到t为止处于尖峰内的总时间
+        private double spikeTime(double t) {
+            double u = t - offsetSeconds;
+            if (u <= 0) {
+                return 0;
+            }
+            double periods = Math.floor(u / periodSeconds);
+            return periods * spikeSeconds + Math.min(u - periods * periodSeconds, spikeSeconds);
+        }
+        
+        @Override
+        public double rate(double t) {
+            double u = t - offsetSeconds;
+            return u >= 0 && u - Math.floor(u / periodSeconds) * periodSeconds < spikeSeconds ? spikeRate : rate;
+        }
+        
+        @Override
+        public double cumulative(double t) {
+            return rate * t + (spikeRate - rate) * spikeTime(t);
+        }
+        
+        @Override
+        public double peakRate() {
+            return Math.max(rate, spikeRate);
+        }
+    }
+    
+    /**
+     * 正弦: rate + amplitude * sin(2πt / periodSeconds)，amplitude须小于rate
+     */
+    public static final class Sine extends LoadPhase {
+        private final double rate;
+        private final double amplitude;
+        private final double omega;
+        
+        public Sine(String name, double durationSeconds, boolean poisson, double rate, double amplitude, double periodSeconds) {
+            super(name, durationSeconds, poisson);
+            requirePositive(name, "period-seconds", periodSeconds);
+            if (!(Math.abs(amplitude) < rate)) {
+                throw new IllegalArgumentException("Load phase " + name + " requires |amplitude| < rate");
+            }
+            this.rate = rate;
+            this.amplitude = amplitude;
+            this.omega = 2 * Math.PI / periodSeconds;
+        }
+        
+        @Override
+        public double rate(double t) {
+            return rate + amplitude * Math.sin(omega * t);
+        }
+        
+        @Override
+        public double cumulative(double t) {
+            return rate * t + amplitude / omega * (1 - Math.cos(omega * t));
+        }
+        
+        @Override
+        public double peakRate() {
+            return rate + Math.abs(amplitude);
+        }
+    }
+    
+    /**
+     * 速率由外部控制器在运行中调整。每次调整开始一个恒速段，累积量按调整历史分段线性计算，
+     * 在调整点连续，节拍器不会因调整补发或跳过许可。只能有一个线程调用setRate
+     */
+    public static final class Adaptive extends LoadPhase {
+        private volatile Segment current;
+        
+        public Adaptive(String name, double durationSeconds, boolean poisson, double initialRate) {
+            super(name, durationSeconds, poisson);
+            requirePositive(name, "initial-rate", initialRate);
+            this.current = new Segment(0, 0, initialRate, null);
+        }
+        
+        public double getRate() {
+            return current.rate;
+        }
+        
+        /**
+         * 从阶段内第t秒起改为rate，t不早于上次调整
+         */
+        public void setRate(double t, double rate) {
+            requirePositive(getName(), "rate", rate);
+            Segment last = current;
+            double from = Math.max(t, last.startSeconds);
+            current = new Segment(from, last.cumulative(from), rate, last);
+        }
+        
+        @Override
+        public double rate(double t) {
+            return segmentAt(t).rate;
+        }
+        
+        @Override
+        public double cumulative(double t) {
+            return segmentAt(t).cumulative(t);
+        }
+        
+        /**
+         * 到目前为止设置过的最高速率，之后的调整由控制器的上限约束
+         */
+        @Override
+        public double peakRate() {
+            double peak = 0;
+            for (Segment segment = current; segment != null; segment = segment.previous) {
+                peak = Math.max(peak, segment.rate);
+            }
+            return peak;
+        }
+        
+        // 节拍器总是查询最近的段，较早的时间只有报告会用到
+        private Segment segmentAt(double t) {
+            Segment segment = current;
+            while (t < segment.startSeconds && segment.previous != null) {
+                segment = segment.previous;
+            }
+            return segment;
+        }
+        
+        private static final class Segment {
+            final double startSeconds;
+            final double startCumulative;
+            final double rate;
+            final Segment previous;
+            
+            Segment(double startSeconds, double startCumulative, double rate, Segment previous) {
+                this.startSeconds = startSeconds;
+                this.startCumulative = startCumulative;
+                this.rate = rate;
+                this.previous = previous;
+            }
+            
+            double cumulative(double t) {
+                return startCumulative + rate * (t - startSeconds);
+            }
+        }
+    }
+}
\ No newline at end of file
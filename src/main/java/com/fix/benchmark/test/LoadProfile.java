@@ -0,0 +1,127 @@
+package com.fix.benchmark.test;
+
+import com.typesafe.config.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 负载曲线: 按顺序执行的若干{@link LoadPhase}。未配置test.load-profile.phases时为单一恒定速率阶段。
+ * 速率是全部发送端的总速率，各发送端按份额缩放。
+ */
+public final class LoadProfile {
+    private final List<LoadPhase> phases;
+    private final long[] phaseStartNanos;
+    private final double[] phaseStartPermits;
+    private final long durationNanos;
+    
+    public LoadProfile(List<LoadPhase> phases) {
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("Load profile requires at least one phase");
+        }
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+        this.phaseStartNanos = new long[phases.size()];
+        this.phaseStartPermits = new double[phases.size()];
+        long start = 0;
+        double permits = 0;
+        for (int i = 0; i < phases.size(); i++) {
+            LoadPhase phase = phases.get(i);
+            phaseStartNanos[i] = start;
+            phaseStartPermits[i] = permits;
+            start += phase.getDurationNanos();
+            permits += phase.cumulative(phase.getDurationSeconds());
+        }
+        this.durationNanos = start;
+    }
+    
+    public static LoadProfile constant(double permitsPerSecond, long durationSeconds) {
+        return new LoadProfile(Collections.singletonList(
+                new LoadPhase.Constant("constant", durationSeconds, false, permitsPerSecond)));
+    }
+    
+    /**
+     * 读取test.load-profile.phases；未配置时按defaultRate恒速运行defaultDurationSeconds
+     */
+    public static LoadProfile fromConfig(Config config, double defaultRate, long defaultDurationSeconds) {
+        String path = "test.load-profile.phases";
+        if (!config.hasPath(path) || config.getConfigList(path).isEmpty()) {
+            return constant(defaultRate, defaultDurationSeconds);
+        }
+        List<? extends Config> entries = config.getConfigList(path);
+        List<LoadPhase> phases = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            phases.add(LoadPhase.fromConfig(entries.get(i), i));
+        }
+        return new LoadProfile(phases);
+    }
+    
+    public List<LoadPhase> getPhases() {
+        return phases;
+    }
+    
+    public LoadPhase getPhase(int index) {
+        return phases.get(index);
+    }
+    
+    /**
+     * 阶段index相对曲线开始的起始时间
+     */
+    public long getPhaseStartNanos(int index) {
+        return phaseStartNanos[index];
+    }
+    
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+    
+    /**
+     * 曲线开始后offsetNanos所处的阶段
+     */
+    public int phaseAt(long offsetNanos) {
+        int index = 0;
+        while (index + 1 < phaseStartNanos.length && offsetNanos >= phaseStartNanos[index + 1]) {
+            index++;
+        }
+        return index;
+    }
+    
+    /**
+     * 曲线开始到offsetNanos应发出的总请求数
+     */
+    public double cumulative(long offsetNanos) {
+        if (offsetNanos <= 0) {
+            return 0;
+        }
+        int index = phaseAt(Math.min(offsetNanos, durationNanos));
+        LoadPhase phase = phases.get(index);
+        double t = Math.min(offsetNanos - phaseStartNanos[index], phase.getDurationNanos()) / 1_000_000_000.0;
+        return phaseStartPermits[index] + phase.cumulative(t);
+    }
+    
+    /**
+     * 各阶段中的最高速率
+     */
+    public double getPeakRate() {
+        double peak = 0;
+        for (LoadPhase phase : phases) {
+            peak = Math.max(peak, phase.peakRate());
+        }
+        return peak;
+    }
+    
+    public String[] getPhaseNames() {
+        return phases.stream().map(LoadPhase::getName).toArray(String[]::new);
+    }
+    
+    /**
+     * 各阶段相对曲线开始的结束时间
+     */
+    public long[] getPhaseEndNanos() {
+        long[] ends = new long[phases.size()];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = phaseStartNanos[i] + phases.get(i).getDurationNanos();
+        }
+        return ends;
+    }
+}
\ No newline at end of file
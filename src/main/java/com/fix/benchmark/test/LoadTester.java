@@ -6,6 +6,7 @@ import com.fix.benchmark.metrics.MetricsCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -19,6 +20,7 @@ public class LoadTester {
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private final ExecutorService workerPool;
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private final List<BatchedRateLimiter> limiters = new CopyOnWriteArrayList<>();
     
     public LoadTester(FixEngineManager engineManager, BenchmarkConfig config, MetricsCollector metricsCollector) {
         this.engineManager = engineManager;
@@ -36,6 +38,7 @@ public class LoadTester {
         running.set(true);
         logger.info("Starting load test with {} threads, {} msg/s for {} seconds", 
                 config.getThreads(), config.getMessagesPerSecond(), config.getTestDurationSeconds());
+        scheduler.scheduleAtFixedRate(new SendRateReporter(limiters), 1, 1, TimeUnit.SECONDS);
         
         // 预热阶段
         if (config.getWarmupSeconds() > 0) {
@@ -50,42 +53,27 @@ public class LoadTester {
     
     private void runTest(boolean isWarmup) {
         int duration = isWarmup ? config.getWarmupSeconds() : config.getTestDurationSeconds();
-        int messagesPerSecond = config.getMessagesPerSecond();
-        int messagesPerThread = Math.max(1, messagesPerSecond / config.getThreads());
-        
-        long endTime = System.currentTimeMillis() + duration * 1000L;
-        
         CountDownLatch latch = new CountDownLatch(config.getThreads());
         
+        // 各线程共用一个限速器按许可均匀发送，被发送阻塞的线程的份额由其它线程接手，
+        // 线程结束时交还已领取未发出的许可
+        limiters.clear();
+        BatchedRateLimiter limiter = new BatchedRateLimiter(config.getMessagesPerSecond());
+        limiters.add(limiter);
+        long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
         for (int i = 0; i < config.getThreads(); i++) {
-            final int threadId = i;
             workerPool.submit(() -> {
                 try {
-                    while (running.get() && System.currentTimeMillis() < endTime) {
-                        long batchStart = System.currentTimeMillis();
-                        
-                        // 发送一批消息
-                        for (int j = 0; j < messagesPerThread; j++) {
-                            if (!running.get()) break;
-                            
-                            String testReqId = TestRequestGenerator.generateTestReqId();
-                            try {
-                                engineManager.sendTestRequest(testReqId);
-                            } catch (Exception e) {
-                                logger.error("Error sending test request", e);
-                            }
-                        }
-                        
-                        // 控制发送速率
-                        long batchDuration = System.currentTimeMillis() - batchStart;
-                        long sleepTime = 1000L - batchDuration;
-                        if (sleepTime > 0) {
-                            Thread.sleep(sleepTime);
+                    while (running.get() && limiter.acquire(endNanos)) {
+                        String testReqId = TestRequestGenerator.generateTestReqId();
+                        try {
+                            engineManager.sendTestRequest(testReqId);
+                        } catch (Exception e) {
+                            logger.error("Error sending test request", e);
                         }
                     }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
                 } finally {
+                    limiter.release();
                     latch.countDown();
                 }
             });
@@ -93,6 +81,8 @@ public class LoadTester {
         
         try {
             latch.await();
+            // 本轮结束后不再有计划许可
+            limiters.remove(limiter);
             if (!isWarmup) {
                 logger.info("Test completed");
             }
@@ -1,131 +1,143 @@
 package com.fix.benchmark.test;
 
 import com.fix.benchmark.config.MultiSessionConfig;
-import com.fix.benchmark.engine.MultiSessionEngineManager;
-import com.fix.benchmark.engine.MultiSessionEngineManager.SessionInstance;
+import com.fix.benchmark.engine.EngineSession;
+import com.fix.benchmark.engine.SessionEngine;
 import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.metrics.PreciseRequestTracker;
+import com.fix.benchmark.metrics.RequestRing;
+import com.fix.benchmark.metrics.SendAllocationStats;
+import com.fix.benchmark.utils.TestReqIdCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 
 public class MultiSessionLoadTester {
     private static final Logger logger = LoggerFactory.getLogger(MultiSessionLoadTester.class);
+    private static final int PACER_BATCH_SIZE = 64;
     
-    private final MultiSessionEngineManager engineManager;
+    private final SessionEngine<?> engineManager;
     private final MultiSessionConfig config;
     private final MultiSessionMetrics metrics;
+    // 请求经各会话的请求环关联，延迟、应答和超时计入metrics
+    private final PreciseRequestTracker requestTracker;
     
     private final ExecutorService testExecutor;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private final AtomicBoolean running = new AtomicBoolean(false);
     
-    private final List<String> activeSessions = new CopyOnWriteArrayList<>();
+    private final List<Pacer> pacers = new CopyOnWriteArrayList<>();
     private final Random random = new Random();
     
-    public MultiSessionLoadTester(MultiSessionEngineManager engineManager, MultiSessionConfig config, MultiSessionMetrics metrics) {
+    /**
+     * @param ringCapacity 每会话请求环的容量，见{@link MultiSessionConfig#getRingCapacity}
+     */
+    public MultiSessionLoadTester(SessionEngine<?> engineManager, MultiSessionConfig config, MultiSessionMetrics metrics,
+                                  int ringCapacity) {
         this.engineManager = engineManager;
         this.config = config;
         this.metrics = metrics;
+        this.requestTracker = new PreciseRequestTracker(config.getRequestTimeoutMillis(),
+                ringCapacity, config.isEmbeddedTimestamps(), metrics);
         this.testExecutor = Executors.newCachedThreadPool();
     }
     
-    public void startMultiSessionTest(String baseSenderCompId, String targetCompId, int sessionCount, int totalMessagesPerSecond) {
-        logger.info("Starting multi-session test with {} sessions, {} msg/s total", sessionCount, totalMessagesPerSecond);
+    /**
+     * 按负载曲线发送，曲线中的速率为全部会话的总速率
+     */
+    public void startMultiSessionTest(String baseSenderCompId, String targetCompId, int sessionCount, LoadProfile profile) {
+        logger.info("Starting multi-session test with {} sessions, load profile phases={}, duration={}s",
+                sessionCount, String.join(",", profile.getPhaseNames()), profile.getDurationNanos() / 1_000_000_000L);
         
-        // 创建多个会话
-        engineManager.createMultipleSessions(baseSenderCompId, targetCompId, sessionCount);
-        
-        // 等待所有会话建立
-        try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return;
-        }
+        running.set(true);
+        pacers.clear();
         
-        // 收集活跃会话
-        activeSessions.clear();
-        activeSessions.addAll(getActiveSessions());
+        // 曲线从现在开始计时，各会话登录后从曲线的当前位置加入，按会话数分得各自的份额，
+        // 全部会话就绪后总速率达到曲线的目标值
+        long profileStartNanos = System.nanoTime();
+        double share = 1.0 / sessionCount;
+        metrics.getPhaseLatency().start(profileStartNanos, profile.getPhaseNames(), profile.getPhaseEndNanos());
         
-        if (activeSessions.isEmpty()) {
-            logger.error("No active sessions available for testing");
-            return;
+        // 创建多个会话，每个会话登录后立即开始发送
+        List<? extends CompletableFuture<? extends EngineSession>> sessions =
+                engineManager.startSessions(baseSenderCompId, targetCompId, sessionCount);
+        for (CompletableFuture<? extends EngineSession> session : sessions) {
+            session.thenAccept(instance -> {
+                if (running.get()) {
+                    Pacer pacer = new Pacer(profile, share, profileStartNanos, System.nanoTime());
+                    testExecutor.submit(() -> runSessionTest(instance, instance.getSessionId(), pacer));
+                }
+            });
         }
         
-        logger.info("Active sessions for testing: {}", activeSessions.size());
-        
-        running.set(true);
-        
-        // 计算每个会话的消息速率
-        int messagesPerSession = totalMessagesPerSecond / activeSessions.size();
-        if (messagesPerSession == 0) messagesPerSession = 1;
-        
-        // 启动测试
-        for (String sessionId : activeSessions) {
-            SessionInstance instance = engineManager.getSession(sessionId);
-            if (instance != null && instance.isConnected()) {
-                testExecutor.submit(() -> runSessionTest(instance, sessionId, messagesPerSession));
+        engineManager.getStartupComplete().thenRun(() -> {
+            int active = engineManager.getActiveConnectionCount();
+            if (active == 0) {
+                logger.error("No active sessions available for testing");
+            } else {
+                logger.info("Active sessions for testing: {}", active);
             }
-        }
+        });
         
         // 定期报告状态
         scheduler.scheduleAtFixedRate(this::reportStatus, 10, 10, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(new SendRateReporter(pacers), 1, 1, TimeUnit.SECONDS);
     }
     
-    private void runSessionTest(SessionInstance instance, String sessionId, int messagesPerSecond) {
-        logger.info("Starting test for session {} at {} msg/s", sessionId, messagesPerSecond);
+    private void runSessionTest(EngineSession instance, String sessionId, Pacer pacer) {
+        logger.info("Starting test for session {}", sessionId);
         
-        long testDuration = 60; // 60秒测试
-        long endTime = System.currentTimeMillis() + testDuration * 1000L;
+        SendAllocationStats allocationStats = metrics.getSendAllocationStats();
         
-        while (running.get() && System.currentTimeMillis() < endTime && instance.isConnected()) {
-            long batchStart = System.currentTimeMillis();
-            
-            // 发送一批消息
-            for (int i = 0; i < messagesPerSecond; i++) {
-                if (!running.get() || !instance.isConnected()) break;
-                
-                String testReqId = generateTestReqId(sessionId);
-                instance.sendTestRequest(testReqId);
-            }
-            
-            // 控制发送速率
-            long batchDuration = System.currentTimeMillis() - batchStart;
-            long sleepTime = 1000 - batchDuration;
-            if (sleepTime > 0) {
-                try {
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+        // 节拍器按负载曲线发放许可，发送端落后(GC、调度)时整批补发，延迟仍从计划时间算起
+        long[] batch = new long[PACER_BATCH_SIZE];
+        pacers.add(pacer);
+        
+        // 请求序号由会话的环分配并编入TestReqID，应答经会话回调回到同一个环，会话本身不登记请求
+        RequestRing ring = requestTracker.ringFor(sessionId);
+        instance.setResponseListener(ring::complete);
+        
+        // TestReqID写入本线程复用的缓冲区，只为发送接口生成一次String
+        TestReqIdCodec testReqId = new TestReqIdCodec();
+        
+        int count;
+        while (running.get() && instance.isConnected() && (count = pacer.acquire(batch)) > 0) {
+            for (int i = 0; i < count; i++) {
+                long mark = allocationStats.mark();
+                long sendNanos = System.nanoTime();
+                long sequence = ring.begin(batch[i], sendNanos);
+                if (!instance.sendTestRequest(ring.testReqId(testReqId, sequence, batch[i], sendNanos).toString())) {
+                    ring.cancel(sequence);
                 }
+                allocationStats.record(mark);
             }
         }
         
         logger.info("Test completed for session {}", sessionId);
     }
     
-    private List<String> getActiveSessions() {
-        List<String> active = new ArrayList<>();
-        // 这里应该返回实际连接的会话列表
-        // 简化实现，实际应该从engineManager获取
-        return active;
-    }
-    
-    private String generateTestReqId(String sessionId) {
-        return "BENCH-" + sessionId + "-" + System.currentTimeMillis() + "-" + Thread.currentThread().getId();
-    }
-    
     private void reportStatus() {
         logger.info("=== Live Status Report ===");
-        logger.info("Active Sessions: {}", engineManager.getActiveConnectionCount());
+        logger.info("Active Sessions: {} logged on, {} connected successfully",
+                engineManager.getActiveSessions().size(), engineManager.getActiveConnectionCount());
         logger.info("Connection Success Rate: {}%", String.format("%.2f", engineManager.getConnectionSuccessRate()));
         logger.info("Global Response Rate: {}%", String.format("%.2f", metrics.getGlobalResponseRate()));
         logger.info("Global Average Latency: {} ms", String.format("%.2f", metrics.getGlobalAverageLatencyMs()));
+        logger.info("Interval Response Time: {}", metrics.getResponseTime().sampleInterval());
+        logger.info("Interval Service Time: {}", metrics.getServiceTime().sampleInterval());
+        logger.info("Interval Sender Lag: {}", metrics.getSenderLag().sampleInterval());
+        reportPhaseLatencies();
+    }
+    
+    private void reportPhaseLatencies() {
+        metrics.getPhaseLatency().getPhaseLatencies().forEach((phase, latency) -> {
+            if (latency.count > 0) {
+                logger.info("Phase {} Response Time: {}", phase, latency);
+            }
+        });
     }
     
     public void stop() {
@@ -146,6 +158,9 @@ public class MultiSessionLoadTester {
             Thread.currentThread().interrupt();
         }
         
+        requestTracker.checkTimeouts(System.nanoTime());
+        requestTracker.shutdown();
+        reportPhaseLatencies();
         metrics.shutdown();
     }
 }
\ No newline at end of file
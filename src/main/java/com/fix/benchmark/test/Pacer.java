@@ -0,0 +1,157 @@
+package com.fix.benchmark.test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 发送节拍器。按{@link LoadProfile}排出每个许可的计划发送时间: 阶段内第k个许可在累积量cumulative(t) = k处，
+ * 泊松到达时累积量的间隔服从指数分布。计划不因发送端停顿而顺延，落后时一次取出全部已到期的许可补发，
+ * 延迟仍从计划时间算起。
+ * <p>
+ * 计划时间由累积量反解(牛顿迭代)，而不是累加取整后的间隔，长期速率没有累积误差。
+ * 距下一个许可较远时parkNanos，剩余不足自旋阈值时自旋，避免parkNanos几十微秒的调度误差；
+ * 高速率下一次唤醒取出一批许可，每批只读一次时钟。
+ * 一个实例只由一个发送线程使用，已发放的许可数可由其它线程读取。
+ */
+public final class Pacer implements PermitSource {
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    
+    private final LoadProfile profile;
+    private final double share;
+    private final long startNanos;
+    private final long joinOffsetNanos;
+    private final SplittableRandom random = new SplittableRandom();
+    
+    // 当前阶段，以及下一个许可在阶段内的时间(秒)和对应的累积量
+    private int phaseIndex;
+    private LoadPhase phase;
+    private long phaseStartNanos;
+    private double t;
+    private double target;
+    private boolean finished;
+    
+    private volatile long issued;
+    
+    /**
+     * 按share份额执行profile，曲线从startNanos开始
+     */
+    public Pacer(LoadProfile profile, double share, long startNanos) {
+        this(profile, share, startNanos, startNanos);
+    }
+    
+    /**
+     * 在曲线进行到joinNanos时加入，之前的许可不补发
+     */
+    public Pacer(LoadProfile profile, double share, long startNanos, long joinNanos) {
+        if (!(share > 0)) {
+            throw new IllegalArgumentException("share must be positive: " + share);
+        }
+        this.profile = profile;
+        this.share = share;
+        this.startNanos = startNanos;
+        this.joinOffsetNanos = Math.max(0, joinNanos - startNanos);
+        
+        if (joinOffsetNanos >= profile.getDurationNanos()) {
+            finished = true;
+        } else {
+            int index = profile.phaseAt(joinOffsetNanos);
+            enterPhase(index, (joinOffsetNanos - profile.getPhaseStartNanos(index)) / NANOS_PER_SECOND);
+        }
+    }
+    
+    /**
+     * 等待下一个许可到期，把已到期许可的计划发送时间依次写入intendedNanos，返回写入的个数。
+     * 曲线结束或线程被中断时返回0
+     */
+    public int acquire(long[] intendedNanos) {
+        if (finished) {
+            return 0;
+        }
+        
+        long due = dueNanos();
+        long now = System.nanoTime();
+        long waitNanos;
+        while ((waitNanos = due - now) > 0) {
+            if (waitNanos > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(waitNanos - SPIN_THRESHOLD_NANOS);
+                if (Thread.currentThread().isInterrupted()) {
+                    return 0;
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+            now = System.nanoTime();
+        }
+        
+        int count = 0;
+        do {
+            intendedNanos[count++] = due;
+            advance();
+            if (finished) {
+                break;
+            }
+            due = dueNanos();
+        } while (count < intendedNanos.length && due - now <= 0);
+        
+        issued += count;
+        return count;
+    }
+    
+    private long dueNanos() {
+        return phaseStartNanos + (long) (t * NANOS_PER_SECOND);
+    }
+    
+    private void enterPhase(int index, double t0) {
+        phaseIndex = index;
+        phase = profile.getPhase(index);
+        phaseStartNanos = startNanos + profile.getPhaseStartNanos(index);
+        t = t0;
+        target = share * phase.cumulative(t0) + (phase.isPoisson() ? exponential() : 0);
+        solve();
+    }
+    
+    private void advance() {
+        target += phase.isPoisson() ? exponential() : 1;
+        solve();
+        if (t >= phase.getDurationSeconds()) {
+            if (phaseIndex + 1 < profile.getPhases().size()) {
+                enterPhase(phaseIndex + 1, 0);
+            } else {
+                finished = true;
+            }
+        }
+    }
+    
+    // 从当前t出发用两步牛顿迭代求share * cumulative(t') = target，不早于当前t
+    private void solve() {
+        double from = t;
+        for (int i = 0; i < 2; i++) {
+            double next = t + (target - share * phase.cumulative(t)) / (share * phase.rate(t));
+            t = Math.max(from, next);
+        }
+    }
+    
+    private double exponential() {
+        return -Math.log(1.0 - random.nextDouble());
+    }
+    
+    /**
+     * [fromNanos, toNanos)内按计划应发放的许可数，加入之前的部分不计
+     */
+    @Override
+    public double expectedPermits(long fromNanos, long toNanos) {
+        long from = Math.max(fromNanos - startNanos, joinOffsetNanos);
+        long to = toNanos - startNanos;
+        if (to <= from) {
+            return 0;
+        }
+        return share * (profile.cumulative(to) - profile.cumulative(from));
+    }
+    
+    @Override
+    public long getIssued() {
+        return issued;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.fix.benchmark.test;
+
+/**
+ * 按计划发放发送许可的一方，供{@link SendRateReporter}比较实际与计划的发送速率
+ */
+interface PermitSource {
+    
+    /**
+     * 已发放的许可数，可由其它线程读取
+     */
+    long getIssued();
+    
+    /**
+     * [fromNanos, toNanos)内按计划应发放的许可数
+     */
+    double expectedPermits(long fromNanos, long toNanos);
+}
@@ -1,28 +1,54 @@
 package com.fix.benchmark.test;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 单个AtomicLong实现的限速器，所有线程竞争同一个计划时间。
+ * 发送线程较多时使用{@link BatchedRateLimiter}。
+ */
 public class PreciseRateLimiter {
+    // 调用方未及时取许可时最多补发这段时间内的许可，避免空闲后突发
+    static final long MAX_BACKLOG_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
     private final double permitsPerSecond;
-    private final AtomicLong nextFreeTicketMicros = new AtomicLong(0);
+    private final long intervalNanos;
+    private final AtomicLong nextFreeTicketNanos;
     
     public PreciseRateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System.nanoTime());
+    }
+    
+    PreciseRateLimiter(double permitsPerSecond, long startNanos) {
         this.permitsPerSecond = permitsPerSecond;
+        this.intervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.nextFreeTicketNanos = new AtomicLong(startNanos);
     }
     
     public boolean tryAcquire() {
-        long nowMicros = System.nanoTime() / 1000L;
-        long nextFree = nextFreeTicketMicros.get();
-        
-        if (nowMicros < nextFree) {
-            return false;
+        return tryAcquire(System.nanoTime());
+    }
+    
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long nextFree = nextFreeTicketNanos.get();
+            if (nowNanos - nextFree < 0) {
+                return false;
+            }
+            
+            long base = nowNanos - nextFree > MAX_BACKLOG_NANOS ? nowNanos - MAX_BACKLOG_NANOS : nextFree;
+            if (nextFreeTicketNanos.compareAndSet(nextFree, base + intervalNanos)) {
+                return true;
+            }
+            // CAS失败说明其它线程刚取走一个许可，按新的计划时间重新判断，而不是直接丢弃本次许可
         }
-        
-        long next = nextFree + (long) (1_000_000.0 / permitsPerSecond);
-        return nextFreeTicketMicros.compareAndSet(nextFree, next);
+    }
+    
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
     }
     
     public void reset() {
-        nextFreeTicketMicros.set(0);
+        nextFreeTicketNanos.set(System.nanoTime());
     }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.fix.benchmark.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 饱和点搜索: 用一系列短时稳态试验寻找满足延迟SLO的最大速率。
+ * <p>
+ * 从最低速率开始每次翻倍，直到某次试验违反SLO或达到速率上限；
+ * 之后在最后一个达标速率和第一个不达标速率之间二分，直到区间相对宽度小于分辨率。
+ * 试验违反SLO的条件: p99超过上限、超时率超过上限，或实际吞吐明显低于发送速率(发送端或对端已经跟不上)。
+ * 所有试验按速率排序构成延迟-吞吐曲线，最大的达标速率即为拐点。
+ */
+public class SaturationSearch {
+    private static final Logger logger = LoggerFactory.getLogger(SaturationSearch.class);
+    
+    // 实际吞吐低于发送速率的比例超过此值视为饱和
+    private static final double MAX_THROUGHPUT_SHORTFALL = 0.05;
+    
+    private final double minRate;
+    private final double maxRate;
+    private final double sloP99Millis;
+    private final double maxTimeoutRate;
+    private final double resolution;
+    private final int maxTrials;
+    
+    /**
+     * @param maxTimeoutRate 允许的超时率，百分比
+     * @param resolution     二分停止时区间的相对宽度，例如0.05表示5%
+     */
+    public SaturationSearch(double minRate, double maxRate, double sloP99Millis, double maxTimeoutRate,
+                            double resolution, int maxTrials) {
+        if (minRate <= 0 || maxRate < minRate) {
+            throw new IllegalArgumentException("Invalid search range: " + minRate + " - " + maxRate);
+        }
+        if (sloP99Millis <= 0 || resolution <= 0 || maxTrials <= 0) {
+            throw new IllegalArgumentException("SLO, resolution and max trials must be positive");
+        }
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.sloP99Millis = sloP99Millis;
+        this.maxTimeoutRate = maxTimeoutRate;
+        this.resolution = resolution;
+        this.maxTrials = maxTrials;
+    }
+    
+    /**
+     * 以给定总速率运行一次试验并返回结果，试验被中止时返回null
+     */
+    @FunctionalInterface
+    public interface TrialRunner {
+        Trial run(double rate) throws InterruptedException;
+    }
+    
+    public Result search(TrialRunner runner) throws InterruptedException {
+        logger.info("Starting saturation search: rate {}-{} msg/s, SLO p99<={}ms, timeouts<={}%, resolution={}%",
+                minRate, maxRate, sloP99Millis, maxTimeoutRate, resolution * 100);
+        
+        List<Trial> trials = new ArrayList<>();
+        Trial knee = null;
+        double passRate = 0;
+        double failRate = Double.NaN;
+        
+        // 倍增探测上界
+        double rate = minRate;
+        while (trials.size() < maxTrials) {
+            Trial trial = runTrial(runner, rate, trials);
+            if (trial == null) {
+                return finish(trials, knee, false);
+            }
+            if (trial.passed) {
+                knee = trial;
+                passRate = rate;
+                if (rate >= maxRate) {
+                    break;
+                }
+                rate = Math.min(rate * 2, maxRate);
+            } else {
+                failRate = rate;
+                break;
+            }
+        }
+        
+        // 在达标与不达标速率之间二分
+        while (knee != null && !Double.isNaN(failRate) && trials.size() < maxTrials
+                && (failRate - passRate) / passRate > resolution) {
+            double mid = (passRate + failRate) / 2;
+            Trial trial = runTrial(runner, mid, trials);
+            if (trial == null) {
+                break;
+            }
+            if (trial.passed) {
+                knee = trial;
+                passRate = mid;
+            } else {
+                failRate = mid;
+            }
+        }
+        
+        return finish(trials, knee, !Double.isNaN(failRate));
+    }
+    
+    private Trial runTrial(TrialRunner runner, double rate, List<Trial> trials) throws InterruptedException {
+        Trial result = runner.run(rate);
+        if (result == null) {
+            logger.info("Saturation search aborted after {} trials", trials.size());
+            return null;
+        }
+        Trial trial = result.judge(sloP99Millis, maxTimeoutRate);
+        trials.add(trial);
+        logger.info("Trial {}: {}", trials.size(), trial);
+        return trial;
+    }
+    
+    private Result finish(List<Trial> trials, Trial knee, boolean saturated) {
+        List<Trial> curve = new ArrayList<>(trials);
+        curve.sort(Comparator.comparingDouble(t -> t.offeredRate));
+        Result result = new Result(Collections.unmodifiableList(curve), knee, saturated);
+        result.log();
+        return result;
+    }
+    
+    /**
+     * 一次试验的结果
+     */
+    public static final class Trial {
+        public final double offeredRate;
+        public final double achievedRate;
+        public final double p50Millis;
+        public final double p99Millis;
+        public final double p999Millis;
+        public final double maxMillis;
+        // 百分比
+        public final double timeoutRate;
+        public final boolean passed;
+        
+        public Trial(double offeredRate, double achievedRate, double p50Millis, double p99Millis,
+                     double p999Millis, double maxMillis, double timeoutRate) {
+            this(offeredRate, achievedRate, p50Millis, p99Millis, p999Millis, maxMillis, timeoutRate, false);
+        }
+        
+        private Trial(double offeredRate, double achievedRate, double p50Millis, double p99Millis,
+                      double p999Millis, double maxMillis, double timeoutRate, boolean passed) {
+            this.offeredRate = offeredRate;
+            this.achievedRate = achievedRate;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.p999Millis = p999Millis;
+            this.maxMillis = maxMillis;
+            this.timeoutRate = timeoutRate;
+            this.passed = passed;
+        }
+        
+        Trial judge(double sloP99Millis, double maxTimeoutRate) {
+            boolean pass = p99Millis <= sloP99Millis
+                    && timeoutRate <= maxTimeoutRate
+                    && achievedRate >= offeredRate * (1 - MAX_THROUGHPUT_SHORTFALL);
+            return new Trial(offeredRate, achievedRate, p50Millis, p99Millis, p999Millis, maxMillis, timeoutRate, pass);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("offered=%.1f msg/s, achieved=%.1f msg/s, p50=%.3fms, p99=%.3fms, p99.9=%.3fms, max=%.3fms, timeouts=%.3f%%, %s",
+                    offeredRate, achievedRate, p50Millis, p99Millis, p999Millis, maxMillis, timeoutRate,
+                    passed ? "PASS" : "FAIL");
+        }
+    }
+    
+    /**
+     * 搜索结果: 按速率排序的全部试验和拐点。拐点为null表示最低速率也不满足SLO；
+     * saturated为false表示直到速率上限都满足SLO，拐点只是容量的下界
+     */
+    public static final class Result {
+        public final List<Trial> curve;
+        public final Trial knee;
+        public final boolean saturated;
+        
+        Result(List<Trial> curve, Trial knee, boolean saturated) {
+            this.curve = curve;
+            this.knee = knee;
+            this.saturated = saturated;
+        }
+        
+        void log() {
+            logger.info("=== Saturation Search Results ===");
+            logger.info(String.format("%14s %14s %10s %10s %10s %10s %10s %6s",
+                    "offered/s", "achieved/s", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)", "timeout%", "SLO"));
+            for (Trial t : curve) {
+                logger.info(String.format("%14.1f %14.1f %10.3f %10.3f %10.3f %10.3f %10.3f %6s",
+                        t.offeredRate, t.achievedRate, t.p50Millis, t.p99Millis, t.p999Millis, t.maxMillis,
+                        t.timeoutRate, t.passed ? "PASS" : "FAIL"));
+            }
+            if (knee == null) {
+                logger.warn("No trial met the SLO, the minimum rate is already beyond capacity");
+            } else if (!saturated) {
+                logger.info("SLO met up to the maximum rate, capacity is at least {} msg/s",
+                        String.format("%.1f", knee.offeredRate));
+            } else {
+                logger.info("Knee: {} msg/s (p99={}ms)",
+                        String.format("%.1f", knee.offeredRate), String.format("%.3f", knee.p99Millis));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.fix.benchmark.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 每次运行统计各{@link PermitSource}(节拍器或共用的限速器)自上次以来实际发放的许可数，
+ * 与同一区间内的计划许可数对比。由调度线程每秒执行一次；节拍器可以随会话加入和结束。
+ */
+class SendRateReporter implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(SendRateReporter.class);
+    
+    private final Collection<? extends PermitSource> pacers;
+    private Map<PermitSource, Long> lastIssued = new IdentityHashMap<>();
+    private long lastNanos = System.nanoTime();
+    
+    SendRateReporter(Collection<? extends PermitSource> pacers) {
+        this.pacers = pacers;
+    }
+    
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        Map<PermitSource, Long> current = new IdentityHashMap<>();
+        long sent = 0;
+        double expected = 0;
+        for (PermitSource pacer : pacers) {
+            long issued = pacer.getIssued();
+            current.put(pacer, issued);
+            sent += issued - lastIssued.getOrDefault(pacer, 0L);
+            expected += pacer.expectedPermits(lastNanos, now);
+        }
+        double elapsedSeconds = (now - lastNanos) / 1_000_000_000.0;
+        lastIssued = current;
+        lastNanos = now;
+        
+        if (expected > 0 && elapsedSeconds > 0) {
+            double achievedRate = sent / elapsedSeconds;
+            double targetRate = expected / elapsedSeconds;
+            logger.info("Send rate: achieved {} msg/s, target {} msg/s ({}%)",
+                    String.format("%.1f", achievedRate),
+                    String.format("%.1f", targetRate),
+                    String.format("%+.3f", (achievedRate - targetRate) * 100.0 / targetRate));
+        }
+    }
+}
\ No newline at end of file
@@ -1,29 +1,54 @@
 package com.fix.benchmark.utils;
 
-import java.time.Instant;
-import java.util.concurrent.atomic.AtomicLong;
-
 public class EnhancedTestReqIdGenerator {
-    private static final AtomicLong sequence = new AtomicLong(0);
     private static final String PREFIX = "BENCH";
-    
+
+    /**
+     * 会话的TestReqID前缀，格式: BENCH-[sessionId]-，创建会话时生成一次
+     */
+    public static String prefix(String sessionId) {
+        return PREFIX + "-" + sessionId + "-";
+    }
+
+    /**
+     * 生成TestReqID，格式: BENCH-[sessionId]-[sequence]，序号为会话请求环分配的序号
+     */
+    public static String generate(String prefix, long sequence) {
+        return new StringBuilder(prefix.length() + 20).append(prefix).append(sequence).toString();
+    }
+
     /**
-     * 生成全局唯一的TestReqID，格式: BENCH-[timestamp]-[sessionId]-[sequence]
+     * 从text的[start, end)中解析本会话的请求序号，不创建对象。前缀不符或不是数字时返回-1
      */
-    public static String generate(String sessionId) {
-        long timestamp = Instant.now().toEpochMilli();
-        long seq = sequence.incrementAndGet();
-        return String.format("%s-%d-%s-%06d", PREFIX, timestamp, sessionId, seq);
+    public static long parseSequence(CharSequence text, int start, int end, String prefix) {
+        int digits = start + prefix.length();
+        if (digits >= end || end - digits > 18) {
+            return -1;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return -1;
+            }
+        }
+        long sequence = 0;
+        for (int i = digits; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            sequence = sequence * 10 + (c - '0');
+        }
+        return sequence;
     }
-    
+
     /**
      * 解析TestReqID获取会话ID
      */
     public static String extractSessionId(String testReqId) {
-        if (testReqId == null || !testReqId.startsWith(PREFIX)) {
+        if (testReqId == null || !testReqId.startsWith(PREFIX + "-")) {
             return null;
         }
-        String[] parts = testReqId.split("-");
-        return parts.length >= 3 ? parts[2] : null;
+        int end = testReqId.lastIndexOf('-');
+        return end > PREFIX.length() ? testReqId.substring(PREFIX.length() + 1, end) : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+package com.fix.benchmark.utils;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的定长TestReqID编码，把会话序号、请求序号和可选的发送时间戳按每字符6位写成ASCII。
+ * <p>
+ * 格式: 1个标记字符 + 3个字符的会话序号(18位) + 8个字符的请求序号(48位)，共{@link #LENGTH}个字符；
+ * 带时间戳时标记不同，再追加11个字符的64位时间戳，共{@link #TIMESTAMPED_LENGTH}个字符。
+ * 字母表为0-9A-Za-z和'-'、'_'，不含SOH和'='，可直接作为FIX字段值。
+ * <p>
+ * 编码直接写入调用方的char[]/byte[]，或写入本对象持有的可复用缓冲区，本对象即是该缓冲区的{@link CharSequence}视图，
+ * 可以直接交给{@code MessageTemplate.encode}等接受CharSequence的编码路径。
+ * 解码在text的[start, end)区间上进行，不截取子串、不创建对象，请求序号与环形表的掩码相与即得到槽位。
+ * <p>
+ * 实例不是线程安全的，每个发送线程使用自己的实例；静态方法没有状态，可以并发调用。
+ */
+public final class TestReqIdCodec implements CharSequence {
+    public static final int LENGTH = 12;
+    public static final int TIMESTAMPED_LENGTH = 23;
+    
+    public static final int MAX_SESSION_INDEX = (1 << 18) - 1;
+    public static final long MAX_SEQUENCE = (1L << 48) - 1;
+    
+    private static final char PLAIN = 'R';
+    private static final char TIMESTAMPED = 'T';
+    private static final int SESSION_CHARS = 3;
+    private static final int SEQUENCE_CHARS = 8;
+    private static final int TIMESTAMP_CHARS = 11;
+    
+    private static final char[] DIGITS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".toCharArray();
+    // 字符 -> 6位值，不在字母表中的字符为-1
+    private static final byte[] VALUES = new byte[128];
+    
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+    
+    private final char[] chars = new char[TIMESTAMPED_LENGTH];
+    private int length;
+    
+    /**
+     * 把不带时间戳的ID写入内部缓冲区，返回this，内容在下一次encode之前有效
+     */
+    public TestReqIdCodec encode(int sessionIndex, long sequence) {
+        length = encode(chars, 0, sessionIndex, sequence);
+        return this;
+    }
+    
+    /**
+     * 把带时间戳的ID写入内部缓冲区，返回this，内容在下一次encode之前有效
+     */
+    public TestReqIdCodec encode(int sessionIndex, long sequence, long timestamp) {
+        length = encode(chars, 0, sessionIndex, sequence, timestamp);
+        return this;
+    }
+    
+    /**
+     * 生成String形式的ID，供只接受String的发送接口使用
+     */
+    public static String format(int sessionIndex, long sequence) {
+        char[] buffer = new char[LENGTH];
+        encode(buffer, 0, sessionIndex, sequence);
+        return new String(buffer);
+    }
+    
+    public static String format(int sessionIndex, long sequence, long timestamp) {
+        char[] buffer = new char[TIMESTAMPED_LENGTH];
+        encode(buffer, 0, sessionIndex, sequence, timestamp);
+        return new String(buffer);
+    }
+    
+    /**
+     * 写入dst[offset, offset + LENGTH)，返回写入后的位置
+     */
+    public static int encode(char[] dst, int offset, int sessionIndex, long sequence) {
+        checkRange(sessionIndex, sequence);
+        dst[offset] = PLAIN;
+        put(dst, offset + 1, sessionIndex, SESSION_CHARS);
+        put(dst, offset + 1 + SESSION_CHARS, sequence, SEQUENCE_CHARS);
+        return offset + LENGTH;
+    }
+    
+    /**
+     * 写入dst[offset, offset + TIMESTAMPED_LENGTH)，返回写入后的位置
+     */
+    public static int encode(char[] dst, int offset, int sessionIndex, long sequence, long timestamp) {
+        encode(dst, offset, sessionIndex, sequence);
+        dst[offset] = TIMESTAMPED;
+        put(dst, offset + LENGTH, timestamp, TIMESTAMP_CHARS);
+        return offset + TIMESTAMPED_LENGTH;
+    }
+    
+    public static int encode(byte[] dst, int offset, int sessionIndex, long sequence) {
+        checkRange(sessionIndex, sequence);
+        dst[offset] = (byte) PLAIN;
+        put(dst, offset + 1, sessionIndex, SESSION_CHARS);
+        put(dst, offset + 1 + SESSION_CHARS, sequence, SEQUENCE_CHARS);
+        return offset + LENGTH;
+    }
+    
+    public static int encode(byte[] dst, int offset, int sessionIndex, long sequence, long timestamp) {
+        encode(dst, offset, sessionIndex, sequence);
+        dst[offset] = (byte) TIMESTAMPED;
+        put(dst, offset + LENGTH, timestamp, TIMESTAMP_CHARS);
+        return offset + TIMESTAMPED_LENGTH;
+    }
+    
+    /**
+     * 解析text的[start, end)中的会话序号，不是本编码的ID时返回-1
+     */
+    public static int sessionIndex(CharSequence text, int start, int end) {
+        return isValid(text, start, end) ? (int) get(text, start + 1, SESSION_CHARS) : -1;
+    }
+    
+    /**
+     * 解析text的[start, end)中的请求序号，不是本编码的ID时返回-1
+     */
+    public static long sequence(CharSequence text, int start, int end) {
+        return isValid(text, start, end) ? get(text, start + 1 + SESSION_CHARS, SEQUENCE_CHARS) : -1;
+    }
+    
+    /**
+     * 请求序号在容量为mask + 1(2的幂)的环形表中的槽位，不是本编码的ID时返回-1
+     */
+    public static int slot(CharSequence text, int start, int end, int mask) {
+        long sequence = sequence(text, start, end);
+        return sequence < 0 ? -1 : (int) (sequence & mask);
+    }
+    
+    public static boolean hasTimestamp(CharSequence text, int start, int end) {
+        return end - start == TIMESTAMPED_LENGTH && text.charAt(start) == TIMESTAMPED && isValid(text, start, end);
+    }
+    
+    /**
+     * 解析text的[start, end)中的发送时间戳，调用前先用{@link #hasTimestamp}确认ID带有时间戳
+     */
+    public static long timestamp(CharSequence text, int start, int end) {
+        return get(text, start + LENGTH, TIMESTAMP_CHARS);
+    }
+    
+    private static boolean isValid(CharSequence text, int start, int end) {
+        int length = end - start;
+        char marker = length > 0 ? text.charAt(start) : 0;
+        if (!(length == LENGTH && marker == PLAIN) && !(length == TIMESTAMPED_LENGTH && marker == TIMESTAMPED)) {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= VALUES.length || VALUES[c] < 0) {
+                return false;
+            }
+        }
+        // 11个字符可表示66位，最高位字符只能使用低4位
+        return length == LENGTH || VALUES[text.charAt(start + LENGTH)] < 16;
+    }
+    
+    private static void checkRange(int sessionIndex, long sequence) {
+        if (sessionIndex < 0 || sessionIndex > MAX_SESSION_INDEX) {
+            throw new IllegalArgumentException("Session index out of range: " + sessionIndex);
+        }
+        if (sequence < 0 || sequence > MAX_SEQUENCE) {
+            throw new IllegalArgumentException("Sequence out of range: " + sequence);
+        }
+    }
+    
+    // 高位在前写入count个字符
+    private static void put(char[] dst, int offset, long value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            dst[i] = DIGITS[(int) (value & 63)];
+            value >>>= 6;
+        }
+    }
+    
+    private static void put(byte[] dst, int offset, long value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            dst[i] = (byte) DIGITS[(int) (value & 63)];
+            value >>>= 6;
+        }
+    }
+    
+    private static long get(CharSequence text, int offset, int count) {
+        long value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            value = (value << 6) | VALUES[text.charAt(i)];
+        }
+        return value;
+    }
+    
+    @Override
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return chars[index];
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
\ No newline at end of file
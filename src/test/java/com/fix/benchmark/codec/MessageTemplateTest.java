@@ -0,0 +1,87 @@
+package com.fix.benchmark.codec;
+
+import org.junit.Test;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.SessionID;
+import quickfix.UtcTimestampPrecision;
+import quickfix.field.BeginString;
+import quickfix.field.BodyLength;
+import quickfix.field.CheckSum;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.SenderCompID;
+import quickfix.field.SendingTime;
+import quickfix.field.TargetCompID;
+import quickfix.field.TestReqID;
+import quickfix.fix44.TestRequest;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+
+public class MessageTemplateTest {
+
+    private static final SessionID SESSION = new SessionID("FIX.4.4", "CLIENT1", "SERVER");
+
+    /**
+     * 用QuickFIX/J自身的序列化生成同一条TestRequest
+     */
+    private static String quickfixTestRequest(int msgSeqNum, long epochMillis, String testReqId) {
+        TestRequest message = new TestRequest(new TestReqID(testReqId));
+        Message.Header header = message.getHeader();
+        header.setString(BeginString.FIELD, SESSION.getBeginString());
+        header.setString(SenderCompID.FIELD, SESSION.getSenderCompID());
+        header.setString(TargetCompID.FIELD, SESSION.getTargetCompID());
+        header.setInt(MsgSeqNum.FIELD, msgSeqNum);
+        header.setUtcTimeStamp(SendingTime.FIELD,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC), UtcTimestampPrecision.MILLIS);
+        return message.toString();
+    }
+
+    private static String encode(MessageTemplate template, int msgSeqNum, long epochMillis, String value) {
+        template.encode(msgSeqNum, epochMillis, value);
+        return template.toMessageString();
+    }
+
+    @Test
+    public void testRequestMatchesQuickfixEncoding() throws Exception {
+        MessageTemplate template = MessageTemplate.testRequest(SESSION);
+        long epochMillis = 1_700_000_000_123L;
+        String expected = quickfixTestRequest(42, epochMillis, "R00100000001");
+        String actual = encode(template, 42, epochMillis, "R00100000001");
+
+        assertEquals(expected, actual);
+        // BodyLength从35=开始计到CheckSum之前
+        Message parsed = new Message(actual);
+        assertEquals(actual.lastIndexOf("10=") - actual.indexOf("35="), parsed.getHeader().getInt(BodyLength.FIELD));
+        assertEquals(MessageUtils.checksum(actual.substring(0, actual.lastIndexOf("10="))),
+                Integer.parseInt(parsed.getTrailer().getString(CheckSum.FIELD)));
+    }
+
+    @Test
+    public void bodyLengthAndCheckSumFollowVariableLength() {
+        MessageTemplate template = MessageTemplate.testRequest(SESSION);
+        long epochMillis = 1_700_000_000_000L;
+        // 序号和可变字段长度变化时BodyLength的位数随之变化，缓冲区也需要扩容
+        StringBuilder longId = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longId.append((char) ('A' + i % 26));
+        }
+        assertEquals(quickfixTestRequest(1, epochMillis, "x"), encode(template, 1, epochMillis, "x"));
+        assertEquals(quickfixTestRequest(999_999, epochMillis, longId.toString()),
+                encode(template, 999_999, epochMillis, longId.toString()));
+        assertEquals(quickfixTestRequest(7, epochMillis + 86_400_999L, "T1"), encode(template, 7, epochMillis + 86_400_999L, "T1"));
+    }
+
+    @Test
+    public void staticFieldsFollowVariableField() {
+        MessageTemplate template = new MessageTemplate(SESSION, "1", 112, "58=hello|");
+        String encoded = encode(template, 3, 0L, "id");
+        assertEquals("id\u000158=hello\u0001", encoded.substring(encoded.indexOf("112=") + 4, encoded.indexOf("10=")));
+        assertEquals(MessageUtils.checksum(encoded.substring(0, encoded.lastIndexOf("10="))),
+                Integer.parseInt(encoded.substring(encoded.lastIndexOf("10=") + 3, encoded.length() - 1)));
+        assertEquals("19700101-00:00:00.000", encoded.substring(encoded.indexOf("52=") + 3, encoded.indexOf("52=") + 24));
+    }
+}
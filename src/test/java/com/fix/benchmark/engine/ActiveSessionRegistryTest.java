@@ -0,0 +1,227 @@
+package com.fix.benchmark.engine;
+
+import org.junit.Test;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ActiveSessionRegistryTest {
+
+    private final ActiveSessionRegistry<FakeSession> registry = new ActiveSessionRegistry<>();
+
+    private List<FakeSession> logon(int count) {
+        List<FakeSession> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FakeSession session = new FakeSession("S" + i);
+            registry.register(session);
+            setConnected(session, true);
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    private void setConnected(FakeSession session, boolean connected) {
+        session.connected = connected;
+        registry.update(session, connected);
+    }
+
+    private Map<FakeSession, Integer> count(ActiveSessionRegistry.Strategy strategy, int selections) {
+        Map<FakeSession, Integer> counts = new IdentityHashMap<>();
+        for (int i = 0; i < selections; i++) {
+            counts.merge(registry.select(strategy, i), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    public void emptyRegistrySelectsNothing() {
+        for (ActiveSessionRegistry.Strategy strategy : ActiveSessionRegistry.Strategy.values()) {
+            assertNull(registry.select(strategy, 1));
+        }
+        FakeSession session = logon(1).get(0);
+        setConnected(session, false);
+        for (ActiveSessionRegistry.Strategy strategy : ActiveSessionRegistry.Strategy.values()) {
+            assertNull(registry.select(strategy, 1));
+        }
+        assertEquals(0, registry.size());
+        assertEquals(1, registry.getRegisteredCount());
+    }
+
+    @Test
+    public void roundRobinVisitsEachSessionInTurn() {
+        List<FakeSession> sessions = logon(4);
+        Map<FakeSession, Integer> counts = count(ActiveSessionRegistry.Strategy.ROUND_ROBIN, 400);
+        for (FakeSession session : sessions) {
+            assertEquals(Integer.valueOf(100), counts.get(session));
+        }
+
+        // 登出的会话不再被选中，其余会话仍然均分
+        setConnected(sessions.get(1), false);
+        counts = count(ActiveSessionRegistry.Strategy.ROUND_ROBIN, 300);
+        assertNull(counts.get(sessions.get(1)));
+        assertEquals(Integer.valueOf(100), counts.get(sessions.get(0)));
+        assertEquals(Integer.valueOf(100), counts.get(sessions.get(2)));
+        assertEquals(Integer.valueOf(100), counts.get(sessions.get(3)));
+    }
+
+    @Test
+    public void randomSpreadsEvenly() {
+        List<FakeSession> sessions = logon(10);
+        Map<FakeSession, Integer> counts = count(ActiveSessionRegistry.Strategy.RANDOM, 100_000);
+        for (FakeSession session : sessions) {
+            assertEquals(10_000, counts.get(session), 1_000);
+        }
+    }
+
+    @Test
+    public void weightedFollowsSessionWeights() {
+        List<FakeSession> sessions = logon(3);
+        registry.setWeight(sessions.get(1), 2);
+        registry.setWeight(sessions.get(2), 4);
+        Map<FakeSession, Integer> counts = count(ActiveSessionRegistry.Strategy.WEIGHTED, 70_000);
+        assertEquals(10_000, counts.get(sessions.get(0)), 1_000);
+        assertEquals(20_000, counts.get(sessions.get(1)), 1_500);
+        assertEquals(40_000, counts.get(sessions.get(2)), 2_000);
+
+        // 权重随会话在数组中移动: 登出后再登录，位置变了权重不变
+        setConnected(sessions.get(0), false);
+        setConnected(sessions.get(0), true);
+        counts = count(ActiveSessionRegistry.Strategy.WEIGHTED, 70_000);
+        assertEquals(10_000, counts.get(sessions.get(0)), 1_000);
+        assertEquals(40_000, counts.get(sessions.get(2)), 2_000);
+    }
+
+    @Test
+    public void stickyKeyStaysOnItsSessionWhileOnline() {
+        List<FakeSession> sessions = logon(8);
+        Map<Long, FakeSession> home = new HashMap<>();
+        for (long key = 0; key < 1000; key++) {
+            home.put(key, registry.sticky(key));
+        }
+        // 键分散到所有会话上
+        assertEquals(8, Set.copyOf(home.values()).size());
+
+        // 其他会话登出不影响在线会话上的键
+        FakeSession offline = sessions.get(3);
+        setConnected(offline, false);
+        for (long key = 0; key < 1000; key++) {
+            FakeSession selected = registry.sticky(key);
+            if (home.get(key) == offline) {
+                assertNotNull(selected);
+                assertTrue(selected.connected);
+            } else {
+                assertSame(home.get(key), selected);
+            }
+        }
+
+        // 重新登录后键回到原来的会话
+        setConnected(offline, true);
+        for (long key = 0; key < 1000; key++) {
+            assertSame(home.get(key), registry.sticky(key));
+        }
+    }
+
+    @Test
+    public void churnWhileSelectingNeverReturnsStaleSlots() throws InterruptedException {
+        // 前8个会话一直在线，其余会话在选取的同时反复登录登出
+        List<FakeSession> sessions = logon(64);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong selections = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        List<Thread> selectors = new ArrayList<>();
+        for (ActiveSessionRegistry.Strategy strategy : ActiveSessionRegistry.Strategy.values()) {
+            Thread thread = new Thread(() -> {
+                long key = 0;
+                while (running.get()) {
+                    FakeSession session = registry.select(strategy, key++);
+                    if (session == null || !session.name.startsWith("S")) {
+                        errors.incrementAndGet();
+                    }
+                    selections.incrementAndGet();
+                }
+            });
+            selectors.add(thread);
+            thread.start();
+        }
+
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            FakeSession session = sessions.get(8 + random.nextInt(56));
+            setConnected(session, !session.connected);
+        }
+        running.set(false);
+        for (Thread thread : selectors) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        assertTrue(selections.get() > 0);
+
+        // 结束后索引与会话的在线状态一致，每个在线会话恰好出现一次
+        int online = 0;
+        for (FakeSession session : sessions) {
+            if (session.connected) {
+                online++;
+            }
+        }
+        assertEquals(online, registry.size());
+        Map<FakeSession, Integer> counts = count(ActiveSessionRegistry.Strategy.ROUND_ROBIN, online);
+        assertEquals(online, counts.size());
+        for (FakeSession session : counts.keySet()) {
+            assertTrue(session.connected);
+        }
+    }
+
+    private static final class FakeSession implements EngineSession {
+        final String name;
+        volatile boolean connected;
+
+        FakeSession(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getSessionId() {
+            return name;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public CompletableFuture<SessionID> getLogonFuture() {
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public boolean sendTestRequest(String testReqId) {
+            return connected;
+        }
+
+        @Override
+        public void setResponseListener(ResponseListener listener) {
+        }
+
+        @Override
+        public void setConnectionListener(ConnectionListener listener) {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.fix.benchmark.engine;
+
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.metrics.PreciseRequestTracker;
+import com.fix.benchmark.metrics.RequestRing;
+import com.fix.benchmark.utils.TestReqIdCodec;
+import org.junit.After;
+import org.junit.Test;
+import quickfix.SessionID;
+import quickfix.field.TestReqID;
+import quickfix.fix44.Heartbeat;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiSessionApplicationTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "CLIENT", "SERVER");
+
+    private final MultiSessionMetrics metrics = new MultiSessionMetrics();
+    private final PreciseRequestTracker tracker = new PreciseRequestTracker(60_000, 8, true, metrics);
+    private final MultiSessionApplication application = new MultiSessionApplication("S1", metrics);
+
+    @After
+    public void shutdown() {
+        tracker.shutdown();
+    }
+
+    private static String heartbeat(String testReqId) {
+        return "8=FIX.4.4\u00019=60\u000135=0\u000134=7\u000149=SERVER\u000156=CLIENT\u0001"
+                + "112=" + testReqId + "\u000110=000\u0001";
+    }
+
+    @Test
+    public void embeddedStampIsDecodedFromRawHeartbeat() {
+        RequestRing ring = tracker.ringFor("S1");
+        application.setResponseListener(ring::complete);
+        long now = System.nanoTime() + 100 * MS;
+        long sequence = ring.begin(now - 3 * MS, now - MS);
+        String testReqId = ring.testReqId(new TestReqIdCodec(), sequence, now - 3 * MS, now - MS).toString();
+
+        // 会话不保存任何请求状态，延迟完全由回显的TestReqID算出
+        application.onIncoming(SESSION_ID, heartbeat(testReqId), now);
+        assertEquals(0, ring.getPendingCount());
+        assertEquals(1, tracker.getStats().totalResponses);
+        assertEquals(3 * MS, tracker.getStats().maxLatencyNanos, 3 * MS / 1000.0);
+
+        // 重复的应答不再计数
+        application.onIncoming(SESSION_ID, heartbeat(testReqId), now + MS);
+        assertEquals(1, tracker.getStats().totalResponses);
+    }
+
+    @Test
+    public void fromAdminForwardsOnlyWithoutInboundTap() throws Exception {
+        RequestRing ring = tracker.ringFor("S1");
+        application.setResponseListener(ring::complete);
+        long now = System.nanoTime();
+        long first = ring.begin(now, now);
+        long second = ring.begin(now, now);
+
+        Heartbeat reply = new Heartbeat();
+        reply.set(new TestReqID(ring.testReqId(new TestReqIdCodec(), first, now, now).toString()));
+        application.fromAdmin(reply, SESSION_ID);
+        assertEquals(1, tracker.getStats().totalResponses);
+
+        // 入站旁路生效后应答只由onIncoming转交，fromAdmin不重复计数
+        String secondId = ring.testReqId(new TestReqIdCodec(), second, now, now).toString();
+        application.onIncoming(SESSION_ID, heartbeat(secondId), System.nanoTime());
+        reply.set(new TestReqID(secondId));
+        application.fromAdmin(reply, SESSION_ID);
+        assertEquals(2, tracker.getStats().totalResponses);
+        assertEquals(0, ring.getPendingCount());
+    }
+
+    @Test
+    public void repliesWithoutListenerOrTestReqIdAreIgnored() {
+        RequestRing ring = tracker.ringFor("S1");
+        long now = System.nanoTime();
+        long sequence = ring.begin(now, now);
+        String testReqId = ring.testReqId(new TestReqIdCodec(), sequence, now, now).toString();
+
+        application.onIncoming(SESSION_ID, heartbeat(testReqId), now);
+        application.setResponseListener(ring::complete);
+        // 普通心跳和其他消息类型不是应答
+        application.onIncoming(SESSION_ID, "8=FIX.4.4\u00019=20\u000135=0\u000134=8\u000110=000\u0001", now);
+        application.onIncoming(SESSION_ID, "8=FIX.4.4\u00019=20\u000135=1\u0001112=" + testReqId + "\u000110=000\u0001", now);
+        assertEquals(1, ring.getPendingCount());
+        assertEquals(0, tracker.getStats().totalResponses);
+    }
+}
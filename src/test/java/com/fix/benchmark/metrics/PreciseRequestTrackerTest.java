@@ -0,0 +1,168 @@
+package com.fix.benchmark.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreciseRequestTrackerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PreciseRequestTracker tracker = new PreciseRequestTracker(60_000, 8);
+
+    // 发送时间早于时间轮起点的请求会在登记时直接按超时处理，测试中的时间都取在创建跟踪器之后
+    private static long base() {
+        return System.nanoTime() + 100 * MS;
+    }
+
+    @After
+    public void shutdown() {
+        tracker.shutdown();
+    }
+
+    @Test
+    public void completeMeasuresFromIntendedAndActualSendTime() {
+        RequestRing ring = tracker.ringFor("S1");
+        long now = base();
+        long sequence = ring.begin(now - 5 * MS, now - 2 * MS);
+
+        assertEquals(1, ring.getPendingCount());
+        assertEquals(5 * MS, ring.complete(sequence, now));
+        // 同一应答只计一次
+        assertEquals(-1, ring.complete(sequence, now));
+        assertEquals(0, ring.getPendingCount());
+
+        PreciseRequestTracker.StatsSnapshot stats = tracker.getStats();
+        assertEquals(1, stats.totalResponses);
+        assertEquals(5 * MS, stats.maxLatencyNanos, 5 * MS / 1000.0);
+        assertEquals(2 * MS, stats.serviceTime.maxNanos, 2 * MS / 1000.0);
+    }
+
+    @Test
+    public void reusedSlotRejectsStaleSequence() {
+        RequestRing ring = tracker.ringFor("S1");
+        long now = base();
+        long first = ring.begin(now - 9 * MS, now - 9 * MS);
+        // 8个槽位写满一圈后第一个请求的槽位被覆盖，按超时计
+        long reused = first;
+        for (int i = 0; i < ring.getCapacity(); i++) {
+            reused = ring.begin(now, now);
+        }
+        assertEquals(first + ring.getCapacity(), reused);
+        assertEquals(1, ring.getOverrunTimeouts());
+        assertEquals(-1, ring.complete(first, now));
+        // 覆盖后槽位中是新请求的发送时间
+        assertEquals(MS, ring.complete(reused, now + MS));
+    }
+
+    @Test
+    public void resetClearsPhaseLatency() {
+        long start = base();
+        tracker.getPhaseLatency().start(start, new String[] {"steady"}, new long[] {TimeUnit.HOURS.toNanos(1)});
+        RequestRing ring = tracker.ringFor("S1");
+        long sequence = ring.begin(start, start);
+        ring.complete(sequence, start + MS);
+        assertEquals(1, tracker.getPhaseLatency().getPhaseLatencies().get("steady").count);
+
+        // 预热阶段的样本不能带入正式测量
+        tracker.reset();
+        assertEquals(0, tracker.getPhaseLatency().getPhaseLatencies().get("steady").count);
+        assertEquals(0, tracker.getStats().totalResponses);
+
+        sequence = ring.begin(start, start);
+        ring.complete(sequence, start + 2 * MS);
+        assertEquals(1, tracker.getPhaseLatency().getPhaseLatencies().get("steady").count);
+    }
+
+    @Test
+    public void trackerSharingMetricsRecordsEachResponseOnce() {
+        MultiSessionMetrics metrics = new MultiSessionMetrics();
+        PreciseRequestTracker shared = new PreciseRequestTracker(60_000, 8, false, metrics);
+        try {
+            RequestRing ring = shared.ringFor("S1");
+            long now = base();
+            long sequence = ring.begin(now - 3 * MS, now - MS);
+            ring.complete(sequence, now);
+
+            // 引擎的汇总指标和跟踪器读到同一份分布，样本只记录一次
+            assertEquals(1, metrics.getResponseTime().getCumulative().count);
+            assertEquals(1, metrics.getServiceTime().getCumulative().count);
+            assertEquals(MS, metrics.getServiceTime().getCumulative().maxNanos, MS / 1000.0);
+            assertEquals(1, shared.getStats().totalResponses);
+            assertEquals(3 * MS, shared.getStats().maxLatencyNanos, 3 * MS / 1000.0);
+        } finally {
+            shared.shutdown();
+        }
+    }
+
+    @Test
+    public void ringCapacityCoversInFlightRequestsPerSession() {
+        // 100k msg/s、5s超时、10个会话: 每会话平均5万在途，留一倍余量后取2的幂
+        assertEquals(131072, PreciseRequestTracker.ringCapacity(100_000, 5000, 10));
+        assertEquals(1024, PreciseRequestTracker.ringCapacity(1000, 5000, 10));
+        assertEquals(512, PreciseRequestTracker.ringCapacity(256, 1000, 1));
+        assertEquals(PreciseRequestTracker.DEFAULT_RING_CAPACITY, PreciseRequestTracker.ringCapacity(100, 1000, 10));
+        assertEquals(PreciseRequestTracker.MAX_RING_CAPACITY, PreciseRequestTracker.ringCapacity(1e9, 60_000, 1));
+    }
+
+    @Test
+    public void sizedRingHoldsRequestsBeyondDefaultCapacity() {
+        int inFlight = 10_000;
+        int capacity = PreciseRequestTracker.ringCapacity(inFlight, 1000, 1);
+        PreciseRequestTracker sized = new PreciseRequestTracker(1000, capacity);
+        PreciseRequestTracker fixed = new PreciseRequestTracker(1000, PreciseRequestTracker.DEFAULT_RING_CAPACITY);
+        try {
+            RequestRing sizedRing = sized.ringFor("S1");
+            RequestRing fixedRing = fixed.ringFor("S1");
+            long now = base();
+            long[] sequences = new long[inFlight];
+            for (int i = 0; i < inFlight; i++) {
+                sequences[i] = sizedRing.begin(now, now);
+                fixedRing.begin(now, now);
+            }
+
+            // 固定容量的环把仍在途的请求覆盖并计为超时
+            assertEquals(inFlight - PreciseRequestTracker.DEFAULT_RING_CAPACITY, fixedRing.getOverrunTimeouts());
+            assertEquals(0, sizedRing.getOverrunTimeouts());
+            assertEquals(inFlight, sizedRing.getPendingCount());
+            for (long sequence : sequences) {
+                assertEquals(MS, sizedRing.complete(sequence, now + MS));
+            }
+            assertEquals(inFlight, sized.getStats().totalResponses);
+            assertEquals(0, sized.getStats().totalTimeouts);
+        } finally {
+            sized.shutdown();
+            fixed.shutdown();
+        }
+    }
+
+    @Test
+    public void wheelTimeoutsReachSharedMetrics() {
+        MultiSessionMetrics metrics = new MultiSessionMetrics();
+        PreciseRequestTracker shared = new PreciseRequestTracker(50, 8, false, metrics);
+        try {
+            RequestRing ring = shared.ringFor("S1");
+            long now = base();
+            ring.begin(now, now);
+
+            // 到期由时间轮检测，不扫描在途请求
+            shared.checkTimeouts(now + 40 * MS);
+            assertEquals(0, metrics.getTotalRequestTimeouts());
+            shared.checkTimeouts(now + 60 * MS);
+            assertEquals(1, metrics.getTotalRequestTimeouts());
+            assertEquals(0, ring.getPendingCount());
+
+            // 槽位被覆盖的请求同样计入
+            for (int i = 0; i <= ring.getCapacity(); i++) {
+                ring.begin(now + 70 * MS, now + 70 * MS);
+            }
+            assertEquals(2, metrics.getTotalRequestTimeouts());
+            assertEquals(Long.valueOf(2), shared.getTimeoutsBySession().get("S1"));
+        } finally {
+            shared.shutdown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.fix.benchmark.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestRingTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PreciseRequestTracker plain = new PreciseRequestTracker(60_000, 16);
+    private final PreciseRequestTracker embedded = new PreciseRequestTracker(60_000, 16, true);
+
+    @After
+    public void shutdown() {
+        plain.shutdown();
+        embedded.shutdown();
+    }
+
+    // 发送时间早于时间轮起点的请求会在登记时直接按超时处理，测试中的时间都取在创建跟踪器之后
+    private static long base() {
+        return System.nanoTime() + 100 * MS;
+    }
+
+    @Test
+    public void echoedTestReqIdCompletesTheRequest() {
+        RequestRing other = plain.ringFor("S0");
+        RequestRing ring = plain.ringFor("S1");
+        long now = base();
+        long sequence = ring.begin(now - 3 * MS, now - MS);
+        String testReqId = ring.testReqId(sequence, now - 3 * MS, now - MS);
+
+        // 其他会话的环和无关的ID不影响在途请求
+        assertEquals(-1, other.complete(testReqId, 0, testReqId.length(), now));
+        assertEquals(-1, ring.complete("not-a-request", 0, 13, now));
+        assertEquals(1, ring.getPendingCount());
+
+        // 在原始消息中按区间解析，不截取子串
+        String message = "112=" + testReqId + "\u0001";
+        assertEquals(3 * MS, ring.complete(message, 4, 4 + testReqId.length(), now));
+        assertEquals(0, ring.getPendingCount());
+        assertEquals(1, plain.getStats().totalResponses);
+    }
+
+    @Test
+    public void embeddedTestReqIdCarriesSendTimes() {
+        RequestRing ring = embedded.ringFor("S1");
+        long now = base();
+        long sequence = ring.begin(now - 3 * MS, now - MS);
+        String testReqId = ring.testReqId(sequence, now - 3 * MS, now - MS);
+
+        assertEquals(3 * MS, ring.complete(testReqId, 0, testReqId.length(), now));
+        assertEquals(-1, ring.complete(testReqId, 0, testReqId.length(), now));
+        PreciseRequestTracker.StatsSnapshot stats = embedded.getStats();
+        assertEquals(1, stats.totalResponses);
+        assertEquals(MS, stats.serviceTime.maxNanos, MS / 1000.0);
+    }
+
+    @Test
+    public void stampRoundTripsAcrossOffsetWrap() {
+        long[] epochs = {0L, System.nanoTime(), -123_456_789L, Long.MAX_VALUE - 10};
+        long[] offsets = {0L, MS, RequestRing.OFFSET_MASK - MS, RequestRing.OFFSET_MASK,
+                RequestRing.OFFSET_MASK + 1, RequestRing.OFFSET_MASK + 5 * MS, 3 * RequestRing.OFFSET_MASK};
+        for (long epoch : epochs) {
+            for (long offset : offsets) {
+                // 运行超过44位偏移(约4.9小时)之后，计划发送时间仍以接收时间为参照正确还原
+                long intended = epoch + offset;
+                long stamp = RequestRing.stamp(epoch, intended, intended + 1500);
+                assertEquals(1, stamp & RequestRing.MAX_LAG_MICROS);
+                assertEquals(intended, RequestRing.intendedNanos(epoch, stamp, intended));
+                assertEquals(intended, RequestRing.intendedNanos(epoch, stamp, intended + 2 * MS));
+                assertEquals(intended, RequestRing.intendedNanos(epoch, stamp, intended + RequestRing.OFFSET_MASK));
+            }
+        }
+    }
+
+    @Test
+    public void senderLagSaturates() {
+        long stamp = RequestRing.stamp(0, MS, MS + 10 * TimeUnit.SECONDS.toNanos(1));
+        assertEquals(RequestRing.MAX_LAG_MICROS, stamp & RequestRing.MAX_LAG_MICROS);
+        assertEquals(MS, RequestRing.intendedNanos(0, stamp, 2 * MS));
+        // 发送早于计划时间记为无滞后
+        assertEquals(0, RequestRing.stamp(0, MS, 0) & RequestRing.MAX_LAG_MICROS);
+    }
+}
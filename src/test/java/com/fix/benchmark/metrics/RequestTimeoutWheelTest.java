@@ -0,0 +1,88 @@
+package com.fix.benchmark.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestTimeoutWheelTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long TIMEOUT_MILLIS = 1000;
+
+    // 超时1秒，后台推进线程在测试期间不会处理到测试登记的请求，到期只由checkTimeouts的模拟时间驱动
+    private final PreciseRequestTracker tracker = new PreciseRequestTracker(TIMEOUT_MILLIS, 8);
+    private final RequestRing ring = tracker.ringFor("S1");
+
+    @After
+    public void shutdown() {
+        tracker.shutdown();
+    }
+
+    // 发送时间早于时间轮起点的请求会在登记时直接按超时处理，测试中的时间都取在创建跟踪器之后
+    private static long base() {
+        return System.nanoTime() + 100 * MS;
+    }
+
+    @Test
+    public void requestsExpireInSendOrder() {
+        long base = base();
+        long first = ring.begin(base);
+        long second = ring.begin(base + 5 * MS);
+        long third = ring.begin(base + 10 * MS);
+
+        // 刚过第一个请求的到期刻度，只有它超时
+        tracker.checkTimeouts(base + (TIMEOUT_MILLIS + 2) * MS);
+        assertEquals(1, tracker.getExpiredTimeouts());
+        assertEquals(-1, ring.complete(first, base + (TIMEOUT_MILLIS + 2) * MS));
+        assertEquals(2, ring.getPendingCount());
+
+        tracker.checkTimeouts(base + (TIMEOUT_MILLIS + 7) * MS);
+        assertEquals(2, tracker.getExpiredTimeouts());
+        assertEquals(-1, ring.complete(second, base + (TIMEOUT_MILLIS + 7) * MS));
+
+        // 到期前已应答的请求不再计为超时
+        assertEquals(MS, ring.complete(third, base + 11 * MS));
+        tracker.checkTimeouts(base + 3 * TIMEOUT_MILLIS * MS);
+        assertEquals(2, tracker.getExpiredTimeouts());
+        assertEquals(0, tracker.getOverrunTimeouts());
+        assertEquals(0, ring.getPendingCount());
+    }
+
+    @Test
+    public void overrunSlotIsNotCountedTwice() {
+        long base = base();
+        long first = ring.begin(base);
+        for (int i = 0; i < ring.getCapacity(); i++) {
+            ring.begin(base + MS);
+        }
+        // 第一个请求的槽位被覆盖，按overrun计
+        assertEquals(1, tracker.getOverrunTimeouts());
+        assertEquals(-1, ring.complete(first, base + 2 * MS));
+
+        // 时间轮中第一个请求的条目到期时槽位已属于新请求，不会再计一次
+        tracker.checkTimeouts(base + 3 * TIMEOUT_MILLIS * MS);
+        assertEquals(ring.getCapacity(), tracker.getExpiredTimeouts());
+        assertEquals(1, tracker.getOverrunTimeouts());
+        assertEquals(ring.getCapacity() + 1, tracker.getStats().totalTimeouts);
+        assertEquals(0, ring.getPendingCount());
+    }
+
+    @Test
+    public void requestScheduledBehindTheWheelExpiresImmediately() {
+        long base = base();
+        tracker.checkTimeouts(base + 3 * TIMEOUT_MILLIS * MS);
+
+        // 发送线程在取时间和登记之间停顿，对应的桶已处理过
+        ring.begin(base);
+        assertEquals(1, tracker.getExpiredTimeouts());
+        assertEquals(0, ring.getPendingCount());
+
+        // 未过期的请求仍正常登记
+        long late = ring.begin(base + 3 * TIMEOUT_MILLIS * MS);
+        assertEquals(1, ring.getPendingCount());
+        assertEquals(MS, ring.complete(late, base + (3 * TIMEOUT_MILLIS + 1) * MS));
+    }
+}
@@ -0,0 +1,146 @@
+package com.fix.benchmark.store;
+
+import com.fix.benchmark.metrics.FsyncStats;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DurableMappedFileStoreTest {
+
+    private static final String SESSION = "FIX.4.4-CLIENT-SERVER";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FsyncStats stats = new FsyncStats();
+
+    private DurableMappedFileStore open(SyncPolicy policy) throws Exception {
+        return new DurableMappedFileStore(folder.getRoot().getAbsolutePath(), SESSION, 1024 * 1024, 1024, policy, stats);
+    }
+
+    private static void write(MappedFileStore store, int count) throws Exception {
+        for (int seq = 1; seq <= count; seq++) {
+            store.set(seq, "message-" + seq);
+        }
+    }
+
+    @Test
+    public void noneNeverSyncsWhileWriting() throws Exception {
+        try (DurableMappedFileStore store = open(new SyncPolicy(SyncPolicy.NONE, 0, 0))) {
+            write(store, 10);
+            assertEquals(0, stats.getCount());
+        }
+        // 关闭时把未落盘的写入一次刷完
+        assertEquals(1, stats.getCount());
+        assertEquals(10.0, stats.getMessagesPerSync(), 0.0);
+    }
+
+    @Test
+    public void everyMessageSyncsEachWrite() throws Exception {
+        try (DurableMappedFileStore store = open(new SyncPolicy(SyncPolicy.EVERY_MESSAGE, 0, 0))) {
+            write(store, 5);
+            assertEquals(5, stats.getCount());
+            assertEquals(1.0, stats.getMessagesPerSync(), 0.0);
+        }
+        // 没有未落盘的写入，关闭时不再刷盘
+        assertEquals(5, stats.getCount());
+    }
+
+    @Test
+    public void everyNSyncsOnMultiplesOfN() throws Exception {
+        try (DurableMappedFileStore store = open(new SyncPolicy(SyncPolicy.EVERY_N, 3, 0))) {
+            write(store, 7);
+            assertEquals(2, stats.getCount());
+            assertEquals(3.0, stats.getMessagesPerSync(), 0.0);
+        }
+        // 剩余的第7条在关闭时落盘
+        assertEquals(3, stats.getCount());
+        assertEquals(7.0 / 3, stats.getMessagesPerSync(), 1e-9);
+    }
+
+    @Test
+    public void intervalBlocksWriterUntilGroupCommit() throws Exception {
+        try (DurableMappedFileStore store = open(new SyncPolicy(SyncPolicy.INTERVAL, 0, 200))) {
+            store.set(1, "first");
+            // set只在所在批次落盘后返回
+            assertTrue(stats.getCount() >= 1);
+            assertEquals(0, store.syncPending());
+
+            write(store, 20);
+            assertEquals(0, store.syncPending());
+        }
+        // 每条写入恰好被一次组提交覆盖
+        assertEquals(21.0 / stats.getCount(), stats.getMessagesPerSync(), 1e-9);
+    }
+
+    @Test
+    public void reopeningRightAfterCloseLeavesOneSyncThread() throws Exception {
+        SyncPolicy policy = new SyncPolicy(SyncPolicy.INTERVAL, 0, 200);
+        Thread first;
+        try (DurableMappedFileStore store = open(policy)) {
+            store.set(1, "first");
+            first = GroupCommitSyncer.currentThread();
+        }
+        // 旧线程还没醒来就重新注册，旧线程仍须退出，不能和新线程同时刷盘
+        Thread second;
+        try (DurableMappedFileStore store = open(policy)) {
+            second = GroupCommitSyncer.currentThread();
+            assertNotSame(first, second);
+            first.join(5000);
+            assertFalse(first.isAlive());
+            assertTrue(second.isAlive());
+
+            store.set(2, "second");
+            assertEquals(0, store.syncPending());
+        }
+        second.join(5000);
+        assertFalse(second.isAlive());
+        assertNull(GroupCommitSyncer.currentThread());
+    }
+
+    @Test
+    public void syncedMessagesSurviveReopen() throws Exception {
+        try (DurableMappedFileStore store = open(new SyncPolicy(SyncPolicy.EVERY_N, 2, 0))) {
+            write(store, 4);
+            store.setNextSenderMsgSeqNum(5);
+        }
+        try (MappedFileStore store = new MappedFileStore(folder.getRoot().getAbsolutePath(), SESSION, 1024 * 1024, 1024)) {
+            List<String> messages = new ArrayList<>();
+            store.get(1, 4, messages);
+            assertEquals(4, messages.size());
+            assertEquals("message-4", messages.get(3));
+            assertEquals(5, store.getNextSenderMsgSeqNum());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPolicyIsRejected() {
+        new SyncPolicy("sometimes", 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void everyNRequiresPositiveN() {
+        new SyncPolicy(SyncPolicy.EVERY_N, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void intervalRequiresPositiveInterval() {
+        new SyncPolicy(SyncPolicy.INTERVAL, 1, 0);
+    }
+
+    @Test
+    public void policyDescribesItsParameters() {
+        assertEquals("every-n(64)", new SyncPolicy(SyncPolicy.EVERY_N, 64, 1000).toString());
+        assertEquals("interval(1000us)", new SyncPolicy(SyncPolicy.INTERVAL, 64, 1000).toString());
+        assertEquals("every-message", new SyncPolicy(SyncPolicy.EVERY_MESSAGE, 64, 1000).toString());
+    }
+}
@@ -0,0 +1,134 @@
+package com.fix.benchmark.store;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFileStoreTest {
+
+    private static final String SESSION = "FIX.4.4-CLIENT-SERVER";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedFileStore open(int segmentSize, int indexChunkEntries) throws Exception {
+        return new MappedFileStore(folder.getRoot().getAbsolutePath(), SESSION, segmentSize, indexChunkEntries);
+    }
+
+    private static List<String> get(MappedFileStore store, int start, int end) throws Exception {
+        List<String> messages = new ArrayList<>();
+        store.get(start, end, messages);
+        return messages;
+    }
+
+    @Test
+    public void newStoreStartsAtSequenceOne() throws Exception {
+        try (MappedFileStore store = open(1024, 16)) {
+            assertEquals(1, store.getNextSenderMsgSeqNum());
+            assertEquals(1, store.getNextTargetMsgSeqNum());
+            assertEquals(Collections.emptyList(), get(store, 1, 100));
+        }
+    }
+
+    @Test
+    public void reopenRecoversSequenceNumbersAndMessages() throws Exception {
+        Date created;
+        try (MappedFileStore store = open(1024, 16)) {
+            store.set(1, "one");
+            store.set(2, "two");
+            store.set(3, "three");
+            store.setNextSenderMsgSeqNum(4);
+            store.incrNextTargetMsgSeqNum();
+            created = store.getCreationTime();
+        }
+
+        try (MappedFileStore store = open(1024, 16)) {
+            assertEquals(4, store.getNextSenderMsgSeqNum());
+            assertEquals(2, store.getNextTargetMsgSeqNum());
+            assertEquals(created, store.getCreationTime());
+            assertEquals(Arrays.asList("one", "two", "three"), get(store, 1, 3));
+            assertEquals(Collections.singletonList("two"), get(store, 2, 2));
+
+            // 恢复后继续追加，不覆盖已有记录
+            store.set(4, "four");
+            assertEquals(Arrays.asList("three", "four"), get(store, 3, 10));
+        }
+    }
+
+    @Test
+    public void gapsInSequenceAreSkipped() throws Exception {
+        try (MappedFileStore store = open(1024, 16)) {
+            store.set(1, "one");
+            store.set(3, "three");
+            assertEquals(Arrays.asList("one", "three"), get(store, 1, 3));
+        }
+    }
+
+    @Test
+    public void recordsRollOverToNewSegmentsAndSurviveReopen() throws Exception {
+        // 每条记录4字节长度 + 10字节消息，32字节的段只能放两条
+        try (MappedFileStore store = open(32, 16)) {
+            for (int seq = 1; seq <= 5; seq++) {
+                store.set(seq, String.format("message-%02d", seq));
+            }
+        }
+        assertTrue(folder.getRoot().toPath().resolve(SESSION + ".body.2").toFile().exists());
+
+        try (MappedFileStore store = open(32, 16)) {
+            assertEquals(Arrays.asList("message-01", "message-02", "message-03", "message-04", "message-05"),
+                    get(store, 1, 5));
+        }
+    }
+
+    @Test
+    public void indexGrowsBeyondInitialChunkAndSurvivesReopen() throws Exception {
+        try (MappedFileStore store = open(1024 * 1024, 4)) {
+            for (int seq = 1; seq <= 100; seq++) {
+                store.set(seq, "m" + seq);
+            }
+        }
+
+        try (MappedFileStore store = open(1024 * 1024, 4)) {
+            List<String> messages = get(store, 1, 100);
+            assertEquals(100, messages.size());
+            assertEquals("m1", messages.get(0));
+            assertEquals("m100", messages.get(99));
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void messageLargerThanSegmentIsRejected() throws Exception {
+        try (MappedFileStore store = open(16, 16)) {
+            store.set(1, "this message does not fit");
+        }
+    }
+
+    @Test
+    public void resetClearsMessagesAndSequenceNumbers() throws Exception {
+        try (MappedFileStore store = open(1024, 16)) {
+            store.set(1, "one");
+            store.set(2, "two");
+            store.setNextSenderMsgSeqNum(3);
+            store.reset();
+
+            assertEquals(1, store.getNextSenderMsgSeqNum());
+            assertEquals(Collections.emptyList(), get(store, 1, 2));
+
+            store.set(1, "again");
+            assertEquals(Collections.singletonList("again"), get(store, 1, 2));
+        }
+
+        try (MappedFileStore store = open(1024, 16)) {
+            assertEquals(Collections.singletonList("again"), get(store, 1, 2));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.fix.benchmark.test;
+
+import com.fix.benchmark.metrics.PreciseRequestTracker;
+import com.fix.benchmark.metrics.RequestRing;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AimdRateControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PreciseRequestTracker tracker = new PreciseRequestTracker(60_000, 8);
+    private final RequestRing ring = tracker.ringFor("S1");
+    // 初始1000，加性增50，乘性减0.5，目标p99 10ms，在途上限4
+    private final AimdRateController controller =
+            new AimdRateController(tracker, 1000, 100, 1100, 50, 0.5, 1000, 10, 4, 60, "");
+
+    @After
+    public void shutdown() {
+        tracker.shutdown();
+    }
+
+    // 发送时间早于时间轮起点的请求会在登记时直接按超时处理，测试中的时间都取在创建跟踪器之后
+    private static long base() {
+        return System.nanoTime() + 100 * MS;
+    }
+
+    private AimdRateController.Sample step() {
+        controller.run();
+        List<AimdRateController.Sample> timeline = controller.getTimeline();
+        return timeline.get(timeline.size() - 1);
+    }
+
+    @Test
+    public void slowResponsesTriggerMultiplicativeDecrease() {
+        controller.start(System.nanoTime());
+        long base = base();
+        for (int i = 0; i < 3; i++) {
+            long sequence = ring.begin(base);
+            ring.complete(sequence, base + 50 * MS);
+        }
+
+        AimdRateController.Sample sample = step();
+        assertTrue(sample.breach);
+        assertEquals(50 * MS, sample.latency.p99Nanos, 50 * MS / 100.0);
+        assertEquals(1000.0, sample.rate, 0.0);
+        assertEquals(500.0, sample.nextRate, 0.0);
+
+        // 区间内没有新的慢应答，从减小后的速率开始加性增
+        sample = step();
+        assertFalse(sample.breach);
+        assertEquals(500.0, sample.rate, 0.0);
+        assertEquals(550.0, sample.nextRate, 0.0);
+    }
+
+    @Test
+    public void fastResponsesIncreaseUpToMaxRate() {
+        controller.start(System.nanoTime());
+        long base = base();
+        long sequence = ring.begin(base);
+        ring.complete(sequence, base + MS);
+
+        assertEquals(1050.0, step().nextRate, 0.0);
+        assertEquals(1100.0, step().nextRate, 0.0);
+        assertEquals(1100.0, step().nextRate, 0.0);
+    }
+
+    @Test
+    public void pendingAboveLimitIsABreach() {
+        controller.start(System.nanoTime());
+        long base = base();
+        for (int i = 0; i < 5; i++) {
+            ring.begin(base);
+        }
+
+        AimdRateController.Sample sample = step();
+        assertTrue(sample.breach);
+        assertEquals(5, sample.pending);
+        assertEquals(500.0, sample.nextRate, 0.0);
+    }
+
+    @Test
+    public void newTimeoutsAreABreachAndDecreaseStopsAtMinRate() {
+        controller.start(System.nanoTime());
+        long base = base();
+        double expected = 1000;
+        for (int round = 0; round < 5; round++) {
+            // 写满一圈再多一个，最早的在途请求被覆盖计为超时，其余请求很快应答
+            long first = ring.begin(base);
+            for (int i = 1; i <= ring.getCapacity(); i++) {
+                ring.begin(base);
+            }
+            for (int i = 1; i <= ring.getCapacity(); i++) {
+                ring.complete(first + i, base + MS);
+            }
+
+            AimdRateController.Sample sample = step();
+            expected = Math.max(100, expected * 0.5);
+            assertTrue(sample.breach);
+            assertEquals(1, sample.timeouts);
+            assertEquals(0, sample.pending);
+            assertEquals(expected, sample.nextRate, 0.0);
+        }
+        assertEquals(100.0, expected, 0.0);
+    }
+}
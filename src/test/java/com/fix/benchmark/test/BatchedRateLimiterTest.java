@@ -0,0 +1,159 @@
+package com.fix.benchmark.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedRateLimiterTest {
+
+    private static final long US = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long T = 1_000_000_000L;
+
+    // 在新线程里执行，每个线程有自己的一批许可
+    private static void inThread(Runnable task) throws InterruptedException {
+        Thread thread = new Thread(task);
+        thread.start();
+        thread.join();
+    }
+
+    @Test
+    public void releasedPermitsAreIssuedByOtherThreads() throws InterruptedException {
+        // 1M/s: 间隔1us，每批100个许可
+        BatchedRateLimiter limiter = new BatchedRateLimiter(1_000_000, T);
+        assertEquals(100, limiter.getBatchSize());
+        inThread(() -> {
+            assertTrue(limiter.tryAcquire(T));
+            limiter.release();
+        });
+
+        // 全局下一批从T+100us开始，此前放行的只能是交还的99个许可
+        int granted = 0;
+        while (limiter.tryAcquire(T + 100 * US - 1)) {
+            granted++;
+        }
+        assertEquals(99, granted);
+        assertEquals(100, limiter.getIssued());
+        assertTrue(limiter.tryAcquire(T + 100 * US));
+    }
+
+    @Test
+    public void permitsOfThreadThatStopsWithoutReleaseAreNotReissued() throws InterruptedException {
+        BatchedRateLimiter limiter = new BatchedRateLimiter(1_000_000, T);
+        inThread(() -> assertTrue(limiter.tryAcquire(T)));
+        assertFalse(limiter.tryAcquire(T + 100 * US - 1));
+    }
+
+    @Test
+    public void staleReleasedPermitsAreSkipped() throws InterruptedException {
+        BatchedRateLimiter limiter = new BatchedRateLimiter(1_000_000, T);
+        inThread(() -> {
+            assertTrue(limiter.tryAcquire(T));
+            limiter.release();
+        });
+
+        // 交还的许可已超出补发范围，按全局计划只补发最近1ms内的许可
+        long now = T + 100 * US + PreciseRateLimiter.MAX_BACKLOG_NANOS + 100 * US;
+        int granted = 0;
+        while (limiter.tryAcquire(now)) {
+            granted++;
+        }
+        assertEquals(1001, granted);
+    }
+
+    @Test
+    public void noPermitsDroppedUnderContention() throws InterruptedException {
+        // 所有线程在同一时刻竞争: T到T+1ms内到期的许可恰好全部放行一次
+        BatchedRateLimiter limiter = new BatchedRateLimiter(1_000_000, T);
+        long now = T + PreciseRateLimiter.MAX_BACKLOG_NANOS;
+        AtomicLong granted = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (limiter.tryAcquire(now)) {
+                    granted.incrementAndGet();
+                }
+                limiter.release();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1001, granted.get());
+        assertEquals(1001, limiter.getIssued());
+    }
+
+    @Test
+    public void aggregateRateHoldsAcrossThreads() throws InterruptedException {
+        // 8个线程各自推进时钟，每7us取完已到期的许可；100ms内的许可恰好全部发出，不多不少
+        BatchedRateLimiter limiter = new BatchedRateLimiter(1_000_000, T);
+        long end = T + TimeUnit.MILLISECONDS.toNanos(100);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            long offset = i * US;
+            Thread thread = new Thread(() -> {
+                for (long now = T + offset; now < end; now += 7 * US) {
+                    while (limiter.tryAcquire(now)) {
+                        // 只计数
+                    }
+                }
+                while (limiter.tryAcquire(end)) {
+                    // 只计数
+                }
+                limiter.release();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100_001, limiter.getIssued());
+        assertEquals(100_000, limiter.expectedPermits(T, end), 1e-6);
+    }
+
+    @Test
+    public void acquireNeverExceedsRate() throws InterruptedException {
+        double rate = 5_000;
+        BatchedRateLimiter limiter = new BatchedRateLimiter(rate);
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(200);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                while (limiter.acquire(deadline)) {
+                    // 只计数
+                }
+                limiter.release();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 调度延迟超过补发范围时会少发，但不会超过计划速率
+        double expected = limiter.expectedPermits(startNanos, deadline);
+        assertTrue(limiter.getIssued() <= expected + 1);
+        assertTrue(limiter.getIssued() > 0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.fix.benchmark.test;
+
+import com.fix.benchmark.config.MultiSessionConfig;
+import com.fix.benchmark.engine.LoopbackAcceptor;
+import com.fix.benchmark.engine.MultiSessionEngineManager;
+import com.fix.benchmark.metrics.MultiSessionMetrics;
+import com.fix.benchmark.metrics.PreciseRequestTracker;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 经内置回环接收端的端到端试验: 请求由会话发出，应答经会话回调记入请求跟踪器
+ */
+public class EnhancedLoadTesterTest {
+
+    private static final String TARGET = "FIX_SERVER";
+    private static final int TIMEOUT_MILLIS = 2000;
+
+    private LoopbackAcceptor acceptor;
+    private MultiSessionEngineManager engine;
+    private PreciseRequestTracker tracker;
+    private EnhancedLoadTester tester;
+
+    @Before
+    public void start() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        MultiSessionConfig config = new MultiSessionConfig(ConfigFactory.parseString(
+                "fix.loopback.enabled = true\n"
+                + "fix.loopback.port = " + port + "\n"
+                + "fix.engine.initiator-mode = shared\n"
+                + "fix.persistence.store = memory\n"
+                + "fix.persistence.log = none\n"
+                + "test.timeout-millis = " + TIMEOUT_MILLIS + "\n"));
+
+        acceptor = new LoopbackAcceptor(config, TARGET);
+        acceptor.start();
+        engine = new MultiSessionEngineManager(config, new MultiSessionMetrics());
+        engine.createMultipleSessions("CLIENT", TARGET, 2);
+        assertEquals(2, engine.getActiveConnectionCount());
+
+        tracker = new PreciseRequestTracker(TIMEOUT_MILLIS);
+        tester = new EnhancedLoadTester(engine, tracker, TIMEOUT_MILLIS, 20);
+    }
+
+    @After
+    public void stop() {
+        tester.stop();
+        tracker.shutdown();
+        engine.shutdown();
+        acceptor.stop();
+    }
+
+    @Test
+    public void trialAtLowRatePassesTheSlo() throws Exception {
+        SaturationSearch.Trial trial = tester.runTrial(20, 0, 1);
+        assertNotNull(trial);
+
+        // 每个请求都经会话的应答回调回到跟踪器
+        PreciseRequestTracker.StatsSnapshot stats = tracker.getStats();
+        assertEquals(20, stats.totalRequests);
+        assertEquals(20, stats.totalResponses);
+        assertEquals(0, stats.totalTimeouts);
+        assertEquals(0, tracker.getPendingCount());
+
+        assertEquals(20.0, trial.achievedRate, 0.0);
+        assertTrue(trial.p99Millis > 0);
+        assertTrue(trial.judge(1000, 0).passed);
+    }
+}
@@ -0,0 +1,61 @@
+package com.fix.benchmark.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PreciseRateLimiterTest {
+
+    private static final long T = 1_000_000_000L;
+
+    @Test
+    public void backlogIsCappedAfterIdle() {
+        // 1M/s: 空闲很久之后只补发最近1ms内的许可
+        PreciseRateLimiter limiter = new PreciseRateLimiter(1_000_000, T);
+        long now = T + 10 * PreciseRateLimiter.MAX_BACKLOG_NANOS;
+        int granted = 0;
+        while (limiter.tryAcquire(now)) {
+            granted++;
+        }
+        assertEquals(1001, granted);
+        assertTrue(limiter.tryAcquire(now + 1000));
+        assertFalse(limiter.tryAcquire(now + 1000));
+    }
+
+    @Test
+    public void failedCasRetriesInsteadOfDroppingPermit() throws InterruptedException {
+        // 所有线程在同一时刻竞争，CAS失败的线程重试，T到T+1ms内到期的许可恰好全部放行一次
+        PreciseRateLimiter limiter = new PreciseRateLimiter(1_000_000, T);
+        long now = T + PreciseRateLimiter.MAX_BACKLOG_NANOS;
+        AtomicLong granted = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (limiter.tryAcquire(now)) {
+                    granted.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1001, granted.get());
+    }
+}
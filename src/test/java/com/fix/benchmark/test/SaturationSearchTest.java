@@ -0,0 +1,68 @@
+package com.fix.benchmark.test;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SaturationSearchTest {
+
+    /**
+     * 模拟容量为capacity的系统: 不超过容量时吞吐跟上且p99为1ms，超过后吞吐封顶、p99随排队上升
+     */
+    private static SaturationSearch.Trial simulate(double rate, double capacity) {
+        if (rate <= capacity) {
+            return new SaturationSearch.Trial(rate, rate, 0.5, 1.0, 2.0, 3.0, 0.0);
+        }
+        return new SaturationSearch.Trial(rate, capacity, 50, 500, 800, 1000, 0.0);
+    }
+
+    @Test
+    public void trialAtTrivialRatePasses() {
+        assertTrue(simulate(1, 1000).judge(10, 0).passed);
+        // 吞吐短缺超过5%即不达标
+        assertFalse(new SaturationSearch.Trial(100, 94, 0.5, 1.0, 2.0, 3.0, 0.0).judge(10, 0).passed);
+        assertFalse(new SaturationSearch.Trial(100, 100, 0.5, 11.0, 12.0, 13.0, 0.0).judge(10, 0).passed);
+        assertFalse(new SaturationSearch.Trial(100, 100, 0.5, 1.0, 2.0, 3.0, 0.2).judge(10, 0.1).passed);
+    }
+
+    @Test
+    public void bisectionFindsKnee() throws Exception {
+        List<Double> rates = new ArrayList<>();
+        SaturationSearch search = new SaturationSearch(100, 100_000, 10, 0, 0.05, 30);
+        SaturationSearch.Result result = search.search(rate -> {
+            rates.add(rate);
+            return simulate(rate, 3000);
+        });
+
+        assertTrue(result.saturated);
+        // 100, 200, ... 3200 倍增到第一个不达标速率，再二分到5%以内
+        assertEquals(3200.0, rates.get(5), 0.0);
+        assertTrue(result.knee.passed);
+        assertTrue(result.knee.offeredRate <= 3000);
+        assertTrue(result.knee.offeredRate >= 3000 / 1.05);
+        assertEquals(rates.size(), result.curve.size());
+    }
+
+    @Test
+    public void capacityAboveMaxRateIsNotSaturated() throws Exception {
+        SaturationSearch search = new SaturationSearch(100, 1000, 10, 0, 0.05, 30);
+        SaturationSearch.Result result = search.search(rate -> simulate(rate, 1_000_000));
+        assertFalse(result.saturated);
+        assertEquals(1000.0, result.knee.offeredRate, 0.0);
+    }
+
+    @Test
+    public void failingMinimumRateHasNoKnee() throws Exception {
+        SaturationSearch search = new SaturationSearch(100, 1000, 10, 0, 0.05, 30);
+        SaturationSearch.Result result = search.search(rate -> simulate(rate, 50));
+        assertTrue(result.saturated);
+        assertNull(result.knee);
+        assertEquals(1, result.curve.size());
+    }
+}
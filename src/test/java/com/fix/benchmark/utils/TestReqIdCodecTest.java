@@ -0,0 +1,110 @@
+package com.fix.benchmark.utils;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestReqIdCodecTest {
+
+    private static void assertDecodes(String id, int sessionIndex, long sequence) {
+        assertEquals(sessionIndex, TestReqIdCodec.sessionIndex(id, 0, id.length()));
+        assertEquals(sequence, TestReqIdCodec.sequence(id, 0, id.length()));
+    }
+
+    private static void assertMalformed(String id) {
+        assertEquals(-1, TestReqIdCodec.sessionIndex(id, 0, id.length()));
+        assertEquals(-1, TestReqIdCodec.sequence(id, 0, id.length()));
+        assertEquals(-1, TestReqIdCodec.slot(id, 0, id.length(), 255));
+        assertFalse(TestReqIdCodec.hasTimestamp(id, 0, id.length()));
+    }
+
+    @Test
+    public void plainIdRoundTrips() {
+        String id = TestReqIdCodec.format(0, 0);
+        assertEquals("R00000000000", id);
+        assertEquals(TestReqIdCodec.LENGTH, id.length());
+        assertDecodes(id, 0, 0);
+        assertFalse(TestReqIdCodec.hasTimestamp(id, 0, id.length()));
+
+        assertDecodes(TestReqIdCodec.format(42, 123_456_789L), 42, 123_456_789L);
+        String max = TestReqIdCodec.format(TestReqIdCodec.MAX_SESSION_INDEX, TestReqIdCodec.MAX_SEQUENCE);
+        assertEquals("R__________", max.substring(0, 11));
+        assertDecodes(max, TestReqIdCodec.MAX_SESSION_INDEX, TestReqIdCodec.MAX_SEQUENCE);
+    }
+
+    @Test
+    public void timestampedIdRoundTrips() {
+        long[] timestamps = {0L, 1L, 1_700_000_000_123_456_789L, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+        for (long timestamp : timestamps) {
+            String id = TestReqIdCodec.format(7, 99, timestamp);
+            assertEquals(TestReqIdCodec.TIMESTAMPED_LENGTH, id.length());
+            assertDecodes(id, 7, 99);
+            assertTrue(TestReqIdCodec.hasTimestamp(id, 0, id.length()));
+            assertEquals(timestamp, TestReqIdCodec.timestamp(id, 0, id.length()));
+        }
+    }
+
+    @Test
+    public void decodesInsideLargerTextWithoutSubstring() {
+        String id = TestReqIdCodec.format(3, 1000, 555L);
+        String message = "35=0\u0001112=" + id + "\u000110=123\u0001";
+        int start = message.indexOf("112=") + 4;
+        int end = start + id.length();
+        assertDecodes(message.substring(start, end), 3, 1000);
+        assertEquals(3, TestReqIdCodec.sessionIndex(message, start, end));
+        assertEquals(1000, TestReqIdCodec.sequence(message, start, end));
+        assertEquals(1000 & 255, TestReqIdCodec.slot(message, start, end, 255));
+        assertEquals(555L, TestReqIdCodec.timestamp(message, start, end));
+    }
+
+    @Test
+    public void reusableBufferMatchesFormat() {
+        TestReqIdCodec codec = new TestReqIdCodec();
+        assertEquals(TestReqIdCodec.format(5, 6), codec.encode(5, 6).toString());
+        assertEquals(TestReqIdCodec.LENGTH, codec.length());
+        assertEquals(TestReqIdCodec.format(5, 6, 7), codec.encode(5, 6, 7).toString());
+        assertEquals(TestReqIdCodec.TIMESTAMPED_LENGTH, codec.length());
+        assertEquals('T', codec.charAt(0));
+
+        byte[] bytes = new byte[TestReqIdCodec.TIMESTAMPED_LENGTH + 2];
+        assertEquals(1 + TestReqIdCodec.TIMESTAMPED_LENGTH, TestReqIdCodec.encode(bytes, 1, 5, 6, 7));
+        assertEquals(TestReqIdCodec.format(5, 6, 7),
+                new String(bytes, 1, TestReqIdCodec.TIMESTAMPED_LENGTH, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void malformedIdsAreRejected() {
+        String plain = TestReqIdCodec.format(1, 2);
+        String stamped = TestReqIdCodec.format(1, 2, 3);
+
+        assertMalformed("");
+        assertMalformed("TEST");
+        // 长度不对
+        assertMalformed(plain.substring(0, TestReqIdCodec.LENGTH - 1));
+        assertMalformed(plain + "0");
+        // 标记与长度不匹配
+        assertMalformed("T" + plain.substring(1));
+        assertMalformed("R" + stamped.substring(1));
+        assertMalformed("X" + plain.substring(1));
+        // 字母表之外的字符，包括非ASCII
+        assertMalformed(plain.substring(0, 5) + "=" + plain.substring(6));
+        assertMalformed(plain.substring(0, 5) + "\u0001" + plain.substring(6));
+        assertMalformed(plain.substring(0, 5) + "é" + plain.substring(6));
+        // 时间戳最高位字符超出64位
+        assertMalformed(stamped.substring(0, TestReqIdCodec.LENGTH) + "G" + stamped.substring(TestReqIdCodec.LENGTH + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sessionIndexOutOfRangeIsRejected() {
+        TestReqIdCodec.format(TestReqIdCodec.MAX_SESSION_INDEX + 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSequenceIsRejected() {
+        TestReqIdCodec.format(0, -1);
+    }
+}